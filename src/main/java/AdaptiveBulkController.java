@@ -0,0 +1,291 @@
+/**
+ * bulk 요청의 크기(도큐먼트 수, 바이트)와 동시 요청 수를 AIMD 방식으로 조정하는 컨트롤러 <br><br>
+ * BulkIngester 는 bulk 요청이 끝날 때마다 측정값(왕복 지연 시간, 응답의 took, 429 로 거절된 도큐먼트 수)을 전달합니다. <br>
+ * - 과부하 신호(거절 비율이 rejectionThreshold 초과, 왕복 지연 시간이 targetLatencyMillis 초과,
+ *   서버 처리 시간(took)이 targetTookMillis 초과, 요청 실패)가 있으면
+ *   batch 크기와 동시 요청 수를 decreaseFactor 배로 줄입니다. (multiplicative decrease) <br>
+ * - 과부하 신호가 없으면 batch 크기를 operationsStep, bytesStep 만큼 늘리고,
+ *   concurrencyIncreaseInterval 번 연속 정상이면 동시 요청 수를 1 늘립니다. (additive increase) <br><br>
+ * 한 번 줄인 후에는 줄이기 전에 보낸 요청의 결과로 다시 줄이지 않습니다. (동시에 보낸 요청들이 한꺼번에 거절되어도 한 번만 줄임) <br>
+ * 현재 한계값과 측정값은 metrics() 로 확인할 수 있습니다.
+ */
+public class AdaptiveBulkController {
+
+    /**
+     * 현재 한계값과 측정값 스냅샷
+     */
+    public record Metrics(int maxOperations, long maxBytes, int maxConcurrentRequests,
+                          long lastLatencyMillis, double averageLatencyMillis, long lastTookMillis,
+                          long totalItems, long rejectedItems, long increases, long decreases) {
+
+        public double rejectionRate() {
+            return totalItems == 0 ? 0 : (double) rejectedItems / totalItems;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("maxOperations=%d, maxBytes=%d, maxConcurrentRequests=%d, latency=%dms (avg %.0fms), took=%dms, rejectionRate=%.4f, increases=%d, decreases=%d",
+                    maxOperations, maxBytes, maxConcurrentRequests, lastLatencyMillis, averageLatencyMillis, lastTookMillis,
+                    rejectionRate(), increases, decreases);
+        }
+    }
+
+    private final int minOperations;
+    private final int maxOperationsLimit;
+    private final long minBytes;
+    private final long maxBytesLimit;
+    private final int minConcurrentRequests;
+    private final int maxConcurrentRequestsLimit;
+    private final int operationsStep;
+    private final long bytesStep;
+    private final int concurrencyIncreaseInterval;
+    private final double decreaseFactor;
+    private final long targetLatencyMillis;
+    private final long targetTookMillis;
+    private final double rejectionThreshold;
+
+    private int maxOperations;
+    private long maxBytes;
+    private int maxConcurrentRequests;
+    private int consecutiveGood = 0;
+    // System.nanoTime() 은 음수일 수 있으므로 0 대신 flag 로 한 번도 줄이지 않은 상태를 표시
+    private boolean decreased = false;
+    private long lastDecreaseNanos;
+
+    private long lastLatencyMillis = 0;
+    private double averageLatencyMillis = 0;
+    private long lastTookMillis = 0;
+    private long totalItems = 0;
+    private long rejectedItems = 0;
+    private long increases = 0;
+    private long decreases = 0;
+
+    private AdaptiveBulkController(Builder builder) {
+        this.minOperations = builder.minOperations;
+        this.maxOperationsLimit = builder.maxOperations;
+        this.minBytes = builder.minBytes;
+        this.maxBytesLimit = builder.maxBytes;
+        this.minConcurrentRequests = builder.minConcurrentRequests;
+        this.maxConcurrentRequestsLimit = builder.maxConcurrentRequests;
+        this.operationsStep = builder.operationsStep;
+        this.bytesStep = builder.bytesStep;
+        this.concurrencyIncreaseInterval = builder.concurrencyIncreaseInterval;
+        this.decreaseFactor = builder.decreaseFactor;
+        this.targetLatencyMillis = builder.targetLatencyMillis;
+        this.targetTookMillis = builder.targetTookMillis;
+        this.rejectionThreshold = builder.rejectionThreshold;
+
+        this.maxOperations = clamp(builder.initialOperations, minOperations, maxOperationsLimit);
+        this.maxBytes = clamp(builder.initialBytes, minBytes, maxBytesLimit);
+        this.maxConcurrentRequests = clamp(builder.initialConcurrentRequests, minConcurrentRequests, maxConcurrentRequestsLimit);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * bulk 요청이 응답을 받은 경우
+     * @param startNanos 요청을 보낸 시각 (System.nanoTime())
+     * @param operations 요청한 도큐먼트 수
+     * @param latencyMillis 왕복 지연 시간
+     * @param tookMillis 응답의 took
+     * @param rejected 429 로 거절된 도큐먼트 수
+     */
+    public synchronized void onBulkCompleted(long startNanos, int operations, long latencyMillis, long tookMillis, int rejected) {
+        lastLatencyMillis = latencyMillis;
+        averageLatencyMillis = totalItems == 0 ? latencyMillis : averageLatencyMillis * 0.8 + latencyMillis * 0.2;
+        lastTookMillis = tookMillis;
+        totalItems += operations;
+        rejectedItems += rejected;
+
+        double rejectionRate = operations == 0 ? 0 : (double) rejected / operations;
+        if (rejectionRate > rejectionThreshold || latencyMillis > targetLatencyMillis || tookMillis > targetTookMillis) {
+            decrease(startNanos);
+        } else {
+            increase();
+        }
+    }
+
+    /**
+     * bulk 요청 자체가 실패한 경우 (타임아웃, 연결 실패 등)
+     * @param startNanos 요청을 보낸 시각 (System.nanoTime())
+     */
+    public synchronized void onBulkFailed(long startNanos) {
+        decrease(startNanos);
+    }
+
+    private void increase() {
+        int previousOperations = maxOperations;
+        long previousBytes = maxBytes;
+        int previousConcurrency = maxConcurrentRequests;
+
+        maxOperations = clamp(maxOperations + operationsStep, minOperations, maxOperationsLimit);
+        maxBytes = clamp(maxBytes + bytesStep, minBytes, maxBytesLimit);
+        if (++consecutiveGood >= concurrencyIncreaseInterval) {
+            consecutiveGood = 0;
+            maxConcurrentRequests = clamp(maxConcurrentRequests + 1, minConcurrentRequests, maxConcurrentRequestsLimit);
+        }
+
+        if (previousOperations != maxOperations || previousBytes != maxBytes || previousConcurrency != maxConcurrentRequests) {
+            increases++;
+        }
+    }
+
+    private void decrease(long startNanos) {
+        consecutiveGood = 0;
+        // 마지막으로 줄이기 전에 보낸 요청의 결과는 이미 반영된 것으로 보고 무시
+        if (decreased && startNanos - lastDecreaseNanos < 0) {
+            return;
+        }
+        decreased = true;
+        lastDecreaseNanos = System.nanoTime();
+        maxOperations = clamp((int) (maxOperations * decreaseFactor), minOperations, maxOperationsLimit);
+        maxBytes = clamp((long) (maxBytes * decreaseFactor), minBytes, maxBytesLimit);
+        maxConcurrentRequests = clamp((int) (maxConcurrentRequests * decreaseFactor), minConcurrentRequests, maxConcurrentRequestsLimit);
+        decreases++;
+    }
+
+    public synchronized int maxOperations() {
+        return maxOperations;
+    }
+
+    public synchronized long maxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized int maxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public synchronized Metrics metrics() {
+        return new Metrics(maxOperations, maxBytes, maxConcurrentRequests,
+                lastLatencyMillis, averageLatencyMillis, lastTookMillis,
+                totalItems, rejectedItems, increases, decreases);
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    public static class Builder {
+        private int minOperations = 100;
+        private int maxOperations = 10_000;
+        private int initialOperations = 1000;
+        private long minBytes = 512 * 1024;
+        private long maxBytes = 50 * 1024 * 1024;
+        private long initialBytes = 5 * 1024 * 1024;
+        private int minConcurrentRequests = 1;
+        private int maxConcurrentRequests = 8;
+        private int initialConcurrentRequests = 2;
+        private int operationsStep = 100;
+        private long bytesStep = 512 * 1024;
+        private int concurrencyIncreaseInterval = 10;
+        private double decreaseFactor = 0.5;
+        private long targetLatencyMillis = 2000;
+        private long targetTookMillis = 1000;
+        private double rejectionThreshold = 0.0;
+
+        private Builder() {
+        }
+
+        /**
+         * bulk 요청 하나의 도큐먼트 수 범위와 시작값 (기본 100 ~ 10000, 시작 1000)
+         */
+        public Builder operations(int min, int max, int initial) {
+            this.minOperations = min;
+            this.maxOperations = max;
+            this.initialOperations = initial;
+            return this;
+        }
+
+        /**
+         * bulk 요청 하나의 크기 범위와 시작값 (기본 512KB ~ 50MB, 시작 5MB)
+         */
+        public Builder bytes(long min, long max, long initial) {
+            this.minBytes = min;
+            this.maxBytes = max;
+            this.initialBytes = initial;
+            return this;
+        }
+
+        /**
+         * 동시 요청 수 범위와 시작값 (기본 1 ~ 8, 시작 2)
+         */
+        public Builder concurrentRequests(int min, int max, int initial) {
+            this.minConcurrentRequests = min;
+            this.maxConcurrentRequests = max;
+            this.initialConcurrentRequests = initial;
+            return this;
+        }
+
+        /**
+         * 정상 응답마다 늘릴 도큐먼트 수와 바이트 (기본 100건, 512KB)
+         */
+        public Builder increaseStep(int operationsStep, long bytesStep) {
+            this.operationsStep = operationsStep;
+            this.bytesStep = bytesStep;
+            return this;
+        }
+
+        /**
+         * 동시 요청 수를 1 늘리기 위해 필요한 연속 정상 응답 수 (기본 10)
+         */
+        public Builder concurrencyIncreaseInterval(int concurrencyIncreaseInterval) {
+            this.concurrencyIncreaseInterval = concurrencyIncreaseInterval;
+            return this;
+        }
+
+        /**
+         * 과부하 시 곱할 값 (기본 0.5)
+         */
+        public Builder decreaseFactor(double decreaseFactor) {
+            this.decreaseFactor = decreaseFactor;
+            return this;
+        }
+
+        /**
+         * 이 값보다 왕복 지연 시간이 길면 과부하로 판단 (기본 2000ms)
+         */
+        public Builder targetLatencyMillis(long targetLatencyMillis) {
+            this.targetLatencyMillis = targetLatencyMillis;
+            return this;
+        }
+
+        /**
+         * 응답의 took(서버에서 bulk 를 처리한 시간)이 이 값보다 길면 과부하로 판단 (기본 1000ms)
+         */
+        public Builder targetTookMillis(long targetTookMillis) {
+            this.targetTookMillis = targetTookMillis;
+            return this;
+        }
+
+        /**
+         * 429 거절 비율이 이 값을 넘으면 과부하로 판단 (기본 0 = 하나라도 거절되면)
+         */
+        public Builder rejectionThreshold(double rejectionThreshold) {
+            this.rejectionThreshold = rejectionThreshold;
+            return this;
+        }
+
+        public AdaptiveBulkController build() {
+            if (minOperations <= 0 || minOperations > maxOperations) {
+                throw new IllegalArgumentException("invalid operations range: " + minOperations + " ~ " + maxOperations);
+            }
+            if (minBytes <= 0 || minBytes > maxBytes) {
+                throw new IllegalArgumentException("invalid bytes range: " + minBytes + " ~ " + maxBytes);
+            }
+            if (minConcurrentRequests <= 0 || minConcurrentRequests > maxConcurrentRequests) {
+                throw new IllegalArgumentException("invalid concurrent requests range: " + minConcurrentRequests + " ~ " + maxConcurrentRequests);
+            }
+            if (decreaseFactor <= 0 || decreaseFactor >= 1) {
+                throw new IllegalArgumentException("decreaseFactor must be between 0 and 1");
+            }
+            return new AdaptiveBulkController(this);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 재시도 간격을 계산하는 jitter 가 적용된 exponential backoff 정책 <br><br>
+ * attempt 번째 재시도의 대기 시간은 0 ~ min(maxDelayMillis, initialDelayMillis * 2^attempt) 사이의 임의 값입니다. (full jitter) <br>
+ * 여러 클라이언트가 같은 순간에 거절당해도 재시도 시점이 흩어지므로, 이미 과부하 상태인 클러스터에 요청이 한꺼번에 몰리지 않습니다.
+ */
+public class BackoffPolicy {
+
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final int maxRetries;
+
+    public BackoffPolicy(long initialDelayMillis, long maxDelayMillis, int maxRetries) {
+        if (initialDelayMillis <= 0 || maxDelayMillis < initialDelayMillis) {
+            throw new IllegalArgumentException("invalid backoff delay: initial=" + initialDelayMillis + ", max=" + maxDelayMillis);
+        }
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * 기본 정책 - 100ms 부터 시작해서 최대 10초, 최대 5회 재시도
+     * @return BackoffPolicy
+     */
+    public static BackoffPolicy defaultPolicy() {
+        return new BackoffPolicy(100, 10_000, 5);
+    }
+
+    /**
+     * 재시도하지 않는 정책
+     * @return BackoffPolicy
+     */
+    public static BackoffPolicy noRetry() {
+        return new BackoffPolicy(1, 1, 0);
+    }
+
+    /**
+     * attempt 번째 재시도 전에 대기할 시간
+     * @param attempt 재시도 횟수 (0 부터 시작)
+     * @return 대기 시간 (milliseconds)
+     */
+    public long delayMillis(int attempt) {
+        long ceiling = initialDelayMillis << Math.min(attempt, 30);
+        if (ceiling <= 0 || ceiling > maxDelayMillis) {
+            ceiling = maxDelayMillis;
+        }
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * attempt 번째 재시도가 허용되는지 여부
+     * @param attempt 재시도 횟수 (0 부터 시작)
+     * @return 재시도 가능하면 true
+     */
+    public boolean canRetry(int attempt) {
+        return attempt < maxRetries;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    @Override
+    public String toString() {
+        return "BackoffPolicy{initialDelayMillis=" + initialDelayMillis
+                + ", maxDelayMillis=" + maxDelayMillis
+                + ", maxRetries=" + maxRetries + "}";
+    }
+}
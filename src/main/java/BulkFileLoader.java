@@ -0,0 +1,381 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * NDJSON, CSV 덤프 파일을 bulk 로 적재하는 로더 <br><br>
+ * 파일을 FileChannel 로 메모리 매핑하고, 줄 경계에 맞춰 chunk 로 나눈 후 여러 스레드에서 동시에 파싱합니다. <br>
+ * 파싱된 도큐먼트는 chunk 순서대로 BulkIngester 에 전달되므로 파일에 적힌 순서가 유지됩니다. <br>
+ * 도큐먼트는 ObjectNode 로 만들지 않고 JSON 문자열 그대로(RawValue) bulk 본문에 쓰입니다. <br><br>
+ * - NDJSON : 한 줄이 하나의 도큐먼트 <br>
+ * - CSV : 첫 줄은 필드 이름, 값은 정수/실수/문자열로 변환됨. 큰따옴표로 감싼 값은 지원하지만 값 안의 줄바꿈은 지원하지 않음
+ *
+ * <pre>
+ * try (BulkIngester ingester = BulkIngester.builder(asyncClient).maxConcurrentRequests(4).build()) {
+ *     BulkFileLoader.builder("sample-index", BulkFileLoader.Format.CSV).build().load(Path.of("metrics.csv"), ingester);
+ * }
+ * </pre>
+ */
+public class BulkFileLoader {
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    /**
+     * chunk 하나를 bulk 경로에 넘길 때마다 호출되는 진행 상황 리스너
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(Progress progress);
+    }
+
+    /**
+     * 진행 상황 - 처리한 바이트, 도큐먼트 수와 처리량
+     */
+    public record Progress(long bytesLoaded, long totalBytes, long documents, int chunksLoaded, int totalChunks, long elapsedMillis) {
+
+        public double percent() {
+            return totalBytes == 0 ? 100.0 : bytesLoaded * 100.0 / totalBytes;
+        }
+
+        public double documentsPerSecond() {
+            return elapsedMillis == 0 ? 0 : documents * 1000.0 / elapsedMillis;
+        }
+
+        public double megabytesPerSecond() {
+            return elapsedMillis == 0 ? 0 : bytesLoaded / 1024.0 / 1024.0 * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f%% (%d/%d chunks), %d docs, %.0f docs/s, %.1f MB/s",
+                    percent(), chunksLoaded, totalChunks, documents, documentsPerSecond(), megabytesPerSecond());
+        }
+    }
+
+    // 파싱이 끝난 chunk - 도큐먼트와 각 도큐먼트의 NDJSON 크기
+    private record ParsedChunk(List<BulkOperation> operations, long[] sizes, long bytes) {
+    }
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final String indexName;
+    private final Format format;
+    private final long chunkSize;
+    private final int parallelism;
+    private final ProgressListener progressListener;
+    private final int actionLineSize;
+
+    private BulkFileLoader(Builder builder) {
+        this.indexName = builder.indexName;
+        this.format = builder.format;
+        this.chunkSize = builder.chunkSize;
+        this.parallelism = builder.parallelism;
+        this.progressListener = builder.progressListener;
+        // {"index":{"_index":"..."}}\n
+        this.actionLineSize = 24 + indexName.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    public static Builder builder(String indexName, Format format) {
+        return new Builder(indexName, format);
+    }
+
+    /**
+     * 파일을 읽어서 ingester 로 전달 - 모든 도큐먼트를 ingester 에 넘기면 반환하며, 전송 완료는 ingester.close() 로 기다려야 함
+     * @param file 입력 파일
+     * @param ingester 도큐먼트를 전달할 BulkIngester
+     * @return 마지막 진행 상황
+     */
+    public Progress load(Path file, BulkIngester ingester) throws IOException {
+        long startMillis = System.currentTimeMillis();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+
+            // CSV 는 첫 줄이 필드 이름
+            long dataStart = 0;
+            String[] header = null;
+            if (format == Format.CSV) {
+                dataStart = nextLineStart(channel, 0, fileSize);
+                ByteBuffer headerBytes = ByteBuffer.allocate((int) dataStart);
+                // read() 는 요청한 것보다 적게 읽을 수 있으므로 buffer 가 찰 때까지 반복
+                while (headerBytes.hasRemaining()) {
+                    if (channel.read(headerBytes, headerBytes.position()) < 0) {
+                        throw new IOException("unexpected end of file while reading csv header: " + file);
+                    }
+                }
+                header = parseCsvLine(trimLine(new String(headerBytes.array(), StandardCharsets.UTF_8)));
+            }
+
+            List<long[]> chunks = split(channel, dataStart, fileSize);
+            String[] fieldNames = header;
+
+            ExecutorService workers = Executors.newFixedThreadPool(parallelism, r -> {
+                Thread thread = new Thread(r, "bulk-file-loader");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                // 메모리를 제한하기 위해 파싱이 끝났지만 아직 전달하지 않은 chunk 는 parallelism * 2 개까지만 유지
+                Deque<Future<ParsedChunk>> pending = new ArrayDeque<>();
+                int nextChunk = 0;
+                long bytesLoaded = dataStart;
+                long documents = 0;
+                int chunksLoaded = 0;
+                Progress progress = new Progress(bytesLoaded, fileSize, 0, 0, chunks.size(), 0);
+
+                while (nextChunk < chunks.size() || !pending.isEmpty()) {
+                    while (nextChunk < chunks.size() && pending.size() < parallelism * 2) {
+                        long[] chunk = chunks.get(nextChunk++);
+                        pending.add(workers.submit(() -> parseChunk(channel, chunk[0], chunk[1], fieldNames)));
+                    }
+
+                    // chunk 순서대로 전달
+                    ParsedChunk parsed = pending.poll().get();
+                    for (int i = 0; i < parsed.operations().size(); i++) {
+                        ingester.add(parsed.operations().get(i), parsed.sizes()[i]);
+                    }
+
+                    bytesLoaded += parsed.bytes();
+                    documents += parsed.operations().size();
+                    chunksLoaded++;
+                    progress = new Progress(bytesLoaded, fileSize, documents, chunksLoaded, chunks.size(), System.currentTimeMillis() - startMillis);
+                    if (progressListener != null) {
+                        progressListener.onProgress(progress);
+                    }
+                }
+                return progress;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("loading is interrupted: " + file, e);
+            } catch (ExecutionException e) {
+                throw new IOException("failed to parse " + file + ": " + e.getCause().getMessage(), e.getCause());
+            } finally {
+                workers.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * [start, end) 구간을 chunkSize 근처의 줄 경계로 분할
+     */
+    private List<long[]> split(FileChannel channel, long start, long end) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long position = start;
+        while (position < end) {
+            long chunkEnd = Math.min(position + chunkSize, end);
+            if (chunkEnd < end) {
+                chunkEnd = nextLineStart(channel, chunkEnd, end);
+            }
+            if (chunkEnd - position > Integer.MAX_VALUE) {
+                throw new IOException("line is too long at offset " + position);
+            }
+            chunks.add(new long[]{position, chunkEnd});
+            position = chunkEnd;
+        }
+        return chunks;
+    }
+
+    /**
+     * position 이후 처음 나오는 줄의 시작 위치 (줄바꿈이 없으면 파일 끝)
+     */
+    private static long nextLineStart(FileChannel channel, long position, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long offset = position;
+        while (offset < end) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return end;
+    }
+
+    /**
+     * chunk 를 메모리 매핑해서 줄 단위로 파싱
+     */
+    private ParsedChunk parseChunk(FileChannel channel, long start, long end, String[] header) throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        List<BulkOperation> operations = new ArrayList<>();
+        List<Long> sizes = new ArrayList<>();
+        byte[] line = new byte[1024];
+
+        int lineStart = 0;
+        int limit = mapped.limit();
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit && mapped.get(i) != '\n') {
+                continue;
+            }
+            int lineEnd = i;
+            if (lineEnd > lineStart && mapped.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            int length = lineEnd - lineStart;
+            if (length > 0) {
+                if (line.length < length) {
+                    line = new byte[Math.max(length, line.length * 2)];
+                }
+                mapped.get(lineStart, line, 0, length);
+                String text = new String(line, 0, length, StandardCharsets.UTF_8);
+                if (!text.isBlank()) {
+                    String json = format == Format.CSV ? csvToJson(header, parseCsvLine(text)) : text;
+                    operations.add(BulkOperation.of(b -> b.index(io -> io.index(indexName).document(new RawValue(json)))));
+                    // maxBytes 는 byte 단위이므로 문자 수가 아니라 UTF-8 byte 수로 셈 (NDJSON 은 읽은 줄의 byte 수 그대로)
+                    long jsonBytes = format == Format.CSV ? json.getBytes(StandardCharsets.UTF_8).length : length;
+                    sizes.add(actionLineSize + jsonBytes + 1);
+                }
+            }
+            lineStart = i + 1;
+        }
+
+        long[] sizeArray = new long[sizes.size()];
+        for (int i = 0; i < sizeArray.length; i++) {
+            sizeArray[i] = sizes.get(i);
+        }
+        return new ParsedChunk(operations, sizeArray, end - start);
+    }
+
+    /**
+     * CSV 한 줄을 필드로 분리 - 큰따옴표로 감싼 값과 "" 이스케이프 지원
+     */
+    static String[] parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * CSV 값을 JSON 도큐먼트로 변환 - 빈 값은 생략하고, 숫자로 읽히는 값은 숫자로 씀
+     */
+    private static String csvToJson(String[] header, String[] values) throws IOException {
+        StringWriter writer = new StringWriter(64);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            int count = Math.min(header.length, values.length);
+            for (int i = 0; i < count; i++) {
+                String value = values[i];
+                if (value.isEmpty()) {
+                    continue;
+                }
+                generator.writeFieldName(header[i]);
+                writeCsvValue(generator, value);
+            }
+            generator.writeEndObject();
+        }
+        return writer.toString();
+    }
+
+    private static void writeCsvValue(JsonGenerator generator, String value) throws IOException {
+        try {
+            generator.writeNumber(Long.parseLong(value));
+            return;
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            double number = Double.parseDouble(value);
+            if (!Double.isNaN(number) && !Double.isInfinite(number)) {
+                generator.writeNumber(number);
+                return;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        generator.writeString(value);
+    }
+
+    private static String trimLine(String line) {
+        return line.replace("\r", "").replace("\n", "");
+    }
+
+    public static class Builder {
+        private final String indexName;
+        private final Format format;
+        private long chunkSize = 8 * 1024 * 1024;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private ProgressListener progressListener;
+
+        private Builder(String indexName, Format format) {
+            this.indexName = indexName;
+            this.format = format;
+        }
+
+        /**
+         * chunk 하나의 대략적인 크기 - 실제로는 다음 줄 경계까지 늘어남 (기본 8MB)
+         */
+        public Builder chunkSize(long chunkSize) {
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * 동시에 파싱할 스레드 수 (기본 CPU 코어 수)
+         */
+        public Builder parallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public Builder progressListener(ProgressListener progressListener) {
+            this.progressListener = progressListener;
+            return this;
+        }
+
+        public BulkFileLoader build() {
+            if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("chunkSize must be between 1 and " + Integer.MAX_VALUE);
+            }
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism must be greater than 0");
+            }
+            return new BulkFileLoader(this);
+        }
+    }
+}
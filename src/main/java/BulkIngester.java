@@ -0,0 +1,756 @@
+import com.fasterxml.jackson.databind.util.RawValue;
+import jakarta.json.stream.JsonGenerator;
+import org.apache.hc.core5.http.HttpHost;
+import org.opensearch.client.json.JsonpMapper;
+import org.opensearch.client.json.NdJsonpSerializable;
+import org.opensearch.client.json.jackson.JacksonJsonpMapper;
+import org.opensearch.client.opensearch.OpenSearchAsyncClient;
+import org.opensearch.client.opensearch._types.Refresh;
+import org.opensearch.client.opensearch.core.BulkRequest;
+import org.opensearch.client.opensearch.core.BulkResponse;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 도큐먼트를 하나씩 받아서 bulk 요청으로 모아 보내는 장기 실행용 ingester <br><br>
+ * 아래 조건 중 하나를 만족하면 모아둔 operation 들을 하나의 bulk 요청으로 전송(flush)합니다. <br>
+ * - 모인 operation 수가 maxOperations 에 도달 <br>
+ * - 모인 operation 의 NDJSON 크기가 maxBytes 에 도달 <br>
+ * - 마지막 flush 이후 flushIntervalMillis 가 지남 <br><br>
+ * bulk 요청은 OpenSearchAsyncClient 로 비동기 전송되며, 동시에 처리 중인 요청이 maxConcurrentRequests 개에 도달하면
+ * 하나가 끝날 때까지 add() 를 호출한 producer 스레드가 대기합니다. (backpressure) <br><br>
+ * bulk 요청이 성공해도 개별 operation 은 실패할 수 있습니다. 429(es_rejected_execution), 503 으로 실패한 operation 만 골라서
+ * BackoffPolicy 의 간격만큼 기다린 후 다시 보내고, 성공한 operation 은 다시 보내지 않습니다.
+ * 재시도할 수 없는 실패나 재시도 횟수를 넘긴 실패는 Listener.onItemFailure() 로 전달됩니다. <br><br>
+ * AdaptiveBulkController 를 지정하면 batch 크기와 동시 요청 수를 고정값 대신 컨트롤러가 측정값에 따라 조정한 값으로 사용합니다. <br>
+ * ShardAwareRouter 를 지정하면 batch 를 primary shard 를 가진 노드별로 나눠서 각 노드로 바로 보냅니다. <br>
+ * DocumentIdGenerator 를 지정하면 아이디가 없는 index/create operation 에 시간 순서 아이디를 붙여서, 재전송해도 도큐먼트가 중복되지 않습니다. <br>
+ * BulkSpool 을 지정하면 보내지 못한 operation 을 버리지 않고 디스크에 기록해서, 클러스터가 복구된 후 spool 의 replayer 가 다시 보냅니다.
+ * 이때 DocumentIdGenerator 를 지정하지 않아도 spool 의 생성기로 처음 보낼 때부터 아이디를 붙이므로, 처음 요청이 timeout 후 서버에서는 반영된 경우에도 다시 보낸 도큐먼트가 중복되지 않습니다.
+ * spool 이 없으면 bulk 요청 자체가 실패한 operation 은 getFailedOperationCount() 에 더해지고 버려집니다. <br>
+ * 재전송은 별도의 retry 스레드에서 하므로, 재전송이 동시 요청 permit 을 기다리는 동안에도 주기적인 flush 는 멈추지 않습니다.
+ *
+ * <pre>
+ * try (BulkIngester ingester = BulkIngester.builder(asyncClient)
+ *         .maxOperations(1000)
+ *         .maxBytes(5 * 1024 * 1024)
+ *         .flushIntervalMillis(1000)
+ *         .maxConcurrentRequests(2)
+ *         .build()) {
+ *     ingester.add(BulkOperation.of(b -> b.index(i -> i.index("sample-index").document(doc))));
+ * }
+ * </pre>
+ */
+public class BulkIngester implements AutoCloseable {
+
+    /**
+     * bulk 요청 전/후에 호출되는 리스너
+     */
+    public interface Listener {
+
+        default void beforeBulk(long executionId, BulkRequest request) {
+        }
+
+        /**
+         * bulk 요청이 응답을 받은 경우 (개별 operation 은 실패했을 수 있으므로 response.errors() 를 확인해야 함)
+         */
+        default void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+        }
+
+        /**
+         * bulk 요청 자체가 실패한 경우 (연결 실패, 타임아웃 등)
+         */
+        default void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+        }
+
+        /**
+         * 개별 operation 이 최종 실패한 경우 (재시도할 수 없는 오류이거나 재시도 횟수를 넘김)
+         */
+        default void onItemFailure(BulkOperation operation, BulkResponseItem item) {
+        }
+    }
+
+    private final OpenSearchAsyncClient asyncClient;
+    private final JsonpMapper mapper;
+    private final long flushIntervalMillis;
+    private final Refresh refresh;
+    private final BackoffPolicy backoffPolicy;
+    private final Listener listener;
+    private final AdaptiveBulkController adaptiveController;
+    private final ShardAwareRouter router;
+    private final BulkSpool spool;
+    private final DocumentIdGenerator idGenerator;
+
+    // 현재 적용 중인 한계값 (AdaptiveBulkController 가 있으면 요청이 끝날 때마다 갱신됨)
+    private volatile int maxOperations;
+    private volatile long maxBytes;
+    private int maxConcurrentRequests;
+
+    private final Object lock = new Object();
+    private List<BulkOperation> buffer = new ArrayList<>();
+    private long bufferBytes = 0;
+    // 마지막으로 batch 를 꺼낸 시각 - 주기적인 flush 는 이 시각부터 flushIntervalMillis 후에 실행
+    private long lastFlushNanos = System.nanoTime();
+
+    private final AdjustableSemaphore inFlightPermits;
+    private final ScheduledExecutorService scheduler;
+    // 재전송 전용 - permit 을 기다리며 block 될 수 있으므로 scheduler 와 분리
+    private final ExecutorService retryExecutor;
+    private volatile ScheduledFuture<?> flushTask;
+    private volatile boolean closed = false;
+
+    // 아직 끝나지 않은 batch 수 (전송 중 + 재시도 대기 중)
+    private final AtomicInteger pendingBatches = new AtomicInteger();
+    private final Object pendingLock = new Object();
+
+    private final AtomicLong executionIdGenerator = new AtomicLong();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong operationCount = new AtomicLong();
+    private final AtomicLong failedRequestCount = new AtomicLong();
+    private final AtomicLong retriedOperationCount = new AtomicLong();
+    private final AtomicLong failedOperationCount = new AtomicLong();
+    private final AtomicLong spooledOperationCount = new AtomicLong();
+
+    private BulkIngester(Builder builder) {
+        this.asyncClient = builder.asyncClient;
+        this.mapper = builder.asyncClient._transport().jsonpMapper();
+        this.flushIntervalMillis = builder.flushIntervalMillis;
+        this.refresh = builder.refresh;
+        this.backoffPolicy = builder.backoffPolicy;
+        this.listener = builder.listener;
+        this.adaptiveController = builder.adaptiveController;
+        this.router = builder.router;
+        this.spool = builder.spool;
+        // spool 에 기록했다가 다시 보낼 때 중복되지 않도록, spool 이 있으면 처음 보내기 전부터 아이디를 붙임
+        this.idGenerator = builder.idGenerator == null && builder.spool != null ? builder.spool.idGenerator() : builder.idGenerator;
+        if (adaptiveController != null) {
+            this.maxOperations = adaptiveController.maxOperations();
+            this.maxBytes = adaptiveController.maxBytes();
+            this.maxConcurrentRequests = adaptiveController.maxConcurrentRequests();
+        } else {
+            this.maxOperations = builder.maxOperations;
+            this.maxBytes = builder.maxBytes;
+            this.maxConcurrentRequests = builder.maxConcurrentRequests;
+        }
+        this.inFlightPermits = new AdjustableSemaphore(maxConcurrentRequests);
+
+        // 주기적인 flush 와 재시도 예약에 사용
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "bulk-ingester-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.retryExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "bulk-ingester-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (flushIntervalMillis > 0) {
+            this.flushTask = scheduler.schedule(this::periodicFlush, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public static Builder builder(OpenSearchAsyncClient asyncClient) {
+        return new Builder(asyncClient);
+    }
+
+    /**
+     * operation 추가 - NDJSON 크기는 직렬화해서 계산함 <br>
+     * index/create 의 document 는 여기서 한 번만 직렬화하고, 그 결과를 크기 계산과 bulk 요청 본문에 같이 사용함
+     * @param operation bulk operation
+     */
+    public void add(BulkOperation operation) {
+        if (idGenerator != null) {
+            operation = idGenerator.withId(operation);
+        }
+        operation = withSerializedDocument(operation);
+        enqueue(operation, estimateSize(operation));
+    }
+
+    /**
+     * operation 추가 - 호출하는 쪽에서 NDJSON 크기를 알고 있으면 직렬화 비용 없이 추가할 수 있음 <br>
+     * flush 조건을 만족하면 bulk 요청을 보내고, 동시 요청 수가 가득 찼으면 자리가 날 때까지 대기함
+     * @param operation bulk operation
+     * @param sizeInBytes operation 의 NDJSON 크기 (bytes)
+     */
+    public void add(BulkOperation operation, long sizeInBytes) {
+        if (idGenerator != null) {
+            operation = idGenerator.withId(operation);
+        }
+        enqueue(operation, sizeInBytes);
+    }
+
+    private void enqueue(BulkOperation operation, long sizeInBytes) {
+        if (closed) {
+            throw new IllegalStateException("BulkIngester is closed");
+        }
+        Batch batch = null;
+        synchronized (lock) {
+            buffer.add(operation);
+            bufferBytes += sizeInBytes;
+            if (buffer.size() >= maxOperations || (maxBytes > 0 && bufferBytes >= maxBytes)) {
+                batch = takeBuffer();
+            }
+        }
+        if (batch != null) {
+            dispatch(batch.operations(), batch.bytes(), 0);
+        }
+    }
+
+    /**
+     * 모아둔 operation 을 즉시 전송
+     */
+    public void flush() {
+        Batch batch;
+        synchronized (lock) {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            batch = takeBuffer();
+        }
+        dispatch(batch.operations(), batch.bytes(), 0);
+    }
+
+    /**
+     * 마지막 flush 이후 flushIntervalMillis 가 지났으면 flush 하고, 다음 실행을 마지막 flush 시각 기준으로 예약
+     */
+    private void periodicFlush() {
+        if (closed) {
+            return;
+        }
+        long elapsedMillis;
+        synchronized (lock) {
+            elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastFlushNanos);
+        }
+        if (elapsedMillis >= flushIntervalMillis) {
+            flush();
+            elapsedMillis = 0;
+        }
+        if (closed) {
+            return;
+        }
+        flushTask = scheduler.schedule(this::periodicFlush, flushIntervalMillis - elapsedMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private Batch takeBuffer() {
+        Batch batch = new Batch(buffer, bufferBytes);
+        buffer = new ArrayList<>(Math.min(maxOperations, 10000));
+        bufferBytes = 0;
+        lastFlushNanos = System.nanoTime();
+        pendingBatches.incrementAndGet();
+        return batch;
+    }
+
+    /**
+     * batch 전송 - ShardAwareRouter 가 있으면 primary 노드별로 나눠서 각각 전송 <br>
+     * 호출 전에 pendingBatches 가 batch 하나만큼 증가되어 있어야 함 (나눠진 요청 수만큼 여기서 더 증가시킴)
+     * @param operations 전송할 operation 목록
+     * @param bytes operation 들의 NDJSON 크기
+     * @param attempt 재시도 횟수 (처음 전송이면 0)
+     */
+    private void dispatch(List<BulkOperation> operations, long bytes, int attempt) {
+        // spool 에 보내지 않은 레코드가 남아있으면 순서를 지키기 위해 새 batch 도 spool 에 기록 (circuit breaker open)
+        if (spool != null && spool.isBacklogged()) {
+            spool(operations);
+            batchDone();
+            return;
+        }
+        if (router == null) {
+            send(asyncClient, null, operations, bytes, attempt);
+            return;
+        }
+        Map<HttpHost, List<BulkOperation>> groups = router.group(operations);
+        pendingBatches.addAndGet(groups.size() - 1);
+        for (Map.Entry<HttpHost, List<BulkOperation>> group : groups.entrySet()) {
+            List<BulkOperation> groupOperations = group.getValue();
+            send(router.client(group.getKey()), group.getKey(), groupOperations, bytes * groupOperations.size() / operations.size(), attempt);
+        }
+    }
+
+    /**
+     * bulk 요청 전송 - 호출 전에 pendingBatches 가 증가되어 있어야 하고, 요청이 끝나면 batchDone() 으로 감소시킴
+     * @param client 요청을 보낼 client
+     * @param node 노드로 직접 보내는 경우 노드 주소 (기존 방식이면 null)
+     * @param operations 전송할 operation 목록
+     * @param bytes operation 들의 NDJSON 크기
+     * @param attempt 재시도 횟수 (처음 전송이면 0)
+     */
+    private void send(OpenSearchAsyncClient client, HttpHost node, List<BulkOperation> operations, long bytes, int attempt) {
+        // 동시 요청 수가 가득 차면 여기서 producer 가 대기함 (backpressure)
+        inFlightPermits.acquireUninterruptibly();
+        long startNanos = System.nanoTime();
+
+        long executionId = executionIdGenerator.incrementAndGet();
+        BulkRequest request = new BulkRequest.Builder()
+                .operations(operations)
+                .refresh(refresh)
+                .build();
+        listener.beforeBulk(executionId, request);
+
+        try {
+            client.bulk(request).whenComplete((response, failure) -> {
+                try {
+                    requestCount.incrementAndGet();
+                    operationCount.addAndGet(operations.size());
+                    if (failure != null) {
+                        failedRequestCount.incrementAndGet();
+                        if (adaptiveController != null) {
+                            adaptiveController.onBulkFailed(startNanos);
+                        }
+                        listener.afterBulk(executionId, request, failure);
+                        if (node != null) {
+                            // 노드로 직접 보낸 요청이 실패하면 routing 을 끄고 기존 방식으로 다시 보냄
+                            router.onNodeFailure(node);
+                            pendingBatches.incrementAndGet();
+                            retryExecutor.execute(() -> send(asyncClient, null, operations, bytes, attempt));
+                        } else if (spool != null) {
+                            spool(operations);
+                        } else {
+                            drop(operations, failure);
+                        }
+                    } else {
+                        if (adaptiveController != null) {
+                            long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                            int rejected = (int) response.items().stream().filter(item -> item.status() == 429).count();
+                            adaptiveController.onBulkCompleted(startNanos, operations.size(), latencyMillis, response.took(), rejected);
+                        }
+                        listener.afterBulk(executionId, request, response);
+                        if (response.errors()) {
+                            handleItemFailures(operations, bytes, response.items(), attempt);
+                        }
+                    }
+                } finally {
+                    applyAdaptiveLimits();
+                    inFlightPermits.release();
+                    batchDone();
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            inFlightPermits.release();
+            failedRequestCount.incrementAndGet();
+            listener.afterBulk(executionId, request, e);
+            if (spool != null) {
+                spool(operations);
+            } else {
+                drop(operations, e);
+            }
+            batchDone();
+        }
+    }
+
+    /**
+     * AdaptiveBulkController 가 조정한 한계값을 반영 - 동시 요청 수는 semaphore 의 permit 수를 늘리거나 줄여서 반영
+     */
+    private void applyAdaptiveLimits() {
+        if (adaptiveController == null) {
+            return;
+        }
+        maxOperations = adaptiveController.maxOperations();
+        maxBytes = adaptiveController.maxBytes();
+        synchronized (inFlightPermits) {
+            int concurrency = adaptiveController.maxConcurrentRequests();
+            int delta = concurrency - maxConcurrentRequests;
+            if (delta > 0) {
+                inFlightPermits.release(delta);
+            } else if (delta < 0) {
+                inFlightPermits.reducePermits(-delta);
+            }
+            maxConcurrentRequests = concurrency;
+        }
+    }
+
+    /**
+     * 실패한 operation 중 재시도 가능한 것만 골라서 재시도를 예약하고, 나머지는 최종 실패로 처리 <br>
+     * bulk 응답의 items 는 요청한 operations 와 같은 순서로 반환됨
+     */
+    private void handleItemFailures(List<BulkOperation> operations, long bytes, List<BulkResponseItem> items, int attempt) {
+        List<BulkOperation> retryOperations = new ArrayList<>();
+        int count = Math.min(operations.size(), items.size());
+        for (int i = 0; i < count; i++) {
+            BulkResponseItem item = items.get(i);
+            if (item.error() == null) {
+                continue;
+            }
+            if (isRetryable(item) && backoffPolicy.canRetry(attempt)) {
+                retryOperations.add(operations.get(i));
+            } else if (isRetryable(item) && spool != null) {
+                spool(List.of(operations.get(i)));
+            } else {
+                failedOperationCount.incrementAndGet();
+                listener.onItemFailure(operations.get(i), item);
+            }
+        }
+        if (retryOperations.isEmpty()) {
+            return;
+        }
+
+        retriedOperationCount.addAndGet(retryOperations.size());
+        pendingBatches.incrementAndGet();
+        long retryBytes = bytes * retryOperations.size() / operations.size();
+        // scheduler 는 대기 시간만 세고, permit 을 기다릴 수 있는 전송은 retry 스레드에서 실행
+        scheduler.schedule(() -> retryExecutor.execute(() -> dispatch(retryOperations, retryBytes, attempt + 1)),
+                backoffPolicy.delayMillis(attempt), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 429 (es_rejected_execution_exception) : 쓰기 thread pool 의 queue 가 가득 참 <br>
+     * 503 (unavailable_shards_exception 등) : primary shard 가 일시적으로 할당되지 않음
+     */
+    private static boolean isRetryable(BulkResponseItem item) {
+        return item.status() == 429 || item.status() == 503;
+    }
+
+    /**
+     * operation 들을 spool 에 기록 - spool 크기 한도를 넘어서 기록하지 못한 operation 은 최종 실패로 셈
+     */
+    private void spool(List<BulkOperation> operations) {
+        int appended = spool.append(operations);
+        spooledOperationCount.addAndGet(appended);
+        if (appended < operations.size()) {
+            failedOperationCount.addAndGet(operations.size() - appended);
+            System.out.printf("Bulk spool is full, %d operations are dropped%n", operations.size() - appended);
+        }
+    }
+
+    /**
+     * bulk 요청이 실패했는데 spool 이 없어서 보낼 곳이 없는 operation 들을 최종 실패로 셈
+     */
+    private void drop(List<BulkOperation> operations, Throwable failure) {
+        failedOperationCount.addAndGet(operations.size());
+        System.out.printf("Bulk request failed, %d operations are dropped: %s%n", operations.size(), failure.getMessage());
+    }
+
+    private void batchDone() {
+        if (pendingBatches.decrementAndGet() == 0) {
+            synchronized (pendingLock) {
+                pendingLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * operation 이 bulk 요청 본문에서 차지할 NDJSON 크기 계산 (transport 가 직렬화하는 방식과 동일하게 줄 단위로 계산)
+     * @param operation bulk operation
+     * @return bytes
+     */
+    long estimateSize(BulkOperation operation) {
+        // 직렬화해둔 document(RawValue)는 복사만 하므로 header 줄만 실제로 직렬화함
+        CountingOutputStream out = new CountingOutputStream();
+        writeNdJson(operation, out);
+        return out.count;
+    }
+
+    /**
+     * index/create operation 의 document 를 JSON 으로 직렬화한 RawValue 로 바꿈 <br>
+     * JacksonJsonpMapper 는 RawValue 를 그대로 쓰므로 bulk 요청을 보낼 때 document 를 다시 직렬화하지 않음
+     */
+    private BulkOperation withSerializedDocument(BulkOperation operation) {
+        if (!(mapper instanceof JacksonJsonpMapper)) {
+            return operation;
+        }
+        if (operation.isIndex() && !(operation.index().document() instanceof RawValue)) {
+            var index = operation.index();
+            RawValue document = serialize(index.document());
+            return BulkOperation.of(b -> b.index(i -> i
+                    .index(index.index()).id(index.id()).routing(index.routing())
+                    .ifSeqNo(index.ifSeqNo()).ifPrimaryTerm(index.ifPrimaryTerm())
+                    .version(index.version()).versionType(index.versionType())
+                    .pipeline(index.pipeline()).requireAlias(index.requireAlias())
+                    .document(document)));
+        }
+        if (operation.isCreate() && !(operation.create().document() instanceof RawValue)) {
+            var create = operation.create();
+            RawValue document = serialize(create.document());
+            return BulkOperation.of(b -> b.create(c -> c
+                    .index(create.index()).id(create.id()).routing(create.routing())
+                    .ifSeqNo(create.ifSeqNo()).ifPrimaryTerm(create.ifPrimaryTerm())
+                    .version(create.version()).versionType(create.versionType())
+                    .pipeline(create.pipeline()).requireAlias(create.requireAlias())
+                    .document(document)));
+        }
+        return operation;
+    }
+
+    private RawValue serialize(Object document) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator generator = mapper.jsonProvider().createGenerator(out);
+        mapper.serialize(document, generator);
+        generator.close();
+        return new RawValue(out.toString(StandardCharsets.UTF_8));
+    }
+
+    private void writeNdJson(NdJsonpSerializable value, CountingOutputStream out) {
+        Iterator<?> values = value._serializables();
+        while (values.hasNext()) {
+            Object item = values.next();
+            if (item instanceof NdJsonpSerializable && item != value) {
+                writeNdJson((NdJsonpSerializable) item, out);
+            } else {
+                JsonGenerator generator = mapper.jsonProvider().createGenerator(out);
+                mapper.serialize(item, generator);
+                generator.close();
+                out.count++; // 줄바꿈
+            }
+        }
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getOperationCount() {
+        return operationCount.get();
+    }
+
+    public long getFailedRequestCount() {
+        return failedRequestCount.get();
+    }
+
+    /**
+     * 재시도한 operation 수 (같은 operation 을 여러 번 재시도하면 횟수만큼 셈)
+     */
+    public long getRetriedOperationCount() {
+        return retriedOperationCount.get();
+    }
+
+    /**
+     * 최종 실패한 operation 수 (spool 없이 bulk 요청 자체가 실패해서 버려진 operation 포함)
+     */
+    public long getFailedOperationCount() {
+        return failedOperationCount.get();
+    }
+
+    /**
+     * 보내지 못해서 spool 에 기록한 operation 수
+     */
+    public long getSpooledOperationCount() {
+        return spooledOperationCount.get();
+    }
+
+    /**
+     * 처리 중인 bulk 요청 수
+     */
+    public int getInFlightRequests() {
+        synchronized (inFlightPermits) {
+            return maxConcurrentRequests - inFlightPermits.availablePermits();
+        }
+    }
+
+    /**
+     * 현재 적용 중인 bulk 요청 하나의 최대 operation 수
+     */
+    public int getMaxOperations() {
+        return maxOperations;
+    }
+
+    /**
+     * 현재 적용 중인 bulk 요청 하나의 최대 크기 (bytes)
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 현재 적용 중인 최대 동시 요청 수
+     */
+    public int getMaxConcurrentRequests() {
+        synchronized (inFlightPermits) {
+            return maxConcurrentRequests;
+        }
+    }
+
+    /**
+     * 남은 operation 을 전송하고, 처리 중인 bulk 요청과 예약된 재시도가 모두 끝날 때까지 대기
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        flush();
+        synchronized (pendingLock) {
+            while (pendingBatches.get() > 0) {
+                try {
+                    pendingLock.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        scheduler.shutdown();
+        retryExecutor.shutdown();
+    }
+
+    // 전송할 operation 목록과 NDJSON 크기
+    private record Batch(List<BulkOperation> operations, long bytes) {
+    }
+
+    /**
+     * 동시 요청 수를 줄일 수 있도록 reducePermits() 를 공개한 Semaphore
+     */
+    private static class AdjustableSemaphore extends Semaphore {
+
+        private static final long serialVersionUID = 1L;
+
+        AdjustableSemaphore(int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count = 0;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    public static class Builder {
+        private final OpenSearchAsyncClient asyncClient;
+        private int maxOperations = 1000;
+        private long maxBytes = 5 * 1024 * 1024;
+        private long flushIntervalMillis = 1000;
+        private int maxConcurrentRequests = 1;
+        private Refresh refresh = null;
+        private BackoffPolicy backoffPolicy = BackoffPolicy.defaultPolicy();
+        private AdaptiveBulkController adaptiveController;
+        private ShardAwareRouter router;
+        private BulkSpool spool;
+        private DocumentIdGenerator idGenerator;
+        private Listener listener = new Listener() {
+        };
+
+        private Builder(OpenSearchAsyncClient asyncClient) {
+            this.asyncClient = asyncClient;
+        }
+
+        /**
+         * bulk 요청 하나에 담을 최대 operation 수 (기본 1000)
+         */
+        public Builder maxOperations(int maxOperations) {
+            this.maxOperations = maxOperations;
+            return this;
+        }
+
+        /**
+         * bulk 요청 하나의 최대 NDJSON 크기, 0 이하면 크기 조건을 사용하지 않음 (기본 5MB)
+         */
+        public Builder maxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * 주기적으로 flush 하는 간격, 0 이하면 주기적인 flush 를 하지 않음 (기본 1000ms)
+         */
+        public Builder flushIntervalMillis(long flushIntervalMillis) {
+            this.flushIntervalMillis = flushIntervalMillis;
+            return this;
+        }
+
+        /**
+         * 동시에 처리 중일 수 있는 최대 bulk 요청 수 (기본 1)
+         */
+        public Builder maxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        /**
+         * bulk 요청의 refresh 옵션 (기본 null = 인덱스의 refresh_interval 에 맡김)
+         */
+        public Builder refresh(Refresh refresh) {
+            this.refresh = refresh;
+            return this;
+        }
+
+        /**
+         * 429, 503 으로 실패한 operation 의 재시도 정책 (기본 100ms ~ 10초, 최대 5회)
+         */
+        public Builder backoffPolicy(BackoffPolicy backoffPolicy) {
+            this.backoffPolicy = backoffPolicy;
+            return this;
+        }
+
+        /**
+         * batch 크기와 동시 요청 수를 측정값에 따라 조정할 컨트롤러 - 지정하면 maxOperations, maxBytes, maxConcurrentRequests 는 무시됨
+         */
+        public Builder adaptive(AdaptiveBulkController adaptiveController) {
+            this.adaptiveController = adaptiveController;
+            return this;
+        }
+
+        /**
+         * batch 를 primary shard 를 가진 노드별로 나눠서 보낼 라우터 (지정하지 않으면 커넥션 풀의 노드로 보냄)
+         */
+        public Builder shardRouting(ShardAwareRouter router) {
+            this.router = router;
+            return this;
+        }
+
+        /**
+         * 보내지 못한 operation 을 기록할 spool (다시 보내려면 BulkSpool.startReplay() 를 호출해야 함)
+         */
+        public Builder spool(BulkSpool spool) {
+            this.spool = spool;
+            return this;
+        }
+
+        /**
+         * 아이디가 없는 index/create operation 에 아이디를 붙일 생성기 <br>
+         * 지정하지 않으면 spool 이 있을 때는 spool 의 생성기를 쓰고, 없을 때는 서버에서 아이디 생성
+         */
+        public Builder idGenerator(DocumentIdGenerator idGenerator) {
+            this.idGenerator = idGenerator;
+            return this;
+        }
+
+        public Builder listener(Listener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public BulkIngester build() {
+            if (maxOperations <= 0) {
+                throw new IllegalArgumentException("maxOperations must be greater than 0");
+            }
+            if (maxConcurrentRequests <= 0) {
+                throw new IllegalArgumentException("maxConcurrentRequests must be greater than 0");
+            }
+            return new BulkIngester(this);
+        }
+    }
+}
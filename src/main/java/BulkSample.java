@@ -1,17 +1,23 @@
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.opensearch.client.opensearch.OpenSearchAsyncClient;
 import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch._types.OpenSearchException;
 import org.opensearch.client.opensearch._types.Refresh;
 import org.opensearch.client.opensearch.core.BulkRequest;
 import org.opensearch.client.opensearch.core.BulkResponse;
 import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
 import org.opensearch.client.opensearch.core.bulk.IndexOperation;
 import org.opensearch.client.opensearch.core.bulk.UpdateOperation;
 import org.opensearch.client.opensearch.generic.OpenSearchClientException;
+import org.opensearch.client.opensearch.generic.OpenSearchGenericClient;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class BulkSample {
 
@@ -88,4 +94,257 @@ public class BulkSample {
             e.printStackTrace();
         }
     }
+
+    /**
+     * UpsertCoalescer 를 이용해서 같은 도큐먼트에 대한 잦은 부분 갱신을 합쳐서 보내는 샘플 <br>
+     * 4개의 objHash 도큐먼트를 2000번 갱신하지만, 1초 window 마다 도큐먼트당 update operation 하나만 전송됨
+     * @param asyncClient OpenSearchAsyncClient
+     * @param indexName 인덱스 이름
+     */
+    public void bulkUpsertCoalesced(OpenSearchAsyncClient asyncClient, String indexName) {
+
+        System.out.println("= BulkSample.bulkUpsertCoalesced =");
+
+        ObjectMapper mapper = new ObjectMapper();
+
+        try (BulkIngester ingester = BulkIngester.builder(asyncClient).build()) {
+            UpsertCoalescer coalescer = UpsertCoalescer.builder(ingester)
+                    .windowMillis(1000)
+                    .retryOnConflict(3)
+                    .build();
+            try (coalescer) {
+
+                for (int i=0; i<2000; i++) {
+                    int objHash = 1113030459+(i%4);
+                    ObjectNode doc = mapper.createObjectNode();
+                    doc.put("counter", "15U");
+                    doc.put("objHash", objHash);
+                    doc.put("ctime", System.currentTimeMillis());
+                    doc.put("value", i); // 같은 window 안에서는 마지막 값만 전송됨
+                    coalescer.upsert(indexName, objHash + "-15U", doc);
+                }
+            }
+            System.out.println("Coalesced upserts: " + coalescer.getReceivedCount() + " -> " + coalescer.getEmittedCount());
+        }
+    }
+
+    /**
+     * BulkIngester 를 이용해서 도큐먼트를 하나씩 추가하는 샘플 <br>
+     * 건수(500건), 크기(1MB), 시간(1초) 중 하나라도 도달하면 bulk 요청을 보내고, 최대 2개의 bulk 요청을 동시에 처리함 <br>
+     * 429 로 거절된 도큐먼트만 backoff 후 다시 보내고, 최종 실패한 도큐먼트는 onItemFailure 로 전달받음
+     * @param asyncClient bulk 요청을 비동기로 보낼 client
+     * @param indexName 인덱스 이름
+     */
+    public void bulkIngest(OpenSearchAsyncClient asyncClient, String indexName) {
+
+        System.out.println("= BulkSample.bulkIngest =");
+
+        AtomicLong failedItems = new AtomicLong();
+        ObjectMapper mapper = new ObjectMapper();
+
+        BulkIngester ingester = BulkIngester.builder(asyncClient)
+                .maxOperations(500)
+                .maxBytes(1024 * 1024)
+                .flushIntervalMillis(1000)
+                .maxConcurrentRequests(2)
+                .backoffPolicy(new BackoffPolicy(100, 5000, 3))
+                .idGenerator(DocumentIdGenerator.getDefault()) // 재시도/재전송해도 같은 아이디로 입력되도록 클라이언트에서 아이디 생성
+                .listener(new BulkIngester.Listener() {
+                    @Override
+                    public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+                        System.out.printf("Bulk #%d: %d items, took %dms%n", executionId, response.items().size(), response.took());
+                    }
+
+                    @Override
+                    public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+                        System.out.printf("Bulk #%d failed: %s%n", executionId, failure.getMessage());
+                    }
+
+                    @Override
+                    public void onItemFailure(BulkOperation operation, BulkResponseItem item) {
+                        failedItems.incrementAndGet();
+                        System.out.printf("Document %s failed: [%d] %s%n", item.id(), item.status(), item.error().reason());
+                    }
+                })
+                .build();
+
+        // 블록이 끝나면 남은 도큐먼트 전송 후 모든 응답을 기다림
+        try (ingester) {
+
+            for (int i=0; i<2000; i++) {
+                ObjectNode doc = mapper.createObjectNode();
+                doc.put("counter", "15U");
+                doc.put("ctime", System.currentTimeMillis());
+                doc.put("objHash", 1113030459+(i%4));
+                doc.put("value", i);
+                ingester.add(BulkOperation.of(b -> b.index(io -> io.index(indexName).document(doc))));
+            }
+        }
+        System.out.println("Bulk Ingest requests: " + ingester.getRequestCount()
+                + ", operations: " + ingester.getOperationCount()
+                + ", retried: " + ingester.getRetriedOperationCount()
+                + ", failed items: " + failedItems.get());
+    }
+
+    /**
+     * 도큐먼트마다 primary shard 를 계산해서 shard 를 가진 노드로 바로 bulk 요청을 보내는 예제 <br>
+     * 아이디가 있어야 shard 를 계산할 수 있으므로 아이디를 지정함
+     * @param connectionManager 노드별 client 를 만들 OpenSearchConnectionManager
+     * @param indexName 인덱스 이름
+     */
+    public void bulkIngestShardAware(OpenSearchConnectionManager connectionManager, String indexName) {
+
+        System.out.println("= BulkSample.bulkIngestShardAware =");
+
+        ObjectMapper mapper = new ObjectMapper();
+
+        try (ShardAwareRouter router = ShardAwareRouter.builder(connectionManager)
+                .indices(indexName)
+                .refreshIntervalMillis(10_000)
+                .build()) {
+            BulkIngester ingester = BulkIngester.builder(connectionManager.getAsyncClient())
+                    .maxOperations(500)
+                    .maxConcurrentRequests(4)
+                    .shardRouting(router)
+                    .build();
+
+            try (ingester) {
+                for (int i=0; i<2000; i++) {
+                    ObjectNode doc = mapper.createObjectNode();
+                    doc.put("counter", "15U");
+                    doc.put("ctime", System.currentTimeMillis());
+                    doc.put("objHash", 1113030459+(i%4));
+                    doc.put("value", i);
+                    String id = "shard" + i;
+                    ingester.add(BulkOperation.of(b -> b.index(io -> io.index(indexName).id(id).document(doc))));
+                }
+            }
+            System.out.println("Shard-aware Bulk requests: " + ingester.getRequestCount()
+                    + ", routed operations: " + router.getRoutedOperationCount()
+                    + ", fallback operations: " + router.getFallbackOperationCount());
+        } catch (IOException e) {
+            System.out.println("Shard-aware Bulk failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 클러스터에 보내지 못한 operation 을 디스크 spool 에 기록하고, 클러스터가 복구되면 replayer 가 순서대로 다시 보내는 샘플 <br>
+     * bulk 요청이 실패해도 도큐먼트를 잃지 않고, spool 에 남은 레코드는 다음 실행에서도 이어서 보냄
+     * @param asyncClient OpenSearchAsyncClient
+     * @param genericClient spool 을 다시 보낼 OpenSearchGenericClient
+     * @param indexName 인덱스 이름
+     * @param spoolDirectory spool 파일을 저장할 디렉토리
+     */
+    public void bulkIngestWithSpool(OpenSearchAsyncClient asyncClient, OpenSearchGenericClient genericClient, String indexName, Path spoolDirectory) {
+
+        System.out.println("= BulkSample.bulkIngestWithSpool =");
+
+        ObjectMapper mapper = new ObjectMapper();
+
+        try (BulkSpool spool = BulkSpool.builder(spoolDirectory)
+                .segmentBytes(16 * 1024 * 1024)
+                .maxSpoolBytes(512L * 1024 * 1024)
+                .replayOperationsPerSecond(5000)
+                .build()) {
+            spool.startReplay(genericClient);
+
+            BulkIngester ingester = BulkIngester.builder(asyncClient)
+                    .maxOperations(500)
+                    .spool(spool)
+                    .build();
+            try (ingester) {
+                for (int i=0; i<2000; i++) {
+                    ObjectNode doc = mapper.createObjectNode();
+                    doc.put("counter", "15U");
+                    doc.put("ctime", System.currentTimeMillis());
+                    doc.put("value", i);
+                    ingester.add(BulkOperation.of(b -> b.index(io -> io.index(indexName).document(doc))));
+                }
+            }
+            System.out.println("Bulk requests: " + ingester.getRequestCount() + ", spooled operations: " + ingester.getSpooledOperationCount());
+
+            // spool 에 기록된 것이 있으면 다시 보낼 때까지 잠시 대기 (남은 것은 다음 실행에서 보냄)
+            for (int i=0; i<50 && spool.isBacklogged(); i++) {
+                Thread.sleep(100);
+            }
+            System.out.println("Replayed operations: " + spool.getReplayedCount() + ", backlogged: " + spool.isBacklogged());
+        } catch (IOException e) {
+            System.out.println("Bulk spool failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * ObjectNode 없이 NDJSON 본문을 직접 작성해서 bulk 요청하는 샘플 <br>
+     * 도큐먼트 필드를 스트리밍 generator 로 재사용 버퍼에 바로 쓰므로 도큐먼트마다 트리를 만들거나 다시 직렬화하지 않음
+     * @param genericClient NDJSON 본문을 그대로 전송할 client
+     * @param indexName 인덱스 이름
+     */
+    public void bulkInsertRaw(OpenSearchGenericClient genericClient, String indexName) {
+
+        System.out.println("= BulkSample.bulkInsertRaw =");
+
+        NdJsonBulkBuffer buffer = new NdJsonBulkBuffer(64 * 1024);
+
+        try {
+            for (int i=0; i<20; i++) {
+                JsonGenerator doc = buffer.startIndex(indexName, "raw" + i);
+                doc.writeStringField("counter", "15U");
+                doc.writeNumberField("ctime", System.currentTimeMillis());
+                doc.writeNumberField("objHash", 1113030459+(i%4));
+                doc.writeNumberField("value", i);
+                buffer.endDocument();
+            }
+
+            System.out.println("Bulk body size: " + buffer.sizeInBytes() + " bytes");
+            BulkResponse bulkResponse = buffer.send(genericClient, null);
+
+            System.out.println("Bulk Insert response items: " + bulkResponse.items().size() + ", errors: " + bulkResponse.errors());
+        } catch (OpenSearchClientException | IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * NDJSON, CSV 덤프 파일을 메모리 매핑해서 병렬로 파싱하고 BulkIngester 로 적재하는 샘플 <br>
+     * 파일 확장자가 .csv 이면 CSV(첫 줄은 필드 이름), 아니면 NDJSON 으로 읽음 <br>
+     * bulk 요청 크기와 동시 요청 수는 AdaptiveBulkController 가 조정함
+     * @param asyncClient bulk 요청을 비동기로 보낼 client
+     * @param indexName 인덱스 이름
+     * @param file 입력 파일
+     */
+    public void bulkLoadFile(OpenSearchAsyncClient asyncClient, String indexName, Path file) {
+
+        System.out.println("= BulkSample.bulkLoadFile =");
+
+        // batch 크기와 동시 요청 수는 지연 시간과 429 거절 비율에 따라 자동으로 조정
+        AdaptiveBulkController controller = AdaptiveBulkController.builder()
+                .operations(200, 10000, 2000)
+                .concurrentRequests(1, 8, 2)
+                .targetLatencyMillis(3000)
+                .build();
+
+        BulkFileLoader.Format format = file.toString().endsWith(".csv") ? BulkFileLoader.Format.CSV : BulkFileLoader.Format.NDJSON;
+        BulkFileLoader loader = BulkFileLoader.builder(indexName, format)
+                .chunkSize(4 * 1024 * 1024)
+                .progressListener(progress -> System.out.println("Loading " + file.getFileName() + ": " + progress + " [" + controller.metrics() + "]"))
+                .build();
+
+        BulkIngester ingester = BulkIngester.builder(asyncClient)
+                .adaptive(controller)
+                .build();
+
+        // 블록이 끝나면 남은 도큐먼트 전송 후 모든 응답을 기다림
+        BulkFileLoader.Progress progress;
+        try (ingester) {
+            progress = loader.load(file, ingester);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        System.out.println("Bulk Load documents: " + progress.documents()
+                + ", requests: " + ingester.getRequestCount()
+                + ", failed documents: " + ingester.getFailedOperationCount());
+    }
 }
@@ -0,0 +1,663 @@
+import jakarta.json.stream.JsonGenerator;
+import org.opensearch.client.json.JsonpMapper;
+import org.opensearch.client.json.NdJsonpSerializable;
+import org.opensearch.client.json.jackson.JacksonJsonpMapper;
+import org.opensearch.client.opensearch.core.BulkResponse;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
+import org.opensearch.client.opensearch.generic.Bodies;
+import org.opensearch.client.opensearch.generic.Body;
+import org.opensearch.client.opensearch.generic.OpenSearchClientException;
+import org.opensearch.client.opensearch.generic.OpenSearchGenericClient;
+import org.opensearch.client.opensearch.generic.Requests;
+import org.opensearch.client.opensearch.generic.Response;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 클러스터에 연결할 수 없는 동안 bulk operation 을 디스크에 보관했다가 순서대로 다시 보내는 spool (write-ahead log) <br><br>
+ * operation 은 NDJSON 으로 직렬화해서 segment 파일(spool-번호.log)에 이어서 기록합니다. segment 파일은 segmentBytes 크기로 만들어서
+ * memory-mapped 로 쓰고, 가득 차면 다음 segment 를 만듭니다. <br>
+ * 레코드 형식은 [길이 4 bytes][CRC32 4 bytes][NDJSON] 이고, 내용을 먼저 쓰고 길이를 마지막에 쓰므로
+ * 프로세스가 중간에 죽어도 길이가 0 인 곳(또는 CRC 가 맞지 않는 곳)까지만 유효한 레코드로 봅니다. <br><br>
+ * startReplay() 로 시작한 replayer 스레드는 읽은 위치(checkpoint 파일)부터 레코드를 읽어서 _bulk API 로 다시 보내고,
+ * 요청이 성공해야 checkpoint 를 앞으로 옮깁니다. 다 보낸 segment 파일은 삭제합니다. <br>
+ * 같은 레코드가 두 번 전송될 수 있으므로(전송 후 checkpoint 저장 전에 종료된 경우 등) 아이디가 없는 index/create operation 에는
+ * 기록할 때 아이디를 붙여서 다시 보내도 같은 도큐먼트가 되도록 합니다. create 의 409(이미 있음), delete 의 404 는 성공으로 처리합니다. <br>
+ * 요청 자체가 400 등으로 거부되는 batch(잘못된 레코드 등)는 다시 보내도 같은 결과이므로, maxReplayAttempts 번 거부되면
+ * dead-세그먼트번호-위치.ndjson 파일로 옮기고 다음 batch 로 넘어갑니다. (연결 실패, 429, 5xx 는 계속 재시도) <br><br>
+ * BulkIngester.Builder.spool() 로 지정하면 bulk 요청이 실패하거나 재시도를 다 써도 429/503 인 operation 을 spool 에 기록하고,
+ * spool 에 보낼 레코드가 남아있는 동안에는 새 batch 도 클러스터로 보내지 않고 spool 에 기록합니다. (circuit breaker open)
+ *
+ * <pre>
+ * try (BulkSpool spool = BulkSpool.builder(Path.of("spool")).build()) {
+ *     spool.startReplay(genericClient);
+ *     BulkIngester ingester = BulkIngester.builder(asyncClient).spool(spool).build();
+ *     ...
+ * }
+ * </pre>
+ */
+public class BulkSpool implements AutoCloseable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path directory;
+    private final JsonpMapper mapper;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final boolean syncEveryAppend;
+    private final int replayBatchOperations;
+    private final int replayOperationsPerSecond;
+    private final BackoffPolicy replayBackoffPolicy;
+    private final int maxReplayAttempts;
+    private final DocumentIdGenerator idGenerator;
+
+    private final Object lock = new Object();
+    // segment 번호 -> 파일
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private long writeSegmentId;
+    private MappedByteBuffer writeBuffer;
+    private long readSegmentId;
+    private int readPosition;
+    private MappedByteBuffer readBuffer;
+    private long readBufferSegmentId = -1;
+    private int readBufferEnd;
+
+    private Thread replayer;
+    private volatile boolean closed = false;
+
+    private final AtomicLong appendedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong replayedCount = new AtomicLong();
+    private final AtomicLong replayFailedCount = new AtomicLong();
+    private final AtomicLong deadLetterCount = new AtomicLong();
+
+    private BulkSpool(Builder builder) throws IOException {
+        this.directory = builder.directory;
+        this.mapper = builder.mapper;
+        this.segmentBytes = builder.segmentBytes;
+        this.maxSegments = (int) Math.max(1, builder.maxSpoolBytes / builder.segmentBytes);
+        this.syncEveryAppend = builder.syncEveryAppend;
+        this.replayBatchOperations = builder.replayBatchOperations;
+        this.replayOperationsPerSecond = builder.replayOperationsPerSecond;
+        this.replayBackoffPolicy = builder.replayBackoffPolicy;
+        this.maxReplayAttempts = builder.maxReplayAttempts;
+        this.idGenerator = builder.idGenerator;
+        recover();
+    }
+
+    public static Builder builder(Path directory) {
+        return new Builder(directory);
+    }
+
+    /**
+     * 아이디가 없는 operation 에 붙일 아이디 생성기 - BulkIngester 가 처음 보내기 전에 같은 생성기로 아이디를 붙임
+     */
+    DocumentIdGenerator idGenerator() {
+        return idGenerator;
+    }
+
+    /**
+     * 기존 segment 와 checkpoint 를 읽어서 쓰기/읽기 위치 복구
+     */
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith("spool-") && name.endsWith(".log")) {
+                    segments.put(Long.parseLong(name.substring(6, name.length() - 4)), file);
+                }
+            });
+        }
+
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(checkpoint)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(checkpoint));
+            readSegmentId = buffer.getLong();
+            readPosition = buffer.getInt();
+        }
+        // checkpoint 이전의 segment 는 이미 다 보낸 것
+        while (!segments.isEmpty() && segments.firstKey() < readSegmentId) {
+            Files.deleteIfExists(segments.pollFirstEntry().getValue());
+        }
+
+        if (segments.isEmpty()) {
+            openWriteSegment(Math.max(readSegmentId, 0));
+            readSegmentId = writeSegmentId;
+            readPosition = 0;
+        } else {
+            writeSegmentId = segments.lastKey();
+            writeBuffer = map(segments.get(writeSegmentId), FileChannel.MapMode.READ_WRITE);
+            writeBuffer.position(scanEnd(writeBuffer, writeSegmentId == readSegmentId ? readPosition : 0));
+            if (readSegmentId < segments.firstKey()) {
+                readSegmentId = segments.firstKey();
+                readPosition = 0;
+            }
+        }
+    }
+
+    // position 부터 유효한 레코드를 따라가서 마지막 레코드의 끝 위치 반환
+    private static int scanEnd(ByteBuffer buffer, int position) {
+        while (position + HEADER_BYTES <= buffer.limit()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_BYTES + length > buffer.limit()) {
+                break;
+            }
+            if (crc(buffer, position + HEADER_BYTES, length) != buffer.getInt(position + 4)) {
+                break;
+            }
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private void openWriteSegment(long segmentId) throws IOException {
+        Path file = directory.resolve(String.format("spool-%020d.log", segmentId));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            writeBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        segments.put(segmentId, file);
+        writeSegmentId = segmentId;
+    }
+
+    private static MappedByteBuffer map(Path file, FileChannel.MapMode mode) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(mode, 0, channel.size());
+        }
+    }
+
+    /**
+     * operation 들을 spool 에 기록
+     * @param operations bulk operation 목록
+     * @return 기록한 operation 수 (spool 크기 한도를 넘으면 나머지는 기록하지 않음)
+     */
+    public int append(List<BulkOperation> operations) {
+        int appended = 0;
+        for (BulkOperation operation : operations) {
+            if (!append(operation)) {
+                rejectedCount.addAndGet(operations.size() - appended);
+                break;
+            }
+            appended++;
+        }
+        return appended;
+    }
+
+    /**
+     * operation 을 spool 에 기록
+     * @param operation bulk operation
+     * @return spool 크기 한도를 넘어서 기록하지 못했으면 false
+     */
+    public boolean append(BulkOperation operation) {
+        byte[] record = serialize(idGenerator.withId(operation));
+        if (HEADER_BYTES + record.length > segmentBytes) {
+            throw new IllegalArgumentException("operation is larger than the segment: " + record.length + " bytes");
+        }
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("BulkSpool is closed");
+            }
+            try {
+                if (writeBuffer.remaining() < HEADER_BYTES + record.length) {
+                    if (segments.size() >= maxSegments) {
+                        return false;
+                    }
+                    writeBuffer.force();
+                    openWriteSegment(writeSegmentId + 1);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            // 내용과 CRC 를 먼저 쓰고 길이를 마지막에 씀
+            int position = writeBuffer.position();
+            writeBuffer.position(position + HEADER_BYTES);
+            writeBuffer.put(record);
+            writeBuffer.putInt(position + 4, crc(writeBuffer, position + HEADER_BYTES, record.length));
+            if (writeBuffer.remaining() >= 4) {
+                writeBuffer.putInt(writeBuffer.position(), 0);
+            }
+            writeBuffer.putInt(position, record.length);
+            if (syncEveryAppend) {
+                writeBuffer.force();
+            }
+            appendedCount.incrementAndGet();
+            lock.notifyAll();
+            return true;
+        }
+    }
+
+    private byte[] serialize(BulkOperation operation) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        writeNdJson(operation, out);
+        return out.toByteArray();
+    }
+
+    private void writeNdJson(NdJsonpSerializable value, ByteArrayOutputStream out) {
+        Iterator<?> values = value._serializables();
+        while (values.hasNext()) {
+            Object item = values.next();
+            if (item instanceof NdJsonpSerializable && item != value) {
+                writeNdJson((NdJsonpSerializable) item, out);
+            } else {
+                JsonGenerator generator = mapper.jsonProvider().createGenerator(out);
+                mapper.serialize(item, generator);
+                generator.close();
+                out.write('\n');
+            }
+        }
+    }
+
+    private static int crc(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(offset).limit(offset + length));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * 보내지 않은 레코드가 남아있는지 여부 - true 인 동안 BulkIngester 는 새 batch 를 spool 에 기록함
+     */
+    public boolean isBacklogged() {
+        synchronized (lock) {
+            return readSegmentId < writeSegmentId || readPosition < writeBuffer.position();
+        }
+    }
+
+    /**
+     * 다시 보낼 레코드를 최대 maxOperations 개 읽음 (읽기 위치는 commit() 해야 옮겨짐)
+     */
+    private Batch readBatch(int maxOperations) throws IOException {
+        synchronized (lock) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            long segmentId = readSegmentId;
+            int position = readPosition;
+            int count = 0;
+            while (count < maxOperations) {
+                ByteBuffer buffer = readBuffer(segmentId);
+                int end = segmentId == writeSegmentId ? writeBuffer.position() : readBufferEnd;
+                if (position >= end) {
+                    if (segmentId >= writeSegmentId) {
+                        break;
+                    }
+                    // 다음 segment 로 이동
+                    Long next = segments.higherKey(segmentId);
+                    if (next == null) {
+                        break;
+                    }
+                    segmentId = next;
+                    position = 0;
+                    continue;
+                }
+                int length = buffer.getInt(position);
+                byte[] record = new byte[length];
+                buffer.get(position + HEADER_BYTES, record);
+                body.write(record);
+                position += HEADER_BYTES + length;
+                count++;
+            }
+            return new Batch(body.toByteArray(), count, segmentId, position);
+        }
+    }
+
+    private ByteBuffer readBuffer(long segmentId) throws IOException {
+        if (segmentId == writeSegmentId) {
+            return writeBuffer;
+        }
+        if (readBufferSegmentId != segmentId) {
+            readBuffer = map(segments.get(segmentId), FileChannel.MapMode.READ_ONLY);
+            readBufferSegmentId = segmentId;
+            // 다 쓴 segment 는 더 이상 바뀌지 않으므로 끝 위치를 한 번만 계산
+            readBufferEnd = scanEnd(readBuffer, 0);
+        }
+        return readBuffer;
+    }
+
+    /**
+     * 전송에 성공한 batch 까지 읽기 위치를 옮기고, checkpoint 를 저장하고, 다 보낸 segment 를 삭제
+     */
+    private void commit(Batch batch) throws IOException {
+        synchronized (lock) {
+            readSegmentId = batch.segmentId();
+            readPosition = batch.position();
+
+            ByteBuffer checkpoint = ByteBuffer.allocate(12).putLong(readSegmentId).putInt(readPosition).flip();
+            Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(checkpoint);
+                channel.force(true);
+            }
+            Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            while (segments.firstKey() < readSegmentId) {
+                Files.deleteIfExists(segments.pollFirstEntry().getValue());
+            }
+        }
+    }
+
+    /**
+     * spool 에 남은 레코드를 순서대로 다시 보내는 replayer 스레드 시작
+     * @param genericClient 전송에 사용할 client
+     */
+    public synchronized void startReplay(OpenSearchGenericClient genericClient) {
+        if (replayer != null) {
+            return;
+        }
+        replayer = new Thread(() -> replayLoop(genericClient), "bulk-spool-replayer");
+        replayer.setDaemon(true);
+        replayer.start();
+    }
+
+    private void replayLoop(OpenSearchGenericClient genericClient) {
+        int attempt = 0;
+        int rejectedAttempts = 0;
+        while (!closed) {
+            Batch batch = null;
+            try {
+                batch = readBatch(replayBatchOperations);
+                if (batch.count() == 0) {
+                    synchronized (lock) {
+                        lock.wait(1000);
+                    }
+                    continue;
+                }
+
+                long startMillis = System.currentTimeMillis();
+                if (replay(genericClient, batch)) {
+                    commit(batch);
+                    replayedCount.addAndGet(batch.count());
+                    attempt = 0;
+                    rejectedAttempts = 0;
+                    throttle(batch.count(), startMillis);
+                } else {
+                    Thread.sleep(replayBackoffPolicy.delayMillis(attempt));
+                    attempt = replayBackoffPolicy.canRetry(attempt) ? attempt + 1 : attempt;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Bulk spool replay failed: " + e.getMessage());
+                // 거부된 batch 는 다시 보내도 같은 결과이므로 뒤의 레코드를 막지 않도록 옮기고 다음 batch 로 넘어감
+                if (batch != null && isRejected(e) && ++rejectedAttempts >= maxReplayAttempts) {
+                    try {
+                        deadLetter(batch);
+                        attempt = 0;
+                        rejectedAttempts = 0;
+                        continue;
+                    } catch (IOException de) {
+                        System.out.println("Bulk spool dead letter failed: " + de.getMessage());
+                    }
+                }
+                try {
+                    Thread.sleep(replayBackoffPolicy.delayMillis(attempt));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                attempt = replayBackoffPolicy.canRetry(attempt) ? attempt + 1 : attempt;
+            }
+        }
+    }
+
+    // 다시 보내도 결과가 같은 응답인지 여부 - 408(timeout), 429 를 제외한 4xx
+    private static boolean isRejected(Exception e) {
+        if (!(e instanceof OpenSearchClientException clientException)) {
+            return false;
+        }
+        int status = clientException.status();
+        return status >= 400 && status < 500 && status != 408 && status != 429;
+    }
+
+    /**
+     * 계속 거부되는 batch 를 dead letter 파일로 옮기고 읽기 위치를 batch 뒤로 옮김
+     */
+    private void deadLetter(Batch batch) throws IOException {
+        Path file = directory.resolve(String.format("dead-%020d-%010d.ndjson", batch.segmentId(), batch.position()));
+        Files.write(file, batch.body());
+        commit(batch);
+        deadLetterCount.addAndGet(batch.count());
+        System.out.printf("Bulk spool moved %d operations rejected %d times to %s%n", batch.count(), maxReplayAttempts, file);
+    }
+
+    /**
+     * batch 를 _bulk API 로 전송
+     * @return 다음 batch 로 넘어가도 되면 true, 429/503 이 있거나 요청이 실패해서 같은 batch 를 다시 보내야 하면 false
+     */
+    private boolean replay(OpenSearchGenericClient genericClient, Batch batch) throws IOException {
+        Requests.JsonBodyBuilder request = Requests.builder()
+                .endpoint("/_bulk")
+                .method("POST")
+                .body(Body.from(new ByteArrayInputStream(batch.body()), "application/x-ndjson"));
+
+        BulkResponse response;
+        try (Response httpResponse = genericClient.execute(request.build())) {
+            // throwOnHttpErrors 가 아닌 client 도 거부된 요청을 같은 방법으로 처리하도록 예외로 바꿈
+            if (httpResponse.getStatus() >= 400) {
+                throw new OpenSearchClientException(httpResponse);
+            }
+            Body body = httpResponse.getBody().orElseThrow(() -> new IOException("bulk response has no body"));
+            response = Bodies.json(body, BulkResponse._DESERIALIZER, genericClient._transport().jsonpMapper());
+        }
+        if (!response.errors()) {
+            return true;
+        }
+
+        boolean retry = false;
+        List<BulkResponseItem> failed = new ArrayList<>();
+        for (BulkResponseItem item : response.items()) {
+            if (item.error() == null || item.status() == 409 || item.status() == 404) {
+                continue;
+            }
+            if (item.status() == 429 || item.status() == 503) {
+                retry = true;
+            } else {
+                failed.add(item);
+            }
+        }
+        if (retry) {
+            // 아이디가 있는 operation 만 기록되어 있으므로 batch 전체를 다시 보내도 결과가 같음
+            return false;
+        }
+        for (BulkResponseItem item : failed) {
+            replayFailedCount.incrementAndGet();
+            System.out.printf("Spooled document %s failed: [%d] %s%n", item.id(), item.status(), item.error().reason());
+        }
+        return true;
+    }
+
+    // 초당 replayOperationsPerSecond 를 넘지 않도록 대기
+    private void throttle(int count, long startMillis) throws InterruptedException {
+        if (replayOperationsPerSecond <= 0) {
+            return;
+        }
+        long minMillis = count * 1000L / replayOperationsPerSecond;
+        long elapsed = System.currentTimeMillis() - startMillis;
+        if (elapsed < minMillis) {
+            Thread.sleep(minMillis - elapsed);
+        }
+    }
+
+    /**
+     * 기록한 operation 수
+     */
+    public long getAppendedCount() {
+        return appendedCount.get();
+    }
+
+    /**
+     * spool 크기 한도를 넘어서 기록하지 못한 operation 수
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * 다시 보낸 operation 수
+     */
+    public long getReplayedCount() {
+        return replayedCount.get();
+    }
+
+    /**
+     * 다시 보냈지만 재시도할 수 없는 오류로 실패한 operation 수
+     */
+    public long getReplayFailedCount() {
+        return replayFailedCount.get();
+    }
+
+    /**
+     * 요청이 계속 거부되어 dead letter 파일로 옮긴 operation 수
+     */
+    public long getDeadLetterCount() {
+        return deadLetterCount.get();
+    }
+
+    /**
+     * replayer 를 멈추고 기록한 내용을 디스크에 반영 - 남은 레코드는 다음 실행에서 이어서 보냄
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            writeBuffer.force();
+            lock.notifyAll();
+        }
+        synchronized (this) {
+            thread = replayer;
+        }
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // 다시 보낼 NDJSON 과 전송 후 옮길 읽기 위치
+    private record Batch(byte[] body, int count, long segmentId, int position) {
+    }
+
+    public static class Builder {
+        private final Path directory;
+        private JsonpMapper mapper = new JacksonJsonpMapper();
+        private int segmentBytes = 64 * 1024 * 1024;
+        private long maxSpoolBytes = 1024L * 1024 * 1024;
+        private boolean syncEveryAppend = false;
+        private int replayBatchOperations = 1000;
+        private int replayOperationsPerSecond = 0;
+        private BackoffPolicy replayBackoffPolicy = new BackoffPolicy(1000, 30_000, Integer.MAX_VALUE);
+        private int maxReplayAttempts = 10;
+        private DocumentIdGenerator idGenerator = DocumentIdGenerator.getDefault();
+
+        private Builder(Path directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * operation 을 직렬화할 mapper (기본 JacksonJsonpMapper)
+         */
+        public Builder mapper(JsonpMapper mapper) {
+            this.mapper = mapper;
+            return this;
+        }
+
+        /**
+         * segment 파일 하나의 크기 (기본 64MB)
+         */
+        public Builder segmentBytes(int segmentBytes) {
+            this.segmentBytes = segmentBytes;
+            return this;
+        }
+
+        /**
+         * spool 전체 크기 한도 (기본 1GB) - 넘으면 append() 가 false 를 반환함
+         */
+        public Builder maxSpoolBytes(long maxSpoolBytes) {
+            this.maxSpoolBytes = maxSpoolBytes;
+            return this;
+        }
+
+        /**
+         * 기록할 때마다 디스크에 반영할지 여부 (기본 false - segment 가 바뀔 때와 close() 시에만 반영)
+         */
+        public Builder syncEveryAppend(boolean syncEveryAppend) {
+            this.syncEveryAppend = syncEveryAppend;
+            return this;
+        }
+
+        /**
+         * 다시 보낼 때 bulk 요청 하나의 operation 수 (기본 1000)
+         */
+        public Builder replayBatchOperations(int replayBatchOperations) {
+            this.replayBatchOperations = replayBatchOperations;
+            return this;
+        }
+
+        /**
+         * 다시 보낼 때의 초당 최대 operation 수 (기본 0 = 제한 없음)
+         */
+        public Builder replayOperationsPerSecond(int replayOperationsPerSecond) {
+            this.replayOperationsPerSecond = replayOperationsPerSecond;
+            return this;
+        }
+
+        /**
+         * 다시 보내기가 실패했을 때 대기 간격 (기본 1초부터 최대 30초, 무제한 재시도)
+         */
+        public Builder replayBackoffPolicy(BackoffPolicy replayBackoffPolicy) {
+            this.replayBackoffPolicy = replayBackoffPolicy;
+            return this;
+        }
+
+        /**
+         * 요청 자체가 4xx(408, 429 제외)로 거부된 batch 를 dead letter 파일로 옮기기 전까지 보내볼 횟수 (기본 10)
+         */
+        public Builder maxReplayAttempts(int maxReplayAttempts) {
+            this.maxReplayAttempts = maxReplayAttempts;
+            return this;
+        }
+
+        /**
+         * 아이디가 없는 index/create operation 에 붙일 아이디 생성기 (기본 DocumentIdGenerator.getDefault())
+         */
+        public Builder idGenerator(DocumentIdGenerator idGenerator) {
+            this.idGenerator = idGenerator;
+            return this;
+        }
+
+        public BulkSpool build() throws IOException {
+            if (segmentBytes <= HEADER_BYTES) {
+                throw new IllegalArgumentException("segmentBytes is too small: " + segmentBytes);
+            }
+            if (maxReplayAttempts <= 0) {
+                throw new IllegalArgumentException("maxReplayAttempts must be greater than 0");
+            }
+            return new BulkSpool(this);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ColumnarFileWriter 로 쓴 파일을 memory-mapped buffer 로 읽는 reader <br><br>
+ * block 마다 파일의 해당 구간만 map 해서 컬럼 segment 를 DocValueColumns 의 primitive 배열로 바로 풀기 때문에 JSON 파싱이 없습니다.
+ * readBlock() 에 넘긴 DocValueColumns 에 없는 컬럼은 segment 길이만 보고 건너뜁니다. <br>
+ * 파일 끝에 footer 가 있으면 footer 의 block 위치를 사용하고, footer 가 없으면(쓰는 중에 멈춘 파일) 처음부터 block header 를 따라가면서
+ * 끝까지 온전하게 쓴 block 만 읽습니다. <br>
+ * keyword 컬럼은 block 마다 사전이 있으므로, 여러 block 을 같은 DocValueColumns 로 읽으면 사전 번호는 DocValueColumns 의 사전 기준으로 바뀝니다.
+ *
+ * <pre>
+ * try (ColumnarFileReader reader = ColumnarFileReader.open(Path.of("export.col"))) {
+ *     DocValueColumns columns = reader.newColumns();
+ *     for (int block = 0; block &lt; reader.blockCount(); block++) {
+ *         reader.readBlock(block, columns);
+ *         long[] ctime = columns.longs("ctime");
+ *     }
+ * }
+ * </pre>
+ */
+public class ColumnarFileReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final Map<String, DocValueColumns.Type> types;
+    // block 의 시작 위치와 행 수
+    private final List<long[]> blocks;
+    private final long dataEnd;
+
+    private ColumnarFileReader(FileChannel channel, Map<String, DocValueColumns.Type> types, List<long[]> blocks, long dataEnd) {
+        this.channel = channel;
+        this.types = types;
+        this.blocks = blocks;
+        this.dataEnd = dataEnd;
+    }
+
+    /**
+     * 파일을 열고 header 와 block 위치를 읽음
+     * @param path ColumnarFileWriter 로 쓴 파일
+     */
+    public static ColumnarFileReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, 64 * 1024));
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (size < 12 || header.getInt() != ColumnarFileWriter.FILE_MAGIC) {
+                throw new IOException("not a columnar file: " + path);
+            }
+            int version = header.getInt();
+            if (version != ColumnarFileWriter.VERSION) {
+                throw new IOException("unsupported columnar file version: " + version);
+            }
+            Map<String, DocValueColumns.Type> types = new LinkedHashMap<>();
+            int columnCount = header.getInt();
+            for (int i = 0; i < columnCount; i++) {
+                DocValueColumns.Type type = DocValueColumns.Type.values()[header.get()];
+                byte[] name = new byte[header.getShort()];
+                header.get(name);
+                types.put(new String(name, StandardCharsets.UTF_8), type);
+            }
+            long dataStart = header.position();
+
+            List<long[]> blocks = readFooter(channel, size);
+            long dataEnd;
+            if (blocks != null) {
+                dataEnd = footerOffset(channel, size);
+            } else {
+                blocks = new ArrayList<>();
+                dataEnd = scanBlocks(channel, dataStart, size, blocks);
+            }
+            return new ColumnarFileReader(channel, types, blocks, dataEnd);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 컬럼 이름과 타입 (파일에 쓴 순서)
+     */
+    public Map<String, DocValueColumns.Type> types() {
+        return types;
+    }
+
+    /**
+     * block 수
+     */
+    public int blockCount() {
+        return blocks.size();
+    }
+
+    /**
+     * block 의 행 수
+     */
+    public int blockRows(int block) {
+        return (int) blocks.get(block)[1];
+    }
+
+    /**
+     * 전체 행 수
+     */
+    public long rowCount() {
+        long rows = 0;
+        for (long[] block : blocks) {
+            rows += block[1];
+        }
+        return rows;
+    }
+
+    /**
+     * 마지막 온전한 block 이 끝나는 위치 (footer 가 있으면 footer 의 시작 위치)
+     */
+    public long dataEnd() {
+        return dataEnd;
+    }
+
+    /**
+     * block 의 시작 위치와 행 수 목록
+     */
+    List<long[]> blocks() {
+        return blocks;
+    }
+
+    /**
+     * 파일의 모든 컬럼을 읽을 DocValueColumns (가장 큰 block 의 행 수만큼 할당)
+     */
+    public DocValueColumns newColumns() {
+        DocValueColumns.Builder builder = DocValueColumns.builder();
+        types.forEach((name, type) -> {
+            switch (type) {
+                case LONG -> builder.integer(name);
+                case DATE -> builder.date(name);
+                case DOUBLE -> builder.decimal(name);
+                case KEYWORD -> builder.keyword(name);
+            }
+        });
+        int maxRows = 1;
+        for (long[] block : blocks) {
+            maxRows = Math.max(maxRows, (int) block[1]);
+        }
+        return builder.initialCapacity(maxRows).build();
+    }
+
+    /**
+     * block 하나를 columns 에 읽음 - columns 의 기존 행은 지움
+     * @param block block 번호
+     * @param columns 값을 받을 버퍼 (파일에 있는 컬럼 중 이름과 타입이 같은 컬럼만 채움)
+     */
+    public void readBlock(int block, DocValueColumns columns) throws IOException {
+        long offset = blocks.get(block)[0];
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, 8).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt() != ColumnarFileWriter.BLOCK_MAGIC) {
+            throw new IOException("broken block at " + offset);
+        }
+        int blockLength = buffer.getInt();
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset + 8, blockLength).order(ByteOrder.LITTLE_ENDIAN);
+
+        int rows = buffer.getInt();
+        columns.clear();
+        for (int row = 0; row < rows; row++) {
+            columns.addRow();
+        }
+        Map<String, DocValueColumns.Type> targetTypes = columns.types();
+        for (Map.Entry<String, DocValueColumns.Type> entry : types.entrySet()) {
+            int segmentLength = buffer.getInt();
+            int segmentEnd = buffer.position() + segmentLength;
+            if (entry.getValue() == targetTypes.get(entry.getKey())) {
+                decode(buffer, columns, entry.getKey(), entry.getValue(), rows);
+            }
+            buffer.position(segmentEnd);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static void decode(ByteBuffer buffer, DocValueColumns columns, String name, DocValueColumns.Type type, int rows) {
+        long[] bitmap = new long[buffer.getInt()];
+        for (int i = 0; i < bitmap.length; i++) {
+            bitmap[i] = buffer.getLong();
+        }
+        BitSet present = BitSet.valueOf(bitmap);
+        columns.present(name).or(present);
+
+        switch (type) {
+            case LONG -> {
+                long[] values = columns.longs(name);
+                for (int row = 0; row < rows; row++) {
+                    values[row] = buffer.getLong();
+                }
+            }
+            case DOUBLE -> {
+                double[] values = columns.doubles(name);
+                for (int row = 0; row < rows; row++) {
+                    values[row] = buffer.getDouble();
+                }
+            }
+            case DATE -> {
+                long[] values = columns.longs(name);
+                long previous = 0;
+                for (int row = 0; row < rows; row++) {
+                    long delta = getVarLong(buffer);
+                    previous += (delta >>> 1) ^ -(delta & 1);
+                    values[row] = present.get(row) ? previous : 0;
+                }
+            }
+            case KEYWORD -> {
+                // block 의 사전 번호를 columns 의 사전 번호로 변환
+                int[] ordinalMap = new int[buffer.getInt()];
+                for (int i = 0; i < ordinalMap.length; i++) {
+                    byte[] value = new byte[buffer.getInt()];
+                    buffer.get(value);
+                    ordinalMap[i] = columns.ordinal(name, new String(value, StandardCharsets.UTF_8));
+                }
+                int[] ordinals = columns.ordinals(name);
+                for (int row = 0; row < rows; row++) {
+                    int local = (int) getVarLong(buffer);
+                    ordinals[row] = present.get(row) ? ordinalMap[local] : -1;
+                }
+            }
+        }
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static long footerOffset(FileChannel channel, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, size - 12, 12).order(ByteOrder.LITTLE_ENDIAN).getLong();
+    }
+
+    /**
+     * 파일 끝의 footer 에서 block 위치 목록을 읽음 (footer 가 없으면 null)
+     */
+    private static List<long[]> readFooter(FileChannel channel, long size) throws IOException {
+        if (size < 24) {
+            return null;
+        }
+        ByteBuffer trailer = channel.map(FileChannel.MapMode.READ_ONLY, size - 12, 12).order(ByteOrder.LITTLE_ENDIAN);
+        long footerOffset = trailer.getLong();
+        if (trailer.getInt() != ColumnarFileWriter.FILE_MAGIC || footerOffset < 12 || footerOffset > size - 20) {
+            return null;
+        }
+        ByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, footerOffset, size - 12 - footerOffset).order(ByteOrder.LITTLE_ENDIAN);
+        if (footer.getInt() != ColumnarFileWriter.FOOTER_MAGIC) {
+            return null;
+        }
+        int count = footer.getInt();
+        if (footer.remaining() != count * 12L) {
+            return null;
+        }
+        List<long[]> blocks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            blocks.add(new long[]{footer.getLong(), footer.getInt()});
+        }
+        return blocks;
+    }
+
+    /**
+     * footer 가 없는 파일은 block header 를 따라가면서 온전한 block 만 목록에 추가
+     * @return 마지막 온전한 block 이 끝나는 위치
+     */
+    private static long scanBlocks(FileChannel channel, long position, long size, List<long[]> blocks) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        while (position + 12 <= size) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            if (header.getInt() != ColumnarFileWriter.BLOCK_MAGIC) {
+                break;
+            }
+            long end = position + 8 + header.getInt();
+            if (end > size) {
+                break;
+            }
+            blocks.add(new long[]{position, header.getInt()});
+            position = end;
+        }
+        return position;
+    }
+}
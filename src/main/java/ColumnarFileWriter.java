@@ -0,0 +1,369 @@
+import org.opensearch.client.opensearch.core.search.Hit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DocValueColumns 의 값을 JSON 없이 컬럼 단위의 binary 파일로 쓰는 writer <br><br>
+ * write() 를 호출할 때마다 컬럼 버퍼의 행 전체를 하나의 block 으로 씁니다. block 안에서는 컬럼마다 segment 가 따로 있어서
+ * ColumnarFileReader 는 필요한 컬럼만 읽고 나머지는 건너뜁니다. <br>
+ * - LONG, DOUBLE : 8 byte 고정 길이 <br>
+ * - DATE : 이전 행과의 차이(delta)를 zigzag varint 로 기록 (시간 순서로 읽은 데이터는 대부분 1~3 byte) <br>
+ * - KEYWORD : block 에서 사용한 값만 모은 사전 + 사전 번호 varint <br>
+ * 값이 없는 행은 컬럼마다 bitmap 으로 기록합니다. <br><br>
+ * 컬럼 segment 는 재사용하는 direct ByteBuffer 에 만들고, block header 와 함께 FileChannel 의 gathering write 로 한 번에 씁니다.
+ * close() 할 때 block 위치 목록(footer)을 붙이므로, 중간에 멈춘 파일도 reader 가 block header 를 따라가며 읽을 수 있습니다. <br>
+ * 파일의 모든 숫자는 little endian 입니다.
+ *
+ * <pre>
+ * DocValueColumns columns = DocValueColumns.builder().keyword("counter").date("ctime").integer("objHash").decimal("value").build();
+ * try (ColumnarFileWriter writer = ColumnarFileWriter.create(Path.of("export.col"), columns)) {
+ *     slicedExport.export(request, Void.class, writer.sink(columns));
+ * }
+ * </pre>
+ */
+public class ColumnarFileWriter implements AutoCloseable {
+
+    static final int FILE_MAGIC = 0x4C43534F; // "OSCL"
+    static final int BLOCK_MAGIC = 0x4B4C4243; // "CBLK"
+    static final int FOOTER_MAGIC = 0x52544F46; // "FOTR"
+    static final int VERSION = 1;
+
+    private final FileChannel channel;
+    private final Map<String, DocValueColumns.Type> types;
+    private final ByteBuffer blockHeader = ByteBuffer.allocateDirect(12).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer[] segments;
+
+    // footer 에 기록할 block 위치와 행 수
+    private final List<long[]> blocks = new ArrayList<>();
+    private long position;
+    private long rowCount = 0;
+    private boolean closed = false;
+
+    private ColumnarFileWriter(FileChannel channel, Map<String, DocValueColumns.Type> types, long position) {
+        this.channel = channel;
+        this.types = types;
+        this.position = position;
+        this.segments = new ByteBuffer[types.size()];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * 새 파일을 만들고 컬럼 정보(header)를 씀 - 같은 이름의 파일이 있으면 덮어씀
+     * @param path 파일 경로
+     * @param columns 파일에 쓸 컬럼 (이름과 타입만 사용)
+     */
+    public static ColumnarFileWriter create(Path path, DocValueColumns columns) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            Map<String, DocValueColumns.Type> types = columns.types();
+            ByteBuffer header = fileHeader(types);
+            long written = 0;
+            while (header.hasRemaining()) {
+                written += channel.write(header);
+            }
+            return new ColumnarFileWriter(channel, types, written);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 기존 파일을 offset 까지 자르고 이어서 씀 - ExportCheckpoint 에 저장한 outputOffset 으로 다시 시작할 때 사용 <br>
+     * 컬럼과 offset 을 자르기 전의 파일로 먼저 확인하므로, 맞지 않으면 파일을 그대로 두고 예외를 던짐
+     * @param path create() 로 만든 파일
+     * @param columns 파일에 쓸 컬럼 - 파일의 컬럼과 같아야 함
+     * @param offset 이어서 쓸 위치 (block 이 시작하거나 끝나는 위치여야 함)
+     */
+    public static ColumnarFileWriter append(Path path, DocValueColumns columns, long offset) throws IOException {
+        Map<String, DocValueColumns.Type> types = columns.types();
+        List<long[]> kept = new ArrayList<>();
+        long rows = 0;
+        try (ColumnarFileReader reader = ColumnarFileReader.open(path)) {
+            if (!reader.types().equals(types)) {
+                throw new IOException("columns do not match the file: " + reader.types());
+            }
+            // 첫 block 의 시작(header 끝), 각 block 의 시작, 마지막 온전한 block 의 끝만 허용
+            boolean boundary = offset == fileHeader(types).remaining() || offset == reader.dataEnd();
+            for (long[] block : reader.blocks()) {
+                if (block[0] == offset) {
+                    boundary = true;
+                }
+                if (block[0] < offset) {
+                    kept.add(block);
+                    rows += block[1];
+                }
+            }
+            if (!boundary) {
+                throw new IOException("offset " + offset + " is not at a block boundary");
+            }
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        try {
+            // offset 뒤의 block 과 footer 를 지우고 이어서 씀
+            channel.truncate(offset);
+            channel.position(offset);
+            ColumnarFileWriter writer = new ColumnarFileWriter(channel, types, offset);
+            writer.blocks.addAll(kept);
+            writer.rowCount = rows;
+            return writer;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * columns 의 0 ~ size()-1 행을 block 하나로 씀 - 행이 없으면 쓰지 않음
+     * @param columns create() 에 지정한 것과 같은 컬럼의 버퍼
+     */
+    public void write(DocValueColumns columns) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("writer is closed");
+        }
+        int rows = columns.size();
+        if (rows == 0) {
+            return;
+        }
+        int i = 0;
+        int blockLength = 4; // 행 수
+        for (Map.Entry<String, DocValueColumns.Type> entry : types.entrySet()) {
+            segments[i] = encode(segments[i], columns, entry.getKey(), entry.getValue(), rows);
+            blockLength += segments[i].remaining();
+            i++;
+        }
+        blockHeader.clear();
+        blockHeader.putInt(BLOCK_MAGIC).putInt(blockLength).putInt(rows).flip();
+
+        ByteBuffer[] buffers = new ByteBuffer[segments.length + 1];
+        buffers[0] = blockHeader;
+        System.arraycopy(segments, 0, buffers, 1, segments.length);
+        long total = 8L + blockLength;
+        long written = 0;
+        while (written < total) {
+            written += channel.write(buffers);
+        }
+        blocks.add(new long[]{position, rows});
+        position += total;
+        rowCount += rows;
+    }
+
+    /**
+     * SlicedExport 의 페이지를 받을 때마다 buffer 에 넣고 block 으로 쓰는 sink (요청에 buffer.docvalueFields() 지정 필요)
+     * @param buffer 페이지를 옮겨 담을 컬럼 버퍼 - create() 에 지정한 컬럼과 같아야 함
+     */
+    public <T> SlicedExport.Sink<T> sink(DocValueColumns buffer) {
+        return new SlicedExport.Sink<>() {
+            @Override
+            public void write(int slice, List<Hit<T>> hits) throws IOException {
+                buffer.clear();
+                for (Hit<T> hit : hits) {
+                    buffer.add(hit);
+                }
+                ColumnarFileWriter.this.write(buffer);
+            }
+
+            @Override
+            public long position() {
+                return position;
+            }
+
+            @Override
+            public void force() throws IOException {
+                ColumnarFileWriter.this.force();
+            }
+        };
+    }
+
+    /**
+     * 지금까지 쓴 block 을 디스크에 기록 (FileChannel.force)
+     */
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * 지금까지 쓴 파일 크기 (다음 block 이 시작할 위치)
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * 지금까지 쓴 행 수
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * footer 를 쓰고 파일을 닫음
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            ByteBuffer footer = ByteBuffer.allocate(8 + blocks.size() * 12 + 12).order(ByteOrder.LITTLE_ENDIAN);
+            footer.putInt(FOOTER_MAGIC).putInt(blocks.size());
+            for (long[] block : blocks) {
+                footer.putLong(block[0]).putInt((int) block[1]);
+            }
+            // 파일 끝의 footer 위치로 reader 가 footer 를 찾음
+            footer.putLong(position).putInt(FILE_MAGIC).flip();
+            while (footer.hasRemaining()) {
+                channel.write(footer);
+            }
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static ByteBuffer fileHeader(Map<String, DocValueColumns.Type> types) {
+        List<byte[]> names = new ArrayList<>();
+        int length = 12;
+        for (String name : types.keySet()) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            names.add(bytes);
+            length += 1 + 2 + bytes.length;
+        }
+        ByteBuffer header = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(FILE_MAGIC).putInt(VERSION).putInt(types.size());
+        int i = 0;
+        for (DocValueColumns.Type type : types.values()) {
+            header.put((byte) type.ordinal()).putShort((short) names.get(i).length).put(names.get(i));
+            i++;
+        }
+        return header.flip();
+    }
+
+    /**
+     * 컬럼 segment 만들기 - [segment 길이][bitmap long 수][bitmap][값]
+     */
+    private static ByteBuffer encode(ByteBuffer buffer, DocValueColumns columns, String name, DocValueColumns.Type type, int rows) {
+        long[] bitmap = columns.present(name).get(0, rows).toLongArray();
+        KeywordBlock keywords = type == DocValueColumns.Type.KEYWORD ? KeywordBlock.of(columns, name, rows) : null;
+        int maxLength = 4 + 4 + bitmap.length * 8 + switch (type) {
+            case LONG, DOUBLE -> rows * 8;
+            case DATE -> rows * 10;
+            case KEYWORD -> keywords.maxLength();
+        };
+        if (buffer.capacity() < maxLength) {
+            buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(maxLength - 1) << 1).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buffer.clear();
+        buffer.putInt(0).putInt(bitmap.length);
+        for (long word : bitmap) {
+            buffer.putLong(word);
+        }
+        switch (type) {
+            case LONG -> {
+                long[] values = columns.longs(name);
+                for (int row = 0; row < rows; row++) {
+                    buffer.putLong(values[row]);
+                }
+            }
+            case DOUBLE -> {
+                double[] values = columns.doubles(name);
+                for (int row = 0; row < rows; row++) {
+                    buffer.putDouble(values[row]);
+                }
+            }
+            case DATE -> {
+                // 값이 없는 행은 이전 값을 유지해서 delta 0
+                long[] values = columns.longs(name);
+                BitSet present = columns.present(name);
+                long previous = 0;
+                for (int row = 0; row < rows; row++) {
+                    long value = present.get(row) ? values[row] : previous;
+                    putVarLong(buffer, zigzag(value - previous));
+                    previous = value;
+                }
+            }
+            case KEYWORD -> keywords.encode(buffer);
+        }
+        buffer.putInt(0, buffer.position() - 4);
+        return buffer.flip();
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * block 에서 사용한 keyword 값만 새 번호를 붙인 사전과 행마다의 새 번호
+     */
+    private record KeywordBlock(List<byte[]> dictionary, int[] ordinals) {
+
+        static KeywordBlock of(DocValueColumns columns, String name, int rows) {
+            int[] ordinals = columns.ordinals(name);
+            int[] local = new int[rows];
+            int[] remap = new int[16];
+            Arrays.fill(remap, -1);
+            List<byte[]> dictionary = new ArrayList<>();
+            for (int row = 0; row < rows; row++) {
+                int ordinal = ordinals[row];
+                if (ordinal < 0) {
+                    continue;
+                }
+                if (ordinal >= remap.length) {
+                    int oldLength = remap.length;
+                    remap = Arrays.copyOf(remap, Math.max(ordinal + 1, oldLength * 2));
+                    Arrays.fill(remap, oldLength, remap.length, -1);
+                }
+                if (remap[ordinal] < 0) {
+                    remap[ordinal] = dictionary.size();
+                    dictionary.add(columns.keyword(name, row).getBytes(StandardCharsets.UTF_8));
+                }
+                local[row] = remap[ordinal];
+            }
+            return new KeywordBlock(dictionary, local);
+        }
+
+        int maxLength() {
+            int length = 4 + ordinals.length * 5;
+            for (byte[] value : dictionary) {
+                length += 4 + value.length;
+            }
+            return length;
+        }
+
+        /**
+         * [사전 크기][값 길이, 값]... [행마다 번호 varint]
+         */
+        void encode(ByteBuffer buffer) {
+            buffer.putInt(dictionary.size());
+            for (byte[] value : dictionary) {
+                buffer.putInt(value.length).put(value);
+            }
+            for (int ordinal : ordinals) {
+                putVarLong(buffer, ordinal);
+            }
+        }
+    }
+}
@@ -9,8 +9,11 @@ import org.opensearch.client.opensearch._types.aggregations.TopHitsAggregate;
 import org.opensearch.client.opensearch.core.SearchRequest;
 import org.opensearch.client.opensearch.core.SearchResponse;
 import org.opensearch.client.opensearch.generic.OpenSearchClientException;
+import org.opensearch.client.opensearch.generic.OpenSearchGenericClient;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -137,4 +140,134 @@ public class CompositeAggregationPaginationSample {
         }
     }
 
+    /**
+     * CompositePager 로 bucket 을 하나씩 출력 - 요청은 한 번만 만들고 페이지마다 after_key 만 타입 그대로(숫자는 숫자로) 바꿔서 조회
+     * @param genericClient 검색에 사용할 generic client
+     * @param indexName
+     */
+    public void searchWithPager(OpenSearchGenericClient genericClient, String indexName) {
+
+        System.out.println("= CompositeAggregationPaginationSample.searchWithPager =");
+
+        SearchRequest request = SearchRequest.of(s -> s
+                .index(indexName)
+                .size(0)
+                .aggregations("compAgg", agg -> agg
+                        .composite(comp -> comp
+                                .size(2)
+                                .sources(List.of(
+                                        Map.of("COUNTER", CompositeAggregationSource.of(src -> src.terms(t -> t.field("counter")))),
+                                        Map.of("OBJ_HASH", CompositeAggregationSource.of(src -> src.terms(t -> t.field("objHash"))))
+                                ))
+                        )
+                        .aggregations("topHits", subAgg -> subAgg
+                                .topHits(topHits -> topHits
+                                        .size(1)
+                                        .sort(SortOptions.of(s1 -> s1.field(fs1 -> fs1.field("ctime").order(SortOrder.Desc))))
+                                )
+                        )
+                )
+        );
+
+        try {
+            CompositePager pager = CompositePager.builder(genericClient, request, "compAgg").build();
+            while (pager.hasNext()) {
+                CompositeBucket bucket = pager.next();
+                TopHitsAggregate topHitsAggregate = bucket.aggregations().get("topHits").topHits();
+                topHitsAggregate.hits().hits().forEach(
+                        hit -> Objects.requireNonNull(hit.source()).to(ObjectNode.class).fields().forEachRemaining(
+                                entry -> System.out.printf("%s : %s, ", entry.getKey(), entry.getValue())
+                        )
+                );
+                System.out.printf("\n%s : %d\n", bucket.key(), bucket.docCount());
+            }
+            System.out.println("Pages: " + pager.getPageCount() + ", buckets: " + pager.getBucketCount());
+        } catch (OpenSearchClientException | UncheckedIOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * composite aggregation 페이지를 미리 받아두면서 bucket 출력 - bucket 을 출력하는 동안 after_key 로 다음 페이지를 요청
+     * @param genericClient 검색에 사용할 generic client
+     * @param indexName
+     */
+    public void searchWithPrefetch(OpenSearchGenericClient genericClient, String indexName) {
+
+        System.out.println("= CompositeAggregationPaginationSample.searchWithPrefetch =");
+
+        SearchRequest request = SearchRequest.of(s -> s
+                .index(indexName)
+                .size(0)
+                .aggregations("compAgg", agg -> agg
+                        .composite(comp -> comp
+                                .size(2)
+                                .sources(List.of(
+                                        Map.of("COUNTER", CompositeAggregationSource.of(src -> src.terms(t -> t.field("counter")))),
+                                        Map.of("OBJ_HASH", CompositeAggregationSource.of(src -> src.terms(t -> t.field("objHash"))))
+                                ))
+                        )
+                )
+        );
+
+        try (PrefetchingPageIterator<CompositeBucket> pages = PrefetchingPageIterator.of(SearchPublisher.composite(genericClient, request, "compAgg"), 2)) {
+            while (pages.hasNext()) {
+                pages.next().forEach(bucket -> System.out.printf("%s : %d\n", bucket.key(), bucket.docCount()));
+            }
+        } catch (OpenSearchClientException | UncheckedIOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * 페이지마다 after_key 를 타입 그대로 checkpoint 에 저장 - 중간에 실패한 후 다시 실행하면 저장된 after 다음 bucket 부터 조회
+     * @param genericClient 검색에 사용할 generic client
+     * @param indexName
+     * @param checkpointPath checkpoint 파일
+     */
+    public void searchResumable(OpenSearchGenericClient genericClient, String indexName, Path checkpointPath) {
+
+        System.out.println("= CompositeAggregationPaginationSample.searchResumable =");
+
+        try {
+            ExportCheckpoint checkpoint = ExportCheckpoint.open(checkpointPath);
+            if (checkpoint.isCompleted()) {
+                System.out.println("Already completed: " + checkpoint.rowCount() + " buckets");
+                return;
+            }
+            SearchRequest request = SearchRequest.of(s -> s
+                    .index(indexName)
+                    .size(0)
+                    .aggregations("compAgg", agg -> agg
+                            .composite(comp -> comp
+                                    .size(2)
+                                    .sources(List.of(
+                                            Map.of("COUNTER", CompositeAggregationSource.of(src -> src.terms(t -> t.field("counter")))),
+                                            Map.of("OBJ_HASH", CompositeAggregationSource.of(src -> src.terms(t -> t.field("objHash"))))
+                                    ))
+                            )
+                    )
+            );
+
+            // 저장된 after_key 는 숫자는 숫자로 다시 보냄
+            CompositePager pager = CompositePager.builder(genericClient, request, "compAgg")
+                    .after(checkpoint.afterKeyValues())
+                    .build();
+            long buckets = checkpoint.rowCount();
+            List<CompositeBucket> page;
+            while (!(page = pager.nextPage()).isEmpty()) {
+                page.forEach(bucket -> System.out.printf("%s : %d\n", bucket.key(), bucket.docCount()));
+                buckets += page.size();
+                // 방금 받은 페이지의 after_key 가 다음 페이지의 after
+                checkpoint.updateAfterKeyValues(pager.afterKey());
+                checkpoint.updateOutput(-1, buckets);
+                checkpoint.save();
+            }
+            checkpoint.complete();
+            checkpoint.save();
+        } catch (OpenSearchClientException | IOException | UncheckedIOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
 }
@@ -0,0 +1,327 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import org.opensearch.client.json.JsonData;
+import org.opensearch.client.json.JsonpDeserializer;
+import org.opensearch.client.json.JsonpMapper;
+import org.opensearch.client.opensearch._types.FieldValue;
+import org.opensearch.client.opensearch._types.aggregations.Aggregate;
+import org.opensearch.client.opensearch._types.aggregations.Aggregation;
+import org.opensearch.client.opensearch._types.aggregations.CompositeAggregate;
+import org.opensearch.client.opensearch._types.aggregations.CompositeBucket;
+import org.opensearch.client.opensearch.core.SearchRequest;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.generic.Body;
+import org.opensearch.client.opensearch.generic.Bodies;
+import org.opensearch.client.opensearch.generic.OpenSearchGenericClient;
+import org.opensearch.client.opensearch.generic.Request;
+import org.opensearch.client.opensearch.generic.Requests;
+import org.opensearch.client.opensearch.generic.Response;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * composite aggregation 의 bucket 을 after_key 로 페이지를 넘기면서 하나씩 반환하는 iterator <br><br>
+ * CompositeAggregation.Builder.after() 는 Map&lt;String, String&gt; 만 받으므로 after_key 를 문자열로 바꾸면
+ * 숫자와 날짜(epoch millis) key 가 문자열로 전송되고, 페이지마다 SearchRequest 전체를 다시 만들어야 합니다. <br>
+ * CompositePager 는 요청을 처음 한 번만 JSON 으로 바꿔두고, 페이지마다 composite 의 after 값만 교체해서 generic client 로 보냅니다.
+ * after_key 는 응답의 JSON 타입 그대로 FieldValue(string, long, double, boolean, null)로 보관하므로 손실이 없습니다. <br>
+ * 페이지는 hasNext() 에서 이전 페이지의 bucket 을 모두 꺼낸 후에만 요청합니다(lazy).
+ * 요청한 size 보다 적은 bucket 이 오거나 after_key 가 없으면 마지막 페이지입니다. <br>
+ * afterKey() 는 지금까지 받은 마지막 페이지의 after_key 이므로 ExportCheckpoint 에 저장해두면 그 다음 페이지부터 다시 시작할 수 있습니다. <br>
+ * SearchPublisher.composite() 도 같은 방식으로 페이지를 요청합니다(nextPageAsync).
+ * 요청이 실패하거나 실패한 shard 가 있으면 hasNext() 에서 UncheckedIOException 을 던집니다.
+ *
+ * <pre>
+ * CompositePager pager = CompositePager.builder(genericClient, request, "compAgg").build();
+ * while (pager.hasNext()) {
+ *     CompositeBucket bucket = pager.next();
+ * }
+ * </pre>
+ */
+public class CompositePager implements Iterator<CompositeBucket> {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final JsonpDeserializer<SearchResponse<Void>> RESPONSE_DESERIALIZER =
+            SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(Void.class));
+
+    private final OpenSearchGenericClient genericClient;
+    private final JsonpMapper mapper;
+    private final String aggregationName;
+    private final String endpoint;
+    private final Map<String, String> parameters;
+    private final ObjectNode body;
+    // body 안의 composite 객체 - 페이지마다 after 만 교체
+    private final ObjectNode composite;
+    private final int pageSize;
+
+    private final ArrayDeque<CompositeBucket> page = new ArrayDeque<>();
+    private Map<String, FieldValue> afterKey;
+    private boolean exhausted = false;
+    private long pageCount = 0;
+    private long bucketCount = 0;
+
+    private CompositePager(Builder builder, ObjectNode body) {
+        this.genericClient = builder.genericClient;
+        this.mapper = builder.genericClient._transport().jsonpMapper();
+        this.aggregationName = builder.aggregationName;
+        this.body = body;
+        this.composite = (ObjectNode) body.path("aggregations").path(builder.aggregationName).path("composite");
+        this.pageSize = composite.path("size").asInt(10);
+        this.afterKey = builder.after;
+
+        SearchRequest request = builder.request;
+        this.endpoint = request.index().isEmpty() ? "/_search" : "/" + String.join(",", request.index()) + "/_search";
+        this.parameters = new HashMap<>();
+        // aggregation 응답을 Aggregate 로 읽으려면 타입 접두어(typed_keys)가 필요
+        parameters.put("typed_keys", "true");
+        if (request.routing() != null) {
+            parameters.put("routing", request.routing());
+        }
+        if (request.preference() != null) {
+            parameters.put("preference", request.preference());
+        }
+        if (request.requestCache() != null) {
+            parameters.put("request_cache", String.valueOf(request.requestCache()));
+        }
+    }
+
+    /**
+     * @param genericClient 검색에 사용할 generic client
+     * @param request composite aggregation 이 있는 검색 요청 (size 를 지정하지 않으면 hit 없이 size 0 으로 보냄)
+     * @param aggregationName composite aggregation 이름
+     */
+    public static Builder builder(OpenSearchGenericClient genericClient, SearchRequest request, String aggregationName) {
+        return new Builder(genericClient, request, aggregationName);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (page.isEmpty() && !exhausted) {
+            try {
+                fetch();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return !page.isEmpty();
+    }
+
+    @Override
+    public CompositeBucket next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.poll();
+    }
+
+    /**
+     * 현재 페이지의 남은 bucket 을 한 번에 반환 (다 꺼냈으면 다음 페이지를 요청, 마지막이면 빈 list)
+     */
+    public List<CompositeBucket> nextPage() {
+        if (!hasNext()) {
+            return List.of();
+        }
+        List<CompositeBucket> buckets = new ArrayList<>(page);
+        page.clear();
+        return buckets;
+    }
+
+    /**
+     * 다음 페이지를 generic client 의 비동기 요청으로 받음 - 받아둔 bucket 이 남아 있으면 그것을 먼저 반환 (마지막이면 빈 list) <br>
+     * 이전에 반환한 future 가 완료된 후에만 호출해야 함
+     */
+    CompletableFuture<List<CompositeBucket>> nextPageAsync() {
+        if (!page.isEmpty() || exhausted) {
+            List<CompositeBucket> buckets = new ArrayList<>(page);
+            page.clear();
+            return CompletableFuture.completedFuture(buckets);
+        }
+        Request request;
+        try {
+            request = pageRequest();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return genericClient.executeAsync(request).thenApply(r -> {
+            try (r) {
+                return readPage(r);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * 지금까지 받은 마지막 페이지의 after_key (아직 받지 않았으면 시작 after, 없으면 null)
+     */
+    public Map<String, FieldValue> afterKey() {
+        return afterKey;
+    }
+
+    /**
+     * 지금까지 받은 페이지 수
+     */
+    public long getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * 지금까지 받은 bucket 수
+     */
+    public long getBucketCount() {
+        return bucketCount;
+    }
+
+    private void fetch() throws IOException {
+        try (Response r = genericClient.execute(pageRequest())) {
+            page.addAll(readPage(r));
+        }
+    }
+
+    /**
+     * 지금까지 받은 after_key 를 composite 의 after 에 넣은 다음 페이지 요청
+     */
+    private Request pageRequest() throws IOException {
+        if (afterKey != null && !afterKey.isEmpty()) {
+            ObjectNode after = composite.putObject("after");
+            afterKey.forEach((key, value) -> after.set(key, toJsonNode(value)));
+        }
+        return Requests.builder()
+                .endpoint(endpoint)
+                .method("POST")
+                .query(parameters)
+                .body(Body.from(OBJECT_MAPPER.writeValueAsBytes(body), "application/json"))
+                .build();
+    }
+
+    /**
+     * 응답의 bucket 을 반환하고 after_key 와 마지막 페이지 여부를 갱신
+     */
+    private List<CompositeBucket> readPage(Response r) throws IOException {
+        Body responseBody = r.getBody().orElseThrow(() -> new IOException("search response has no body"));
+        SearchResponse<Void> response = Bodies.json(responseBody, RESPONSE_DESERIALIZER, mapper);
+        if (response.shards().failed().intValue() > 0) {
+            // 실패한 shard 의 bucket 이 빠진 채로 after_key 가 넘어가므로 중단
+            throw new IOException(response.shards().failed() + " of " + response.shards().total() + " shards failed");
+        }
+        pageCount++;
+
+        Aggregate aggregate = response.aggregations().get(aggregationName);
+        if (aggregate == null) {
+            exhausted = true;
+            return List.of();
+        }
+        CompositeAggregate compositeAggregate = aggregate.composite();
+        List<CompositeBucket> buckets = compositeAggregate.buckets().array();
+        bucketCount += buckets.size();
+
+        if (compositeAggregate.afterKey().isEmpty()) {
+            exhausted = true;
+        } else {
+            afterKey = toFieldValues(compositeAggregate.afterKey());
+            // size 보다 적게 왔으면 다음 페이지는 비어 있음
+            exhausted = buckets.size() < pageSize;
+        }
+        return buckets;
+    }
+
+    /**
+     * 응답의 after_key(또는 bucket key)를 JSON 타입 그대로 FieldValue 로 변환
+     */
+    public static Map<String, FieldValue> toFieldValues(Map<String, JsonData> key) {
+        Map<String, FieldValue> values = new LinkedHashMap<>();
+        key.forEach((name, value) -> values.put(name, toFieldValue(value.toJson())));
+        return values;
+    }
+
+    private static FieldValue toFieldValue(JsonValue value) {
+        if (value instanceof JsonString) {
+            return FieldValue.of(((JsonString) value).getString());
+        }
+        if (value instanceof JsonNumber) {
+            JsonNumber number = (JsonNumber) value;
+            return number.isIntegral() ? FieldValue.of(number.longValue()) : FieldValue.of(number.doubleValue());
+        }
+        if (value == JsonValue.TRUE || value == JsonValue.FALSE) {
+            return FieldValue.of(value == JsonValue.TRUE);
+        }
+        if (value == JsonValue.NULL) {
+            return FieldValue.NULL;
+        }
+        throw new IllegalArgumentException("unsupported after_key value: " + value);
+    }
+
+    private static JsonNode toJsonNode(FieldValue value) {
+        JsonNodeFactory factory = JsonNodeFactory.instance;
+        if (value.isString()) {
+            return factory.textNode(value.stringValue());
+        }
+        if (value.isLong()) {
+            return factory.numberNode(value.longValue());
+        }
+        if (value.isDouble()) {
+            return factory.numberNode(value.doubleValue());
+        }
+        if (value.isBoolean()) {
+            return factory.booleanNode(value.booleanValue());
+        }
+        return factory.nullNode();
+    }
+
+    public static class Builder {
+        private final OpenSearchGenericClient genericClient;
+        private final SearchRequest request;
+        private final String aggregationName;
+        private Map<String, FieldValue> after = null;
+
+        private Builder(OpenSearchGenericClient genericClient, SearchRequest request, String aggregationName) {
+            this.genericClient = genericClient;
+            this.request = request;
+            this.aggregationName = aggregationName;
+        }
+
+        /**
+         * 이 key 다음 bucket 부터 조회 - afterKey() 나 ExportCheckpoint 에 저장한 값으로 다시 시작할 때 사용
+         */
+        public Builder after(Map<String, FieldValue> after) {
+            this.after = after;
+            return this;
+        }
+
+        public CompositePager build() {
+            Aggregation aggregation = request.aggregations().get(aggregationName);
+            if (aggregation == null || !aggregation.isComposite()) {
+                throw new IllegalArgumentException(aggregationName + " is not a composite aggregation");
+            }
+            if (request.scroll() != null) {
+                throw new IllegalArgumentException("request must not have scroll");
+            }
+            ObjectNode body;
+            try {
+                body = (ObjectNode) OBJECT_MAPPER.readTree(OpenSearchUtil.convertToJson(request));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("failed to serialize request", e);
+            }
+            if (request.size() == null) {
+                body.put("size", 0);
+            }
+            return new CompositePager(this, body);
+        }
+    }
+}
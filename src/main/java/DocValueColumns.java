@@ -0,0 +1,395 @@
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import org.opensearch.client.json.JsonData;
+import org.opensearch.client.opensearch._types.query_dsl.FieldAndFormat;
+import org.opensearch.client.opensearch.core.search.Hit;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 검색 결과의 docvalue_fields 를 hit 객체 없이 필드별 primitive 배열(컬럼)에 보관하는 버퍼 <br><br>
+ * hit.fields().get(key).to(ArrayNode.class).get(0) 처럼 hit 마다 값을 꺼내면 값마다 객체가 생기므로,
+ * StreamingSearch.searchColumns() 로 응답을 읽으면서 값을 바로 컬럼에 씁니다. i 번째 hit 의 값은 col[i] 입니다. <br>
+ * - LONG : integer, long, date 필드 → long[] (date 는 epoch_millis 형식으로 요청) <br>
+ * - DOUBLE : scaled_float, double 등 → double[] <br>
+ * - KEYWORD : keyword 필드 → int[] (사전 번호, 값은 dictionary(name)[번호]) <br>
+ * 값이 없는 hit 은 LONG/DOUBLE 은 0, KEYWORD 는 -1 이고 isMissing() 으로 구분합니다. 여러 값이 있는 필드는 첫 번째 값만 사용합니다. <br><br>
+ * scroll 등으로 여러 페이지를 읽을 때 clear() 를 호출하면 배열과 keyword 사전을 재사용합니다.
+ * client.search() 등으로 이미 받은 hit 은 add(hit) 로 fields 의 값을 추가합니다. ColumnarFileWriter 는 컬럼을 그대로 파일의 block 으로 씁니다.
+ * 반환하는 배열은 내부 버퍼이므로 size() 까지만 유효하고, 다음 검색에서 덮어써집니다.
+ *
+ * <pre>
+ * DocValueColumns columns = DocValueColumns.builder().keyword("counter").date("ctime").integer("objHash").decimal("value").build();
+ * SearchRequest request = SearchRequest.of(s -&gt; s.index("sample-index").docvalueFields(columns.docvalueFields()).size(1000));
+ * streamingSearch.searchColumns(request, columns);
+ * double[] values = columns.doubles("value");
+ * </pre>
+ */
+public class DocValueColumns {
+
+    public enum Type { LONG, DATE, DOUBLE, KEYWORD }
+
+    private final Map<String, Column> columns = new LinkedHashMap<>();
+    private int size = 0;
+    private int capacity;
+
+    private DocValueColumns(Builder builder) {
+        this.capacity = builder.initialCapacity;
+        builder.types.forEach((name, type) -> columns.put(name, new Column(type, capacity)));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 검색 요청에 지정할 docvalue_fields (date 컬럼은 epoch_millis 형식)
+     */
+    public List<FieldAndFormat> docvalueFields() {
+        List<FieldAndFormat> fields = new ArrayList<>();
+        columns.forEach((name, column) -> fields.add(column.type == Type.DATE
+                ? FieldAndFormat.of(f -> f.field(name).format("epoch_millis"))
+                : FieldAndFormat.of(f -> f.field(name))));
+        return fields;
+    }
+
+    /**
+     * 읽은 hit 수
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * LONG, DATE 컬럼
+     */
+    public long[] longs(String name) {
+        return column(name, Type.LONG, Type.DATE).longs;
+    }
+
+    /**
+     * DOUBLE 컬럼
+     */
+    public double[] doubles(String name) {
+        return column(name, Type.DOUBLE).doubles;
+    }
+
+    /**
+     * KEYWORD 컬럼의 사전 번호 (값이 없으면 -1)
+     */
+    public int[] ordinals(String name) {
+        return column(name, Type.KEYWORD).ordinals;
+    }
+
+    /**
+     * KEYWORD 컬럼의 사전 - 사전 번호 순서
+     */
+    public String[] dictionary(String name) {
+        return column(name, Type.KEYWORD).dictionary.toArray(new String[0]);
+    }
+
+    /**
+     * KEYWORD 컬럼의 i 번째 값 (없으면 null)
+     */
+    public String keyword(String name, int row) {
+        Column column = column(name, Type.KEYWORD);
+        int ordinal = column.ordinals[row];
+        return ordinal < 0 ? null : column.dictionary.get(ordinal);
+    }
+
+    /**
+     * i 번째 hit 에 값이 없는지
+     */
+    public boolean isMissing(String name, int row) {
+        Column column = columns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("unknown column: " + name);
+        }
+        return !column.present.get(row);
+    }
+
+    /**
+     * hit 의 fields(docvalue_fields) 값을 새 행에 추가
+     * @param hit docvalue_fields 를 요청한 검색의 hit
+     * @return 추가한 행 번호
+     */
+    public int add(Hit<?> hit) {
+        int row = addRow();
+        Map<String, JsonData> fields = hit.fields();
+        if (fields == null || fields.isEmpty()) {
+            return row;
+        }
+        columns.forEach((name, column) -> {
+            JsonData data = fields.get(name);
+            if (data == null) {
+                return;
+            }
+            JsonValue json = data.toJson();
+            // 첫 번째 값만 사용
+            JsonValue value = json instanceof JsonArray ? (((JsonArray) json).isEmpty() ? null : ((JsonArray) json).get(0)) : json;
+            if (value instanceof JsonNumber) {
+                column.setNumber((JsonNumber) value, row);
+            } else if (value instanceof JsonString) {
+                column.setText(((JsonString) value).getString(), row);
+            }
+        });
+        return row;
+    }
+
+    /**
+     * 컬럼 이름과 타입 (추가한 순서)
+     */
+    public Map<String, Type> types() {
+        Map<String, Type> types = new LinkedHashMap<>();
+        columns.forEach((name, column) -> types.put(name, column.type));
+        return types;
+    }
+
+    /**
+     * 읽은 값을 모두 지움 - 배열과 keyword 사전은 재사용
+     */
+    public void clear() {
+        for (Column column : columns.values()) {
+            column.present.clear();
+        }
+        size = 0;
+    }
+
+    /**
+     * 새 hit 의 행을 추가하고 행 번호 반환 - 모든 컬럼을 값이 없는 상태로 초기화
+     */
+    int addRow() {
+        if (size == capacity) {
+            capacity = capacity * 2;
+            columns.values().forEach(column -> column.grow(capacity));
+        }
+        for (Column column : columns.values()) {
+            if (column.type == Type.KEYWORD) {
+                column.ordinals[size] = -1;
+            } else if (column.type == Type.DOUBLE) {
+                column.doubles[size] = 0;
+            } else {
+                column.longs[size] = 0;
+            }
+        }
+        return size++;
+    }
+
+    /**
+     * 값이 있는 행의 bit
+     */
+    BitSet present(String name) {
+        Column column = columns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("unknown column: " + name);
+        }
+        return column.present;
+    }
+
+    /**
+     * KEYWORD 컬럼의 사전 번호 - 사전에 없으면 추가
+     */
+    int ordinal(String name, String value) {
+        return column(name, Type.KEYWORD).ordinal(value);
+    }
+
+    /**
+     * hit 의 fields 객체를 읽어서 row 행에 기록 - parser 는 fields 객체의 START_OBJECT 에 있어야 함
+     */
+    void readFields(JsonParser parser, int row) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            Column column = columns.get(parser.currentName());
+            JsonToken token = parser.nextToken();
+            if (column == null || token != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            // 첫 번째 값만 사용하고 나머지는 건너뜀
+            token = parser.nextToken();
+            if (token != JsonToken.END_ARRAY) {
+                if (token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+                    column.set(parser, token, row);
+                } else {
+                    parser.skipChildren();
+                }
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private Column column(String name, Type... types) {
+        Column column = columns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("unknown column: " + name);
+        }
+        for (Type type : types) {
+            if (column.type == type) {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException(name + " is a " + column.type + " column");
+    }
+
+    private static class Column {
+        final Type type;
+        final BitSet present = new BitSet();
+        long[] longs;
+        double[] doubles;
+        int[] ordinals;
+        Map<String, Integer> ordinalByValue;
+        List<String> dictionary;
+
+        Column(Type type, int capacity) {
+            this.type = type;
+            switch (type) {
+                case LONG, DATE -> longs = new long[capacity];
+                case DOUBLE -> doubles = new double[capacity];
+                case KEYWORD -> {
+                    ordinals = new int[capacity];
+                    ordinalByValue = new HashMap<>();
+                    dictionary = new ArrayList<>();
+                }
+            }
+        }
+
+        void grow(int capacity) {
+            if (longs != null) {
+                longs = Arrays.copyOf(longs, capacity);
+            }
+            if (doubles != null) {
+                doubles = Arrays.copyOf(doubles, capacity);
+            }
+            if (ordinals != null) {
+                ordinals = Arrays.copyOf(ordinals, capacity);
+            }
+        }
+
+        void set(JsonParser parser, JsonToken token, int row) throws IOException {
+            switch (type) {
+                case LONG, DATE -> longs[row] = token.isNumeric() ? parser.getLongValue() : parseLong(parser.getText());
+                case DOUBLE -> doubles[row] = token.isNumeric() ? parser.getDoubleValue() : Double.parseDouble(parser.getText());
+                case KEYWORD -> ordinals[row] = ordinal(parser.getText());
+            }
+            present.set(row);
+        }
+
+        void setNumber(JsonNumber number, int row) {
+            switch (type) {
+                case LONG, DATE -> longs[row] = number.longValue();
+                case DOUBLE -> doubles[row] = number.doubleValue();
+                case KEYWORD -> ordinals[row] = ordinal(number.toString());
+            }
+            present.set(row);
+        }
+
+        void setText(String text, int row) {
+            switch (type) {
+                case LONG, DATE -> longs[row] = parseLong(text);
+                case DOUBLE -> doubles[row] = Double.parseDouble(text);
+                case KEYWORD -> ordinals[row] = ordinal(text);
+            }
+            present.set(row);
+        }
+
+        private int ordinal(String value) {
+            return ordinalByValue.computeIfAbsent(value, v -> {
+                dictionary.add(v);
+                return dictionary.size() - 1;
+            });
+        }
+
+        private long parseLong(String text) {
+            return type == Type.DATE ? parseDate(text) : Long.parseLong(text);
+        }
+
+        // epoch_millis 형식은 문자열("1700000000000")로 반환되고, 형식을 지정하지 않으면 ISO-8601 일 수 있음
+        private static long parseDate(String text) {
+            try {
+                return Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                try {
+                    return Instant.parse(text).toEpochMilli();
+                } catch (DateTimeParseException ex) {
+                    return (long) Double.parseDouble(text);
+                }
+            }
+        }
+    }
+
+    public static class Builder {
+        private final Map<String, Type> types = new LinkedHashMap<>();
+        private int initialCapacity = 1024;
+
+        private Builder() {
+        }
+
+        /**
+         * integer, long 필드 → long[]
+         */
+        public Builder integer(String name) {
+            types.put(name, Type.LONG);
+            return this;
+        }
+
+        /**
+         * date 필드 → epoch millis long[]
+         */
+        public Builder date(String name) {
+            types.put(name, Type.DATE);
+            return this;
+        }
+
+        /**
+         * scaled_float, double 등 → double[]
+         */
+        public Builder decimal(String name) {
+            types.put(name, Type.DOUBLE);
+            return this;
+        }
+
+        /**
+         * keyword 필드 → 사전 번호 int[]
+         */
+        public Builder keyword(String name) {
+            types.put(name, Type.KEYWORD);
+            return this;
+        }
+
+        /**
+         * 처음 할당할 행 수 (기본 1024) - 부족하면 두 배씩 늘어남
+         */
+        public Builder initialCapacity(int initialCapacity) {
+            this.initialCapacity = initialCapacity;
+            return this;
+        }
+
+        public DocValueColumns build() {
+            if (types.isEmpty()) {
+                throw new IllegalArgumentException("at least one column is required");
+            }
+            if (initialCapacity <= 0) {
+                throw new IllegalArgumentException("initialCapacity must be positive");
+            }
+            return new DocValueColumns(this);
+        }
+    }
+}
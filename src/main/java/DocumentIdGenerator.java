@@ -0,0 +1,167 @@
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.bulk.CreateOperation;
+import org.opensearch.client.opensearch.core.bulk.IndexOperation;
+
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Enumeration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 시간 순서로 증가하는 짧은 도큐먼트 아이디 생성기 <br><br>
+ * 서버가 자동으로 만드는 아이디(TimeBasedUUIDGenerator)와 같은 구성의 15 bytes 를 URL-safe Base64 로 인코딩한 20자 문자열을 만듭니다. <br>
+ * - 6 bytes : 밀리초 timestamp (같은 밀리초에 sequence 가 한 바퀴 돌면 1 증가시켜서 역행하지 않음) <br>
+ * - 3 bytes : sequence (시작값은 임의) <br>
+ * - 6 bytes : 노드 식별값 (MAC 주소의 하위 2 bytes 에 프로세스 아이디를 섞어서 같은 서버의 여러 프로세스도 구분) <br>
+ * 바이트 순서는 서버와 같게 배치해서 같은 시점에 만든 아이디끼리 앞부분이 공유되므로,
+ * 임의의 UUID 보다 Lucene 의 _id 조회(term dictionary)가 캐시 친화적이고 압축도 잘 됩니다. <br><br>
+ * 잠금 없이 AtomicLong/AtomicInteger 만 사용하므로 여러 producer 스레드에서 하나의 인스턴스를 공유해도 됩니다.
+ *
+ * <pre>
+ * String id = DocumentIdGenerator.getDefault().nextId();
+ * </pre>
+ */
+public class DocumentIdGenerator {
+
+    private static final DocumentIdGenerator DEFAULT = new DocumentIdGenerator(defaultNodeId());
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final byte[] nodeId;
+    private final AtomicInteger sequenceNumber = new AtomicInteger(new SecureRandom().nextInt());
+    private final AtomicLong lastTimestamp = new AtomicLong(0);
+
+    /**
+     * @param nodeId 생성기마다 다른 6 bytes 식별값
+     */
+    public DocumentIdGenerator(byte[] nodeId) {
+        if (nodeId == null || nodeId.length != 6) {
+            throw new IllegalArgumentException("nodeId must be 6 bytes");
+        }
+        this.nodeId = nodeId.clone();
+    }
+
+    /**
+     * 이 프로세스의 기본 생성기
+     * @return DocumentIdGenerator
+     */
+    public static DocumentIdGenerator getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 새 아이디 생성
+     * @return 20자 아이디
+     */
+    public String nextId() {
+        int sequenceId = sequenceNumber.incrementAndGet() & 0xffffff;
+        // 시계가 뒤로 가도 이전 값보다 작아지지 않도록 하고, sequence 가 한 바퀴 돌면 timestamp 를 1 증가시킴
+        long timestamp = lastTimestamp.updateAndGet(last -> {
+            long current = Math.max(last, System.currentTimeMillis());
+            return sequenceId == 0 ? current + 1 : current;
+        });
+
+        byte[] bytes = new byte[15];
+        int i = 0;
+        bytes[i++] = (byte) sequenceId;
+        bytes[i++] = (byte) (sequenceId >>> 16);
+        bytes[i++] = (byte) (timestamp >>> 16);
+        bytes[i++] = (byte) (timestamp >>> 24);
+        bytes[i++] = (byte) (timestamp >>> 32);
+        bytes[i++] = (byte) (timestamp >>> 40);
+        System.arraycopy(nodeId, 0, bytes, i, nodeId.length);
+        i += nodeId.length;
+        bytes[i++] = (byte) (timestamp >>> 8);
+        bytes[i++] = (byte) (sequenceId >>> 8);
+        bytes[i] = (byte) timestamp;
+        return ENCODER.encodeToString(bytes);
+    }
+
+    /**
+     * 아이디가 없는 index/create operation 에 새 아이디를 붙인 operation 반환 (아이디가 있거나 update/delete 면 그대로 반환) <br>
+     * 아이디 외의 값(index, routing, pipeline, requireAlias, version, versionType, ifSeqNo, ifPrimaryTerm, document)은 모두 그대로 복사합니다. <br>
+     * tDocumentSerializer 는 operation 에서 꺼낼 수 없어 복사하지 않지만, 이 클라이언트 버전의 bulk 요청은 document 를 항상 mapper 로 직렬화하므로 결과는 같습니다.
+     * @param operation bulk operation
+     * @return 아이디가 있는 bulk operation
+     */
+    public BulkOperation withId(BulkOperation operation) {
+        if (operation.isIndex() && operation.index().id() == null) {
+            IndexOperation<Object> index = operation.index();
+            String id = nextId();
+            return BulkOperation.of(b -> b.index(i -> i
+                    .index(index.index())
+                    .id(id)
+                    .routing(index.routing())
+                    .pipeline(index.pipeline())
+                    .requireAlias(index.requireAlias())
+                    .version(index.version())
+                    .versionType(index.versionType())
+                    .ifSeqNo(index.ifSeqNo())
+                    .ifPrimaryTerm(index.ifPrimaryTerm())
+                    .document(index.document())));
+        }
+        if (operation.isCreate() && operation.create().id() == null) {
+            CreateOperation<Object> create = operation.create();
+            String id = nextId();
+            return BulkOperation.of(b -> b.create(c -> c
+                    .index(create.index())
+                    .id(id)
+                    .routing(create.routing())
+                    .pipeline(create.pipeline())
+                    .requireAlias(create.requireAlias())
+                    .version(create.version())
+                    .versionType(create.versionType())
+                    .ifSeqNo(create.ifSeqNo())
+                    .ifPrimaryTerm(create.ifPrimaryTerm())
+                    .document(create.document())));
+        }
+        return operation;
+    }
+
+    /**
+     * MAC 주소(없으면 임의 값)의 하위 2 bytes 에 프로세스 아이디를 섞은 6 bytes
+     */
+    private static byte[] defaultNodeId() {
+        byte[] nodeId = macAddress();
+        if (nodeId == null) {
+            nodeId = new byte[6];
+            new SecureRandom().nextBytes(nodeId);
+            // 실제 MAC 주소와 겹치지 않도록 multicast bit 설정
+            nodeId[0] |= 0x01;
+        }
+        long pid = ProcessHandle.current().pid();
+        nodeId[4] ^= (byte) (pid >>> 8);
+        nodeId[5] ^= (byte) pid;
+        return nodeId;
+    }
+
+    private static byte[] macAddress() {
+        try {
+            Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+            while (interfaces != null && interfaces.hasMoreElements()) {
+                NetworkInterface networkInterface = interfaces.nextElement();
+                if (networkInterface.isLoopback()) {
+                    continue;
+                }
+                byte[] address = networkInterface.getHardwareAddress();
+                if (address != null && address.length == 6 && !isZero(address)) {
+                    return address;
+                }
+            }
+        } catch (SocketException e) {
+            // 임의 값 사용
+        }
+        return null;
+    }
+
+    private static boolean isZero(byte[] bytes) {
+        for (byte b : bytes) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
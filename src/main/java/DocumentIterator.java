@@ -0,0 +1,509 @@
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.opensearch.client.json.JsonpDeserializer;
+import org.opensearch.client.json.JsonpMapper;
+import org.opensearch.client.opensearch.core.SearchRequest;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.core.pit.CreatePitResponse;
+import org.opensearch.client.opensearch.core.search.Hit;
+import org.opensearch.client.opensearch.generic.Bodies;
+import org.opensearch.client.opensearch.generic.Body;
+import org.opensearch.client.opensearch.generic.OpenSearchGenericClient;
+import org.opensearch.client.opensearch.generic.Requests;
+import org.opensearch.client.opensearch.generic.Response;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * scroll 대신 Point-in-Time(PIT)과 search_after 로 검색 결과 전체를 순서대로 읽는 iterator <br><br>
+ * scroll 은 keepAlive 동안 검색 컨텍스트를 shard 마다 열어두므로, 페이지를 천천히 읽으면 그동안 segment 와 heap 을 붙잡고 있습니다.
+ * PIT 는 인덱스의 한 시점만 고정하고, 페이지마다 마지막 hit 의 정렬 값(search_after) 다음부터 검색하므로 검색 컨텍스트를 오래 들고 있지 않습니다. <br>
+ * search_after 는 정렬 값이 같은 도큐먼트가 페이지 경계에 걸치면 건너뛰거나 중복되므로, 요청의 정렬 뒤에 유일한 값의 필드(tiebreaker, 기본 _id)를 붙입니다.
+ * _id 정렬은 fielddata 를 사용하므로, 도큐먼트마다 유일한 keyword 필드(docvalue)가 있으면 그 필드를 tiebreaker 로 지정하는 것이 좋습니다. <br>
+ * Hit.sort() 는 정렬 값을 문자열로 바꾸므로, search_after 는 응답 JSON 의 정렬 값을 타입 그대로(숫자, unsigned_long, null) 읽어서 보냅니다. <br><br>
+ * 페이지 크기는 응답 본문의 크기로 조절합니다. 페이지를 받을 때마다 hit 하나의 평균 byte 수를 구해서
+ * 다음 페이지가 targetPageBytes 에 가깝도록 size 를 minPageSize ~ maxPageSize 안에서 바꿉니다. <br>
+ * 첫 페이지 이후에는 track_total_hits 를 끄고 aggregations 를 빼서 보냅니다. 전체 hit 수는 getTotalHits() 로 확인합니다. <br>
+ * 마지막 페이지를 읽으면 PIT 를 바로 삭제하고, 중간에 그만 읽을 때는 close() (stream 은 Stream.close()) 로 삭제합니다. <br>
+ * slice(id, max) 를 지정하면 결과를 max 개로 나눈 것 중 하나만 읽습니다. 여러 slice 를 병렬로 읽을 때는 SlicedExport 를 사용합니다.
+ *
+ * <pre>
+ * SearchRequest request = SearchRequest.of(s -&gt; s.index("sample-index").query(query).sort(so -&gt; so.field(f -&gt; f.field("ctime"))));
+ * try (DocumentIterator&lt;ObjectNode&gt; documents = DocumentIterator.builder(genericClient, request, ObjectNode.class).keepAlive("1m").build()) {
+ *     while (documents.hasNext()) {
+ *         Hit&lt;ObjectNode&gt; hit = documents.next();
+ *     }
+ * }
+ *
+ * try (Stream&lt;Hit&lt;ObjectNode&gt;&gt; hits = DocumentIterator.builder(genericClient, request, ObjectNode.class).build().stream()) { ... }
+ * </pre>
+ */
+public class DocumentIterator<T> implements Iterator<Hit<T>>, AutoCloseable {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<List<Object>> SORT_VALUES = new TypeReference<>() {
+    };
+
+    private final OpenSearchGenericClient genericClient;
+    private final JsonpMapper mapper;
+    private final JsonpDeserializer<SearchResponse<T>> responseDeserializer;
+    private final ObjectNode body;
+    private final String keepAlive;
+    private final int minPageSize;
+    private final int maxPageSize;
+    private final long targetPageBytes;
+    private final boolean ownsPit;
+
+    private final ArrayDeque<Hit<T>> page = new ArrayDeque<>();
+    private String pitId;
+    private int pageSize;
+    private double bytesPerHit = 0;
+    private List<Object> searchAfter = null;
+    private boolean exhausted = false;
+    private boolean closed = false;
+
+    private long totalHits = -1;
+    private long pageCount = 0;
+    private long hitCount = 0;
+    private long responseBytes = 0;
+
+    private DocumentIterator(Builder<T> builder, ObjectNode body, String pitId) {
+        this.genericClient = builder.genericClient;
+        this.mapper = builder.genericClient._transport().jsonpMapper();
+        this.responseDeserializer = SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(builder.documentClass));
+        this.body = body;
+        this.keepAlive = builder.keepAlive;
+        this.minPageSize = builder.minPageSize;
+        this.maxPageSize = builder.maxPageSize;
+        this.targetPageBytes = builder.targetPageBytes;
+        this.pageSize = builder.pageSize;
+        this.pitId = pitId;
+        this.ownsPit = builder.sharedPitId == null;
+    }
+
+    /**
+     * @param genericClient 검색에 사용할 generic client
+     * @param request 검색 요청 - index 는 PIT 대상, routing/preference 는 PIT 생성에 사용 (scroll, search_after, from 은 지정할 수 없음)
+     * @param documentClass _source 를 변환할 클래스
+     */
+    public static <T> Builder<T> builder(OpenSearchGenericClient genericClient, SearchRequest request, Class<T> documentClass) {
+        return new Builder<>(genericClient, request, documentClass);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (page.isEmpty() && !exhausted) {
+            if (closed) {
+                throw new IllegalStateException("iterator is closed");
+            }
+            try {
+                fetch();
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+        return !page.isEmpty();
+    }
+
+    @Override
+    public Hit<T> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.poll();
+    }
+
+    /**
+     * 현재 페이지의 남은 hit 을 한 번에 반환 (다 읽었으면 다음 페이지를 요청, 마지막이면 빈 list)
+     */
+    List<Hit<T>> nextPage() {
+        if (!hasNext()) {
+            return List.of();
+        }
+        List<Hit<T>> hits = new ArrayList<>(page);
+        page.clear();
+        return hits;
+    }
+
+    /**
+     * 남은 hit 을 순서대로 반환하는 stream - Stream.close() 를 호출하면 PIT 를 삭제
+     */
+    public Stream<Hit<T>> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    /**
+     * 지금까지 받은 마지막 hit 의 정렬 값 - 응답 JSON 의 타입 그대로 (아직 없으면 startAfter 값)
+     */
+    List<Object> searchAfter() {
+        return searchAfter;
+    }
+
+    /**
+     * 첫 페이지의 전체 hit 수 (첫 페이지를 받기 전이거나 요청에서 track_total_hits 를 껐으면 -1)
+     */
+    public long getTotalHits() {
+        return totalHits;
+    }
+
+    /**
+     * 다음 페이지에 요청할 size
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * 지금까지 받은 페이지 수
+     */
+    public long getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * 지금까지 받은 hit 수
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * 지금까지 받은 응답 본문의 byte 수
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * PIT 삭제 - 마지막 페이지를 읽었으면 이미 삭제되어 있음
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        page.clear();
+        deletePit();
+    }
+
+    private void fetch() throws IOException {
+        ObjectNode pageBody = body.deepCopy();
+        pageBody.put("size", pageSize);
+        pageBody.putObject("pit").put("id", pitId).put("keep_alive", keepAlive);
+        if (searchAfter != null) {
+            pageBody.set("search_after", OBJECT_MAPPER.valueToTree(searchAfter));
+            // 전체 hit 수와 aggregations 는 첫 페이지에서만 계산
+            pageBody.put("track_total_hits", false);
+            pageBody.remove("aggregations");
+            pageBody.remove("aggs");
+        }
+
+        byte[] bytes;
+        try (Response response = genericClient.execute(Requests.builder()
+                .endpoint("/_search")
+                .method("POST")
+                .body(Body.from(OBJECT_MAPPER.writeValueAsBytes(pageBody), "application/json"))
+                .build())) {
+            bytes = response.getBody().orElseThrow(() -> new IOException("search response has no body")).bodyAsBytes();
+        }
+        SearchResponse<T> response = Bodies.json(Body.from(bytes, "application/json"), responseDeserializer, mapper);
+
+        if (response.shards().failed().intValue() > 0) {
+            // 실패한 shard 의 도큐먼트를 건너뛰지 않도록 중단
+            throw new IOException(response.shards().failed() + " of " + response.shards().total() + " shards failed");
+        }
+        if (response.pitId() != null) {
+            pitId = response.pitId();
+        }
+        if (pageCount == 0 && response.hits().total() != null) {
+            totalHits = response.hits().total().value();
+        }
+
+        List<Hit<T>> hits = response.hits().hits();
+        pageCount++;
+        hitCount += hits.size();
+        responseBytes += bytes.length;
+        page.addAll(hits);
+
+        if (!hits.isEmpty()) {
+            searchAfter = lastSortValues(bytes);
+        }
+        if (hits.size() < pageSize) {
+            // 요청한 size 보다 적게 왔으면 마지막 페이지
+            exhausted = true;
+            deletePit();
+            return;
+        }
+        adjustPageSize(bytes.length, hits.size());
+    }
+
+    /**
+     * 응답의 마지막 hit 의 sort 배열을 JSON 타입 그대로 읽음 - _source 는 트리로 만들지 않고 건너뜀 (SearchPublisher.searchAfter 에서도 사용)
+     */
+    static List<Object> lastSortValues(byte[] bytes) throws IOException {
+        List<Object> sort = null;
+        try (JsonParser parser = OBJECT_MAPPER.createParser(bytes)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT || !nextField(parser, "hits")
+                    || parser.nextToken() != JsonToken.START_OBJECT || !nextField(parser, "hits")
+                    || parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("search response has no hits");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    if (field.equals("sort")) {
+                        sort = parser.readValueAs(SORT_VALUES);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+        if (sort == null) {
+            throw new IOException("search response hit has no sort values");
+        }
+        return sort;
+    }
+
+    /**
+     * 현재 객체에서 name 필드까지 이동 (다른 필드는 건너뜀)
+     */
+    private static boolean nextField(JsonParser parser, String name) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            if (parser.currentName().equals(name)) {
+                return true;
+            }
+            parser.nextToken();
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    /**
+     * hit 하나의 평균 byte 수로 다음 페이지 size 계산 (이전 값과 절반씩 반영)
+     */
+    private void adjustPageSize(long bytes, int hits) {
+        double current = (double) bytes / hits;
+        bytesPerHit = bytesPerHit == 0 ? current : (bytesPerHit + current) / 2;
+        long size = (long) (targetPageBytes / bytesPerHit);
+        pageSize = (int) Math.max(minPageSize, Math.min(maxPageSize, size));
+    }
+
+    /**
+     * 이 iterator 가 만든 PIT 삭제 (SlicedExport 처럼 PIT 를 같이 쓰는 경우에는 만든 쪽에서 삭제)
+     */
+    private void deletePit() {
+        if (!ownsPit || pitId == null) {
+            return;
+        }
+        String id = pitId;
+        pitId = null;
+        deletePit(genericClient, id);
+    }
+
+    /**
+     * request 의 index 에 PIT 생성 - routing, preference 도 PIT 생성에 사용
+     * @return PIT id
+     */
+    static String createPit(OpenSearchGenericClient genericClient, SearchRequest request, String keepAlive) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("keep_alive", keepAlive);
+        if (request.routing() != null) {
+            parameters.put("routing", request.routing());
+        }
+        if (request.preference() != null) {
+            parameters.put("preference", request.preference());
+        }
+        try (Response response = genericClient.execute(Requests.builder()
+                .endpoint("/" + String.join(",", request.index()) + "/_search/point_in_time")
+                .method("POST")
+                .query(parameters)
+                .build())) {
+            Body body = response.getBody().orElseThrow(() -> new IOException("create pit response has no body"));
+            return Bodies.json(body, CreatePitResponse._DESERIALIZER, genericClient._transport().jsonpMapper()).pitId();
+        }
+    }
+
+    /**
+     * PIT 삭제 - 실패하면 출력만 함 (keep_alive 가 지나면 서버에서 삭제됨)
+     */
+    static void deletePit(OpenSearchGenericClient genericClient, String id) {
+        ObjectNode deleteBody = OBJECT_MAPPER.createObjectNode();
+        deleteBody.putArray("pit_id").add(id);
+        try {
+            genericClient.execute(Requests.builder()
+                    .endpoint("/_search/point_in_time")
+                    .method("DELETE")
+                    .body(Body.from(OBJECT_MAPPER.writeValueAsBytes(deleteBody), "application/json"))
+                    .build()).close();
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Failed to delete point in time: " + e.getMessage());
+        }
+    }
+
+    public static class Builder<T> {
+        private final OpenSearchGenericClient genericClient;
+        private final SearchRequest request;
+        private final Class<T> documentClass;
+        private String keepAlive = "1m";
+        private String tiebreaker = "_id";
+        private int sliceId = 0;
+        private int maxSlices = 1;
+        private String sharedPitId = null;
+        private List<Object> startAfter = null;
+        private int pageSize = 500;
+        private int minPageSize = 50;
+        private int maxPageSize = 5000;
+        private long targetPageBytes = 2 * 1024 * 1024;
+
+        private Builder(OpenSearchGenericClient genericClient, SearchRequest request, Class<T> documentClass) {
+            this.genericClient = genericClient;
+            this.request = request;
+            this.documentClass = documentClass;
+        }
+
+        /**
+         * PIT 유지 시간 - 페이지를 요청할 때마다 연장됨 (기본 1m)
+         */
+        public Builder<T> keepAlive(String keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        /**
+         * 정렬 마지막에 붙일 유일한 값의 필드 (기본 _id) - 요청의 정렬에 이미 있으면 붙이지 않음
+         */
+        public Builder<T> tiebreaker(String tiebreaker) {
+            this.tiebreaker = tiebreaker;
+            return this;
+        }
+
+        /**
+         * 검색 결과를 maxSlices 개로 나눈 것 중 sliceId 번째만 읽음 (기본 나누지 않음)
+         */
+        public Builder<T> slice(int sliceId, int maxSlices) {
+            this.sliceId = sliceId;
+            this.maxSlices = maxSlices;
+            return this;
+        }
+
+        /**
+         * 이 정렬 값 다음부터 읽음 - ExportCheckpoint 에 저장한 search_after 로 다시 시작할 때 사용 (null 이면 처음부터)
+         */
+        public Builder<T> startAfter(List<Object> sortValues) {
+            this.startAfter = sortValues;
+            return this;
+        }
+
+        /**
+         * 이미 만든 PIT 를 사용 - iterator 는 이 PIT 를 삭제하지 않음
+         */
+        Builder<T> sharedPit(String pitId) {
+            this.sharedPitId = pitId;
+            return this;
+        }
+
+        /**
+         * 첫 페이지의 size (기본 500)
+         */
+        public Builder<T> pageSize(int pageSize) {
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * 응답 크기로 조절하는 size 의 범위 (기본 50 ~ 5000)
+         */
+        public Builder<T> pageSizeRange(int minPageSize, int maxPageSize) {
+            this.minPageSize = minPageSize;
+            this.maxPageSize = maxPageSize;
+            return this;
+        }
+
+        /**
+         * 페이지 응답 본문의 목표 크기 (기본 2MB, 0 이하면 size 를 바꾸지 않음)
+         */
+        public Builder<T> targetPageBytes(long targetPageBytes) {
+            this.targetPageBytes = targetPageBytes;
+            return this;
+        }
+
+        /**
+         * PIT 를 생성한 후 iterator 생성 - 첫 페이지는 hasNext() 에서 요청
+         */
+        public DocumentIterator<T> build() throws IOException {
+            if (request.index().isEmpty()) {
+                throw new IllegalArgumentException("request must have target indices");
+            }
+            if (request.scroll() != null || !request.searchAfter().isEmpty() || request.pit() != null) {
+                throw new IllegalArgumentException("request must not have scroll, search_after or pit");
+            }
+            if (request.from() != null && request.from() > 0) {
+                throw new IllegalArgumentException("request must not have from");
+            }
+            if (minPageSize <= 0 || minPageSize > maxPageSize) {
+                throw new IllegalArgumentException("invalid page size range: " + minPageSize + " ~ " + maxPageSize);
+            }
+            if (maxSlices <= 0 || sliceId < 0 || sliceId >= maxSlices) {
+                throw new IllegalArgumentException("invalid slice: " + sliceId + " of " + maxSlices);
+            }
+            if (pageSize <= 0) {
+                throw new IllegalArgumentException("pageSize must be positive");
+            }
+            if (targetPageBytes <= 0) {
+                // 범위를 첫 페이지 size 로 고정
+                minPageSize = pageSize;
+                maxPageSize = pageSize;
+            }
+
+            ObjectNode body = (ObjectNode) OBJECT_MAPPER.readTree(OpenSearchUtil.convertToJson(request));
+            body.remove("from");
+            ArrayNode sort = body.has("sort") ? (ArrayNode) body.get("sort") : body.putArray("sort");
+            if (!hasSortField(sort, tiebreaker)) {
+                sort.addObject().putObject(tiebreaker).put("order", "asc");
+            }
+            if (maxSlices > 1) {
+                // slice 의 max 는 2 이상이어야 함
+                body.putObject("slice").put("id", sliceId).put("max", maxSlices);
+            }
+
+            String pitId = sharedPitId != null ? sharedPitId : createPit(genericClient, request, keepAlive);
+            DocumentIterator<T> iterator = new DocumentIterator<>(this, body, pitId);
+            iterator.searchAfter = startAfter;
+            return iterator;
+        }
+
+        // 정렬 항목은 "field", {"field": "asc"}, {"field": {"order": "asc"}} 형식
+        private static boolean hasSortField(ArrayNode sort, String field) {
+            for (int i = 0; i < sort.size(); i++) {
+                if (sort.get(i).isTextual() ? sort.get(i).asText().equals(field) : sort.get(i).has(field)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
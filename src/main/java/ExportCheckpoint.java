@@ -0,0 +1,222 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.opensearch.client.opensearch._types.FieldValue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 오래 걸리는 export 를 중간부터 다시 시작할 수 있도록 cursor 상태를 파일에 저장하는 checkpoint <br><br>
+ * scroll id 는 프로그램의 지역 변수에만 있어서 export 가 중간에 실패하면 처음부터 다시 읽어야 합니다.
+ * checkpoint 는 다음 페이지를 요청하는 데 필요한 값만 JSON 파일로 저장합니다. <br>
+ * - slice 마다 마지막으로 sink 에 넘긴 hit 의 정렬 값(search_after)과 완료 여부 <br>
+ * - composite aggregation 의 마지막 after_key <br>
+ * - 출력 파일에서 마지막으로 다 쓴 위치(outputOffset)와 행 수 <br>
+ * save() 는 임시 파일에 쓴 후 이름을 바꾸므로(atomic move) 저장 중에 멈춰도 이전 checkpoint 가 남습니다. <br><br>
+ * 다시 시작할 때는 출력 파일을 outputOffset 까지 자르고(ColumnarFileWriter.append) 각 slice 를 저장된 search_after 다음부터 읽으므로,
+ * checkpoint 이후에 썼던 페이지는 한 번만 다시 읽고 중복되지 않습니다. PIT 는 새로 만들기 때문에 중단된 동안 바뀐 도큐먼트는 반영될 수 있습니다.
+ *
+ * <pre>
+ * ExportCheckpoint checkpoint = ExportCheckpoint.open(Path.of("export.checkpoint"));
+ * ColumnarFileWriter writer = checkpoint.outputOffset() &gt; 0
+ *         ? ColumnarFileWriter.append(path, columns, checkpoint.outputOffset())
+ *         : ColumnarFileWriter.create(path, columns);
+ * SlicedExport.builder(genericClient).checkpoint(checkpoint).build().export(request, Void.class, writer.sink(columns));
+ * </pre>
+ */
+public class ExportCheckpoint {
+
+    /**
+     * slice 하나의 상태
+     * @param searchAfter 마지막으로 sink 에 넘긴 hit 의 정렬 값 - 응답 JSON 의 타입 그대로 (아직 없으면 null)
+     * @param done slice 를 끝까지 읽었는지
+     */
+    public record SliceState(List<Object> searchAfter, boolean done) {
+    }
+
+    /**
+     * 파일에 저장하는 내용
+     */
+    private record State(int slices, Map<Integer, SliceState> sliceStates, Map<String, Object> afterKey,
+                         long outputOffset, long rowCount, boolean completed, long updatedAt) {
+    }
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Path path;
+    private final boolean resumed;
+
+    private int slices = 0;
+    private final Map<Integer, SliceState> sliceStates = new HashMap<>();
+    private Map<String, Object> afterKey = null;
+    private long outputOffset = 0;
+    private long rowCount = 0;
+    private boolean completed = false;
+
+    private ExportCheckpoint(Path path, State state) {
+        this.path = path;
+        this.resumed = state != null;
+        if (state != null) {
+            this.slices = state.slices();
+            if (state.sliceStates() != null) {
+                this.sliceStates.putAll(state.sliceStates());
+            }
+            this.afterKey = state.afterKey();
+            this.outputOffset = state.outputOffset();
+            this.rowCount = state.rowCount();
+            this.completed = state.completed();
+        }
+    }
+
+    /**
+     * checkpoint 파일이 있으면 읽고, 없으면 빈 checkpoint 생성 (save() 할 때 파일을 만듦)
+     * @param path checkpoint 파일
+     */
+    public static ExportCheckpoint open(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return new ExportCheckpoint(path, null);
+        }
+        return new ExportCheckpoint(path, OBJECT_MAPPER.readValue(path.toFile(), State.class));
+    }
+
+    /**
+     * 저장된 checkpoint 를 읽었는지 (다시 시작하는 export 인지)
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    /**
+     * export 를 끝까지 마쳤는지
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * 저장된 slice 수 (slice 로 나누지 않았거나 처음이면 0)
+     */
+    public int slices() {
+        return slices;
+    }
+
+    /**
+     * slice 의 상태 (처음이면 null)
+     */
+    public SliceState sliceState(int slice) {
+        return sliceStates.get(slice);
+    }
+
+    /**
+     * composite aggregation 의 마지막 after_key - 값은 String, 정수(Integer 또는 Long), Double, Boolean (처음이면 null)
+     */
+    public Map<String, Object> afterKey() {
+        return afterKey;
+    }
+
+    /**
+     * composite aggregation 의 마지막 after_key 를 CompositePager.Builder.after() 에 넘길 FieldValue 로 반환 (처음이면 null)
+     */
+    public Map<String, FieldValue> afterKeyValues() {
+        if (afterKey == null) {
+            return null;
+        }
+        Map<String, FieldValue> values = new LinkedHashMap<>();
+        afterKey.forEach((key, value) -> values.put(key, toFieldValue(value)));
+        return values;
+    }
+
+    /**
+     * 출력 파일에서 마지막으로 다 쓴 위치 (처음이면 0)
+     */
+    public long outputOffset() {
+        return outputOffset;
+    }
+
+    /**
+     * 지금까지 출력한 행 수
+     */
+    public long rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * slice 수 기록 - 다시 시작할 때는 저장된 slice 수와 같아야 같은 도큐먼트가 같은 slice 에 들어감
+     */
+    public void startSlices(int slices) {
+        if (this.slices > 0 && this.slices != slices) {
+            throw new IllegalStateException("checkpoint has " + this.slices + " slices, not " + slices);
+        }
+        this.slices = slices;
+    }
+
+    /**
+     * slice 에서 sink 에 넘긴 마지막 hit 의 정렬 값 기록
+     */
+    public void updateSlice(int slice, List<Object> searchAfter, boolean done) {
+        sliceStates.put(slice, new SliceState(searchAfter, done));
+    }
+
+    /**
+     * composite aggregation 의 after_key 기록 - CompositePager.afterKey() 의 값을 타입 그대로 저장
+     */
+    public void updateAfterKeyValues(Map<String, FieldValue> afterKey) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        afterKey.forEach((key, value) -> values.put(key, value.isNull() ? null : value._get()));
+        this.afterKey = values;
+    }
+
+    /**
+     * 출력 파일의 위치와 지금까지 출력한 행 수 기록
+     */
+    public void updateOutput(long outputOffset, long rowCount) {
+        this.outputOffset = outputOffset;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * export 완료 기록
+     */
+    public void complete() {
+        this.completed = true;
+    }
+
+    /**
+     * 파일에 저장 - 임시 파일에 쓴 후 이름을 바꿈
+     */
+    public void save() throws IOException {
+        State state = new State(slices, sliceStates, afterKey, outputOffset, rowCount, completed, System.currentTimeMillis());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        OBJECT_MAPPER.writeValue(temp.toFile(), state);
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * checkpoint 파일 삭제
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    // JSON 에서 읽은 작은 정수는 Integer 이므로 Double, Float 외의 숫자는 long 으로 변환
+    private static FieldValue toFieldValue(Object value) {
+        if (value == null) {
+            return FieldValue.NULL;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return FieldValue.of(((Number) value).doubleValue());
+        }
+        if (value instanceof Number) {
+            return FieldValue.of(((Number) value).longValue());
+        }
+        if (value instanceof Boolean) {
+            return FieldValue.of((Boolean) value);
+        }
+        return FieldValue.of(value.toString());
+    }
+}
@@ -0,0 +1,203 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.HealthStatus;
+import org.opensearch.client.opensearch.cluster.HealthResponse;
+import org.opensearch.client.opensearch.generic.Body;
+import org.opensearch.client.opensearch.generic.Requests;
+import org.opensearch.client.opensearch.generic.Response;
+import org.opensearch.client.opensearch.indices.GetIndicesSettingsResponse;
+import org.opensearch.client.opensearch.indices.IndexSettings;
+import org.opensearch.client.opensearch.indices.IndexState;
+
+import java.io.IOException;
+
+/**
+ * 대량 입력 동안 인덱스의 refresh 와 replica 를 꺼두는 세션 <br><br>
+ * 요청마다 Refresh.True 를 주면 요청마다 세그먼트가 새로 만들어지고, replica 가 있으면 같은 색인 작업을 replica 에서도 반복합니다. <br>
+ * 세션을 열면 대상 인덱스를 refresh_interval=-1, number_of_replicas=0 으로 바꾸고,
+ * 세션을 닫으면 (입력이 중간에 실패해도) 원래 설정으로 되돌린 후 refresh 를 한 번 실행하고 replica 가 복제되어 green 이 될 때까지 기다립니다. <br>
+ * 세션 전에 인덱스에 지정되지 않았던 설정은 null 로 되돌려서, 다시 template 이나 기본값을 따르도록 합니다.
+ *
+ * <pre>
+ * FastIngestSession.run(client, "sample-index", () -> bulkSample.bulkIngest(asyncClient, "sample-index"));
+ * </pre>
+ */
+public class FastIngestSession implements AutoCloseable {
+
+    /**
+     * 세션 안에서 실행할 입력 작업
+     */
+    @FunctionalInterface
+    public interface IngestTask {
+        void ingest() throws Exception;
+    }
+
+    private static final String DEFAULT_REFRESH_INTERVAL = "1s";
+    private static final String DEFAULT_NUMBER_OF_REPLICAS = "1";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final OpenSearchClient client;
+    private final String indexName;
+    // 인덱스에 지정되어 있던 값 (지정되지 않았으면 null - 닫을 때 null 로 되돌림)
+    private final String originalRefreshInterval;
+    private final String originalNumberOfReplicas;
+    // 세션 전에 실제로 적용되던 값 (지정되지 않았으면 기본값)
+    private final String effectiveRefreshInterval;
+    private final String effectiveNumberOfReplicas;
+    private String greenTimeout = "60s";
+    private boolean closed = false;
+
+    private FastIngestSession(OpenSearchClient client, String indexName, IndexState state) {
+        this.client = client;
+        this.indexName = indexName;
+        this.originalRefreshInterval = refreshIntervalOf(state.settings());
+        this.originalNumberOfReplicas = numberOfReplicasOf(state.settings());
+        this.effectiveRefreshInterval = effective(originalRefreshInterval, refreshIntervalOf(state.defaults()), DEFAULT_REFRESH_INTERVAL);
+        this.effectiveNumberOfReplicas = effective(originalNumberOfReplicas, numberOfReplicasOf(state.defaults()), DEFAULT_NUMBER_OF_REPLICAS);
+    }
+
+    /**
+     * 현재 설정을 저장하고 refresh_interval=-1, number_of_replicas=0 으로 변경
+     * @param client OpenSearchClient
+     * @param indexName 대상 인덱스
+     * @return FastIngestSession
+     */
+    public static FastIngestSession open(OpenSearchClient client, String indexName) throws IOException {
+        GetIndicesSettingsResponse response = client.indices().getSettings(g -> g
+                .index(indexName)
+                .includeDefaults(true)
+        );
+        IndexState state = response.result().get(indexName);
+        if (state == null) {
+            throw new IOException("index not found: " + indexName);
+        }
+
+        FastIngestSession session = new FastIngestSession(client, indexName, state);
+        session.putSettings("-1", "0");
+        System.out.printf("Fast ingest started on %s (refresh_interval: %s -> -1, number_of_replicas: %s -> 0)%n",
+                indexName, session.effectiveRefreshInterval, session.effectiveNumberOfReplicas);
+        return session;
+    }
+
+    /**
+     * 세션을 열고 task 를 실행한 후, task 의 성공/실패와 관계없이 설정을 되돌림 <br>
+     * task 가 실패하면 그 예외를 던지고, 설정을 되돌리다 난 예외는 suppressed 로 붙임
+     * @param client OpenSearchClient
+     * @param indexName 대상 인덱스
+     * @param task 입력 작업
+     */
+    public static void run(OpenSearchClient client, String indexName, IngestTask task) throws Exception {
+        FastIngestSession session = open(client, indexName);
+        try {
+            task.ingest();
+        } catch (Throwable t) {
+            // 설정을 되돌리다 실패해도 입력 작업의 예외가 가려지지 않도록 suppressed 로 붙임
+            try {
+                session.close();
+            } catch (Exception e) {
+                t.addSuppressed(e);
+            }
+            throw t;
+        }
+        session.close();
+    }
+
+    /**
+     * 세션 종료 시 green 상태를 기다릴 최대 시간 (기본 60s)
+     * @param greenTimeout 예: "30s", "2m"
+     * @return FastIngestSession
+     */
+    public FastIngestSession greenTimeout(String greenTimeout) {
+        this.greenTimeout = greenTimeout;
+        return this;
+    }
+
+    /**
+     * 원래 설정으로 되돌리고 (지정되지 않았던 설정은 null), refresh 후 green 상태가 될 때까지 대기
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        putSettings(originalRefreshInterval, originalNumberOfReplicas);
+        client.indices().refresh(r -> r.index(indexName));
+
+        HealthResponse health = client.cluster().health(h -> h
+                .index(indexName)
+                .waitForStatus(HealthStatus.Green)
+                .timeout(t -> t.time(greenTimeout))
+        );
+        if (health.timedOut()) {
+            System.out.printf("Fast ingest finished on %s, but the index is still %s after %s%n", indexName, health.status(), greenTimeout);
+        } else {
+            System.out.printf("Fast ingest finished on %s (status: %s)%n", indexName, health.status());
+        }
+    }
+
+    /**
+     * 인덱스 설정 변경 - null 은 설정을 지워서 template 이나 기본값을 따르게 함 <br>
+     * IndexSettings 는 null 필드를 보내지 않으므로 generic client 로 JSON 을 직접 보냄
+     */
+    private void putSettings(String refreshInterval, String numberOfReplicas) throws IOException {
+        ObjectNode body = OBJECT_MAPPER.createObjectNode();
+        ObjectNode index = body.putObject("index");
+        index.put("refresh_interval", refreshInterval);
+        index.put("number_of_replicas", numberOfReplicas);
+        try (Response response = client.generic().execute(Requests.builder()
+                .endpoint("/" + indexName + "/_settings")
+                .method("PUT")
+                .body(Body.from(OBJECT_MAPPER.writeValueAsBytes(body), "application/json"))
+                .build())) {
+            if (response.getStatus() >= 300) {
+                String reason = response.getBody().map(Body::bodyAsString).orElse(response.getReason());
+                throw new IOException("failed to update settings of " + indexName + ": " + reason);
+            }
+        }
+    }
+
+    private static String effective(String value, String defaultValue, String fallback) {
+        if (value != null) {
+            return value;
+        }
+        return defaultValue != null ? defaultValue : fallback;
+    }
+
+    // 응답의 설정은 {"index": {...}} 아래에 있으므로 index() 를 먼저 확인
+    private static String refreshIntervalOf(IndexSettings settings) {
+        if (settings == null) {
+            return null;
+        }
+        if (settings.index() != null && settings.index().refreshInterval() != null) {
+            return settings.index().refreshInterval()._toJsonString();
+        }
+        return settings.refreshInterval() != null ? settings.refreshInterval()._toJsonString() : null;
+    }
+
+    private static String numberOfReplicasOf(IndexSettings settings) {
+        if (settings == null) {
+            return null;
+        }
+        if (settings.index() != null && settings.index().numberOfReplicas() != null) {
+            return settings.index().numberOfReplicas();
+        }
+        return settings.numberOfReplicas();
+    }
+
+    /**
+     * 세션 전에 인덱스에 지정되어 있던 refresh_interval (지정되지 않았으면 null)
+     */
+    public String getOriginalRefreshInterval() {
+        return originalRefreshInterval;
+    }
+
+    /**
+     * 세션 전에 인덱스에 지정되어 있던 number_of_replicas (지정되지 않았으면 null)
+     */
+    public String getOriginalNumberOfReplicas() {
+        return originalNumberOfReplicas;
+    }
+}
@@ -0,0 +1,322 @@
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.FieldValue;
+import org.opensearch.client.opensearch._types.aggregations.Aggregate;
+import org.opensearch.client.opensearch._types.aggregations.Aggregation;
+import org.opensearch.client.opensearch._types.aggregations.StatsAggregate;
+import org.opensearch.client.opensearch._types.aggregations.StringTermsBucket;
+import org.opensearch.client.opensearch.cat.IndicesRequest;
+import org.opensearch.client.opensearch.cat.indices.IndicesRecord;
+import org.opensearch.client.opensearch.core.SearchRequest;
+import org.opensearch.client.opensearch.core.SearchResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 인덱스마다 시간 필드(ctime, endTime 등)의 최소/최대 값을 캐시해두고, 검색 기간과 겹치지 않는 인덱스를 검색 전에 빼는 캐시 <br><br>
+ * 일별 인덱스를 기간으로 검색하면 날짜로 만든 인덱스 이름 전부에 요청이 가지만, 실제로는 기간 안의 도큐먼트가 없는 인덱스가 많습니다. <br>
+ * 캐시는 인덱스 패턴 전체에 size 0 검색 한 번으로 채웁니다. _index 필드의 terms aggregation 아래에 시간 필드마다 stats 를 두면
+ * 인덱스별 최소/최대 시간이 한 번에 나옵니다. 도큐먼트가 없는 인덱스는 결과에 없으므로 캐시에 넣지 않습니다.
+ * (오늘 만든 인덱스처럼 집계한 후에 도큐먼트가 들어올 수 있음) 실패한 shard 가 있거나 timeout 이면 집계 결과를 버리고 이전 캐시를 유지합니다. <br>
+ * 주기적인 refresh() 는 _cat/indices 로 인덱스 목록만 다시 읽고, 최대 시간이 sealAfterMillis 보다 오래된(더 이상 쓰지 않는) 인덱스는
+ * 다시 집계하지 않고 나머지 인덱스만 집계합니다. refreshAll() 은 모든 인덱스를 다시 집계합니다. <br><br>
+ * prune() 은 안전한 쪽으로 판단합니다. 캐시에 없는 인덱스(마지막 refresh 이후 생성, 빈 인덱스 등)와 시간 필드 값이 없는 인덱스는 남기고,
+ * 최소/최대 시간이 검색 기간과 겹치지 않는 인덱스만 뺍니다. 존재하지 않는 인덱스도 캐시에 없으므로 남깁니다. <br>
+ * 아직 쓰고 있는 인덱스(최대 시간이 sealAfterMillis 안)는 refresh 사이에 새 도큐먼트가 들어와서 캐시한 범위가 맞지 않을 수 있으므로 빼지 않습니다.
+ *
+ * <pre>
+ * IndexTimeRangeCache cache = IndexTimeRangeCache.builder(client).indexPattern("enduser-info-*").timeFields("ctime", "endTime").build();
+ * List&lt;String&gt; indices = cache.prune(search.indices(from, to), "endTime", from, to);
+ * </pre>
+ */
+public class IndexTimeRangeCache implements AutoCloseable {
+
+    /**
+     * 인덱스의 시간 필드 최소/최대 값 (epoch millis)
+     */
+    public record TimeRange(long min, long max) {
+
+        boolean overlaps(long fromMillis, long toMillis) {
+            return min <= toMillis && max >= fromMillis;
+        }
+    }
+
+    /**
+     * 도큐먼트가 있는 인덱스 하나의 캐시 항목 - 시간 필드 값이 없는 도큐먼트만 있으면 ranges 가 비어 있음
+     */
+    private record IndexEntry(Map<String, TimeRange> ranges) {
+
+        long maxTime() {
+            long max = Long.MIN_VALUE;
+            for (TimeRange range : ranges.values()) {
+                max = Math.max(max, range.max());
+            }
+            return max;
+        }
+
+        /**
+         * 최대 시간이 sealedBefore 보다 오래되어 더 이상 쓰지 않는 인덱스인지 - 이때만 캐시한 범위를 믿을 수 있음
+         */
+        boolean sealed(long sealedBefore) {
+            return !ranges.isEmpty() && maxTime() < sealedBefore;
+        }
+    }
+
+    private final OpenSearchClient client;
+    private final String indexPattern;
+    private final List<String> timeFields;
+    private final long sealAfterMillis;
+    private final ScheduledExecutorService scheduler;
+
+    // refresh 할 때마다 새 map 으로 교체
+    private volatile Map<String, IndexEntry> entries = Map.of();
+
+    private final AtomicLong checkedIndexCount = new AtomicLong();
+    private final AtomicLong prunedIndexCount = new AtomicLong();
+
+    private IndexTimeRangeCache(Builder builder) {
+        this.client = builder.client;
+        this.indexPattern = builder.indexPattern;
+        this.timeFields = builder.timeFields;
+        this.sealAfterMillis = builder.sealAfterMillis;
+
+        if (builder.refreshIntervalMillis > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "index-time-range-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::refresh, builder.refreshIntervalMillis, builder.refreshIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    public static Builder builder(OpenSearchClient client) {
+        return new Builder(client);
+    }
+
+    /**
+     * 검색 기간에 해당하는 도큐먼트가 있을 수 있는 인덱스만 반환 (순서 유지)
+     * @param indices 검색할 인덱스
+     * @param timeField 검색 기간의 기준 시간 필드
+     * @param fromMillis 시작 시간 (epoch millis)
+     * @param toMillis 종료 시간 (epoch millis)
+     * @return 남은 인덱스
+     */
+    public List<String> prune(List<String> indices, String timeField, long fromMillis, long toMillis) {
+        Map<String, IndexEntry> snapshot = entries;
+        long sealedBefore = System.currentTimeMillis() - sealAfterMillis;
+        List<String> result = new ArrayList<>();
+        for (String index : indices) {
+            IndexEntry entry = snapshot.get(index);
+            boolean keep;
+            if (entry == null || !entry.sealed(sealedBefore)) {
+                keep = true;
+            } else {
+                TimeRange range = entry.ranges().get(timeField);
+                keep = range == null || range.overlaps(fromMillis, toMillis);
+            }
+            if (keep) {
+                result.add(index);
+            }
+        }
+        checkedIndexCount.addAndGet(indices.size());
+        prunedIndexCount.addAndGet(indices.size() - result.size());
+        return result;
+    }
+
+    /**
+     * 캐시된 인덱스의 시간 범위
+     * @param index 인덱스 이름
+     * @param timeField 시간 필드
+     * @return 시간 범위 (캐시에 없거나 값이 없으면 null)
+     */
+    public TimeRange range(String index, String timeField) {
+        IndexEntry entry = entries.get(index);
+        return entry == null ? null : entry.ranges().get(timeField);
+    }
+
+    /**
+     * 인덱스 목록을 다시 읽고, 아직 쓰고 있을 수 있는 인덱스의 시간 범위만 다시 집계
+     */
+    public synchronized void refresh() {
+        try {
+            Map<String, IndexEntry> current = entries;
+            long sealedBefore = System.currentTimeMillis() - sealAfterMillis;
+            Set<String> existing = listIndices();
+
+            Map<String, IndexEntry> updated = new HashMap<>();
+            List<String> toLoad = new ArrayList<>();
+            for (String index : existing) {
+                IndexEntry entry = current.get(index);
+                if (entry != null && entry.sealed(sealedBefore)) {
+                    updated.put(index, entry);
+                } else {
+                    toLoad.add(index);
+                }
+            }
+            updated.putAll(load(toLoad));
+            entries = updated;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Failed to refresh index time ranges: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 모든 인덱스의 시간 범위를 다시 집계 (삭제된 도큐먼트나 늦게 들어온 과거 데이터 반영)
+     */
+    public synchronized void refreshAll() throws IOException {
+        entries = load(new ArrayList<>(listIndices()));
+    }
+
+    /**
+     * prune() 으로 확인한 인덱스 수
+     */
+    public long getCheckedIndexCount() {
+        return checkedIndexCount.get();
+    }
+
+    /**
+     * prune() 으로 뺀 인덱스 수
+     */
+    public long getPrunedIndexCount() {
+        return prunedIndexCount.get();
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private Set<String> listIndices() throws IOException {
+        Set<String> indices = new HashSet<>();
+        for (IndicesRecord record : client.cat().indices(new IndicesRequest.Builder().index(indexPattern).build()).valueBody()) {
+            indices.add(record.index());
+        }
+        return indices;
+    }
+
+    /**
+     * _index 별 terms aggregation 아래에 시간 필드마다 stats(count, min, max)를 두고 size 0 으로 검색
+     */
+    private Map<String, IndexEntry> load(List<String> indices) throws IOException {
+        Map<String, IndexEntry> loaded = new HashMap<>();
+        if (indices.isEmpty()) {
+            return loaded;
+        }
+        Map<String, Aggregation> subAggregations = new HashMap<>();
+        for (String field : timeFields) {
+            subAggregations.put(field, Aggregation.of(a -> a.stats(m -> m.field(field))));
+        }
+        List<FieldValue> indexValues = new ArrayList<>();
+        indices.forEach(index -> indexValues.add(FieldValue.of(index)));
+
+        // 인덱스 이름을 URL 에 나열하지 않고 패턴으로 검색하면서 _index 로 거름 (해당하지 않는 shard 는 건너뜀)
+        SearchRequest request = SearchRequest.of(s -> s
+                .index(indexPattern)
+                .size(0)
+                .ignoreUnavailable(true)
+                .allowNoIndices(true)
+                .query(q -> q.terms(t -> t.field("_index").terms(v -> v.value(indexValues))))
+                .aggregations("indices", a -> a
+                        .terms(t -> t.field("_index").size(indices.size()))
+                        .aggregations(subAggregations)));
+        SearchResponse<Void> response = client.search(request, Void.class);
+        // 일부 shard 의 결과가 빠지면 도큐먼트가 있는 인덱스를 잘못 뺄 수 있으므로 결과 전체를 버림
+        if (response.shards().failed().intValue() > 0) {
+            throw new IOException(response.shards().failed() + " of " + response.shards().total() + " shards failed");
+        }
+        if (response.timedOut()) {
+            throw new IOException("time range search timed out");
+        }
+
+        Aggregate aggregate = response.aggregations().get("indices");
+        if (aggregate != null) {
+            for (StringTermsBucket bucket : aggregate.sterms().buckets().array()) {
+                Map<String, TimeRange> ranges = new HashMap<>();
+                for (String field : timeFields) {
+                    // 값이 없으면 min/max 가 null 이므로 count 로 확인
+                    StatsAggregate stats = bucket.aggregations().get(field).stats();
+                    if (stats.count() > 0) {
+                        ranges.put(field, new TimeRange((long) stats.min(), (long) stats.max()));
+                    }
+                }
+                loaded.put(bucket.key(), new IndexEntry(ranges));
+            }
+        }
+        return loaded;
+    }
+
+    public static class Builder {
+        private final OpenSearchClient client;
+        private String indexPattern = "enduser-info-*";
+        private List<String> timeFields = List.of("ctime", "endTime");
+        private long sealAfterMillis = 2 * 24 * 60 * 60 * 1000L;
+        private long refreshIntervalMillis = 60_000;
+
+        private Builder(OpenSearchClient client) {
+            this.client = client;
+        }
+
+        /**
+         * 캐시할 인덱스 패턴 (기본 enduser-info-*)
+         */
+        public Builder indexPattern(String indexPattern) {
+            this.indexPattern = indexPattern;
+            return this;
+        }
+
+        /**
+         * 최소/최대 값을 캐시할 시간 필드 (기본 ctime, endTime)
+         */
+        public Builder timeFields(String... timeFields) {
+            this.timeFields = List.of(timeFields);
+            return this;
+        }
+
+        /**
+         * 최대 시간이 이 시간보다 오래된 인덱스는 refresh() 에서 다시 집계하지 않음 (기본 2일) - 이보다 최근인 인덱스는 prune() 에서 빼지 않음
+         */
+        public Builder sealAfterMillis(long sealAfterMillis) {
+            this.sealAfterMillis = sealAfterMillis;
+            return this;
+        }
+
+        /**
+         * refresh() 주기 (기본 60000ms, 0 이하면 자동으로 refresh 하지 않음)
+         */
+        public Builder refreshIntervalMillis(long refreshIntervalMillis) {
+            this.refreshIntervalMillis = refreshIntervalMillis;
+            return this;
+        }
+
+        /**
+         * 모든 인덱스의 시간 범위를 읽은 후 캐시 생성
+         */
+        public IndexTimeRangeCache build() throws IOException {
+            if (timeFields.isEmpty()) {
+                throw new IllegalArgumentException("at least one time field is required");
+            }
+            IndexTimeRangeCache cache = new IndexTimeRangeCache(this);
+            try {
+                cache.refreshAll();
+            } catch (IOException | RuntimeException e) {
+                cache.close();
+                throw e;
+            }
+            return cache;
+        }
+    }
+}
@@ -1,3 +1,4 @@
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.opensearch.client.opensearch.OpenSearchAsyncClient;
 import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch._types.OpenSearchVersionInfo;
@@ -5,6 +6,7 @@ import org.opensearch.client.opensearch.generic.OpenSearchClientException;
 import org.opensearch.client.opensearch.generic.OpenSearchGenericClient;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -17,6 +19,12 @@ public class Main {
         OpenSearchClient client = OpenSearchConnectionManager.getInstance(host, port).getClient();
         OpenSearchAsyncClient asyncClient = OpenSearchConnectionManager.getInstance(host, port).getAsyncClient();
         OpenSearchGenericClient genericClient = OpenSearchConnectionManager.getInstance(host, port).getGenericClient();
+        // 검색용 client (쓰기용과 별도의 커넥션 풀 사용)
+        OpenSearchClient readClient = OpenSearchConnectionManager.getInstance(host, port).getReadClient();
+        OpenSearchAsyncClient readAsyncClient = OpenSearchConnectionManager.getInstance(host, port).getReadAsyncClient();
+        OpenSearchGenericClient readGenericClient = OpenSearchConnectionManager.getInstance(host, port).getReadGenericClient();
+        // 전체 결과를 읽는 export 용 (읽기용 풀, 긴 응답 타임아웃)
+        OpenSearchGenericClient exportGenericClient = OpenSearchConnectionManager.getInstance(host, port).getExportGenericClient();
 
         try {
             // OpenSearch 버전 확인
@@ -37,15 +45,25 @@ public class Main {
         BulkSample bulkSample = new BulkSample(client);
         bulkSample.bulkInsert("sample-index");
         bulkSample.bulkUpsert("sample-index");
+        bulkSample.bulkUpsertCoalesced(asyncClient, "sample-index");
+        // 대량 입력 동안 refresh, replica 를 끄고, 입력이 끝나면 원래 설정으로 되돌리기
+        try {
+            FastIngestSession.run(client, "sample-index", () -> bulkSample.bulkIngest(asyncClient, "sample-index"));
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+        }
+        bulkSample.bulkInsertRaw(genericClient, "sample-index");
 
         // 도큐먼트 아이디를 이용한 단일 도큐먼트 테스트
         SingleDocumentSample sdSample = new SingleDocumentSample(client, asyncClient);
         sdSample.deleteDocument("sample-index", "doc1"); // 도큐먼트 삭제하기
         sdSample.singleDocumentDSLwithOf("sample-index", "doc1"); // 도큐먼트 생성 혹은 갱신
         sdSample.retrieveSingleDocument("sample-index", "doc1"); // 도큐먼트 읽어오기
+        String generatedId = sdSample.singleDocumentWithGeneratedId("sample-index"); // 클라이언트에서 생성한 아이디로 입력
+        sdSample.retrieveSingleDocument("sample-index", generatedId);
 
         // 도큐먼트 searchWithTerm 테스트
-        SearchDocumentsSample searchSample = new SearchDocumentsSample(client);
+        SearchDocumentsSample searchSample = new SearchDocumentsSample(readClient);
         searchSample.searchWithTerm("sample-index");
         Map<String, Object> filterMap = new HashMap<>();
         filterMap.put("counter", "15U");
@@ -55,21 +73,62 @@ public class Main {
         // 도큐먼트 searchWithTerms 테스트
         searchSample.searchWithTerms("sample-index");
 
+        // 검색 결과 캐시 테스트
+        SearchResultCache searchCache = SearchResultCache.builder().maxEntries(1000).defaultTtlMillis(5000).build();
+        searchSample.searchWithCache(searchCache, "sample-index");
+
+        // msearch 로 묶어서 검색하기 테스트
+        try (MsearchCoalescer<ObjectNode> coalescer = MsearchCoalescer.builder(readGenericClient, ObjectNode.class).windowMillis(5).maxBatchSize(50).build()) {
+            searchSample.searchWithMsearch(coalescer, "sample-index");
+        }
+
+        // 스트리밍 검색 테스트
+        StreamingSearch streamingSearch = new StreamingSearch(readGenericClient);
+        searchSample.searchWithStreaming(streamingSearch, "sample-index");
+        searchSample.searchWithColumns(streamingSearch, "sample-index");
+
+        // 일별 인덱스 동시 검색 테스트 (기간과 겹치지 않는 인덱스는 검색 전에 뺌)
+        try (IndexTimeRangeCache timeRangeCache = IndexTimeRangeCache.builder(readClient)
+                .indexPattern("enduser-info-*")
+                .timeFields("ctime", "endTime")
+                .build()) {
+            TimePartitionedSearch dailySearch = TimePartitionedSearch.builder(readAsyncClient)
+                    .indexPrefix("enduser-info-")
+                    .timeField("endTime")
+                    .maxConcurrentSearches(4)
+                    .timeRangeCache(timeRangeCache)
+                    .build();
+            searchSample.searchDailyIndices(dailySearch);
+        } catch (OpenSearchClientException | IOException e) {
+            System.out.println(e.getMessage());
+        }
+
         // scroll 테스트
-        ScrollSample scrollSample = new ScrollSample(client);
+        ScrollSample scrollSample = new ScrollSample(readClient);
         scrollSample.search("sample-index");
+        scrollSample.scrollWithPublisher(readAsyncClient, "sample-index");
+        scrollSample.scrollWithPrefetch(readAsyncClient, "sample-index");
+        scrollSample.searchWithPit(exportGenericClient, "sample-index");
+        scrollSample.exportSliced(exportGenericClient, "sample-index");
+        scrollSample.exportColumnar(exportGenericClient, "sample-index", Path.of(System.getProperty("java.io.tmpdir"), "sample-index.col"));
+        scrollSample.exportResumable(exportGenericClient, "sample-index",
+                Path.of(System.getProperty("java.io.tmpdir"), "sample-index-resumable.col"),
+                Path.of(System.getProperty("java.io.tmpdir"), "sample-index-resumable.checkpoint"));
 
         // Aggregation 테스트
-        AggregationSample aggSample = new AggregationSample(client);
+        AggregationSample aggSample = new AggregationSample(readClient);
         aggSample.search("sample-index");
 
         // Composite Aggregation 테스트
-        CompositeAggregationSample compAggSample = new CompositeAggregationSample(client);
+        CompositeAggregationSample compAggSample = new CompositeAggregationSample(readClient);
         compAggSample.search("sample-index");
 
         // Composite Aggregation 해서 패이징하기 테스트
-        CompositeAggregationPaginationSample compAggPageSample = new CompositeAggregationPaginationSample(client);
+        CompositeAggregationPaginationSample compAggPageSample = new CompositeAggregationPaginationSample(readClient);
         compAggPageSample.search("sample-index");
+        compAggPageSample.searchWithPager(readGenericClient, "sample-index");
+        compAggPageSample.searchWithPrefetch(readGenericClient, "sample-index");
+        compAggPageSample.searchResumable(readGenericClient, "sample-index", Path.of(System.getProperty("java.io.tmpdir"), "sample-index-composite.checkpoint"));
 
         // 어플리케이션 종료시 client를 close하기
         Runtime.getRuntime().addShutdownHook(new Thread(() -> OpenSearchConnectionManager.getInstance(host, port).close()));
@@ -0,0 +1,319 @@
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.opensearch.client.json.JsonpDeserializer;
+import org.opensearch.client.json.JsonpMapper;
+import org.opensearch.client.json.jackson.JacksonJsonpParser;
+import org.opensearch.client.opensearch._types.OpenSearchException;
+import org.opensearch.client.opensearch.core.SearchRequest;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.core.msearch.MultiSearchResponseItem;
+import org.opensearch.client.opensearch.generic.Body;
+import org.opensearch.client.opensearch.generic.OpenSearchGenericClient;
+import org.opensearch.client.opensearch.generic.Requests;
+import org.opensearch.client.opensearch.generic.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 동시에 들어온 검색 요청들을 모아서 하나의 _msearch 요청으로 보내는 실행기 <br><br>
+ * search() 로 들어온 요청은 바로 보내지 않고 windowMillis 동안(또는 maxBatchSize 개가 모일 때까지) 모은 후,
+ * 각 요청을 header 줄(index, routing, preference)과 body 줄(요청 본문)로 만든 NDJSON 하나로 전송합니다. <br>
+ * _msearch 응답의 responses 는 요청한 순서와 같으므로 순서대로 각 호출자의 CompletableFuture 를 완료합니다. <br>
+ * 일부 검색만 실패하면(인덱스 없음, 쿼리 오류 등) 그 호출자의 future 만 OpenSearchException 으로 실패하고 나머지는 정상 완료됩니다.
+ * 응답 항목은 하나씩 따로 역직렬화하므로 한 항목을 읽지 못해도 그 호출자의 future 만 실패합니다.
+ * aggregation 을 Aggregate 로 읽을 수 있도록 typed_keys=true 로 요청합니다. <br>
+ * _msearch 요청 자체가 실패하면(연결 실패 등) 같은 batch 의 모든 future 가 실패합니다. <br><br>
+ * 도큐먼트 클래스마다 응답을 역직렬화하는 방법이 다르므로 실행기는 도큐먼트 클래스 하나에 대해 만듭니다.
+ *
+ * <pre>
+ * MsearchCoalescer&lt;ObjectNode&gt; coalescer = MsearchCoalescer.builder(genericClient, ObjectNode.class).windowMillis(5).build();
+ * coalescer.search(request).thenAccept(response -&gt; ...);
+ * </pre>
+ */
+public class MsearchCoalescer<T> implements AutoCloseable {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final OpenSearchGenericClient genericClient;
+    private final JsonpMapper mapper;
+    private final JsonpDeserializer<MultiSearchResponseItem<T>> itemDeserializer;
+    private final long windowMillis;
+    private final int maxBatchSize;
+
+    private final Object lock = new Object();
+    private List<PendingSearch<T>> pending = new ArrayList<>();
+    private ScheduledFuture<?> flushTask;
+
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean closed = false;
+
+    private final AtomicLong searchCount = new AtomicLong();
+    private final AtomicLong msearchCount = new AtomicLong();
+
+    private MsearchCoalescer(Builder<T> builder) {
+        this.genericClient = builder.genericClient;
+        this.mapper = builder.genericClient._transport().jsonpMapper();
+        this.itemDeserializer = MultiSearchResponseItem.createMultiSearchResponseItemDeserializer(JsonpDeserializer.of(builder.documentClass));
+        this.windowMillis = builder.windowMillis;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "msearch-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static <T> Builder<T> builder(OpenSearchGenericClient genericClient, Class<T> documentClass) {
+        return new Builder<>(genericClient, documentClass);
+    }
+
+    /**
+     * 검색 요청 추가 - windowMillis 안에 들어온 다른 요청과 함께 _msearch 로 전송됨
+     * @param request 검색 요청 (scroll 은 _msearch 에서 지원하지 않음)
+     * @return 이 요청의 검색 결과
+     */
+    public CompletableFuture<SearchResponse<T>> search(SearchRequest request) {
+        if (closed) {
+            throw new IllegalStateException("MsearchCoalescer is closed");
+        }
+        if (request.scroll() != null) {
+            throw new IllegalArgumentException("scroll is not supported by _msearch");
+        }
+        searchCount.incrementAndGet();
+
+        PendingSearch<T> search = new PendingSearch<>(request, new CompletableFuture<>());
+        List<PendingSearch<T>> batch = null;
+        synchronized (lock) {
+            pending.add(search);
+            if (pending.size() >= maxBatchSize) {
+                batch = takePending();
+            } else if (flushTask == null) {
+                // batch 의 첫 요청이 들어온 시점부터 windowMillis 후에 전송
+                flushTask = scheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (batch != null) {
+            send(batch);
+        }
+        return search.future();
+    }
+
+    /**
+     * 모아둔 요청을 즉시 전송
+     */
+    public void flush() {
+        List<PendingSearch<T>> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = takePending();
+        }
+        send(batch);
+    }
+
+    private List<PendingSearch<T>> takePending() {
+        List<PendingSearch<T>> batch = pending;
+        pending = new ArrayList<>();
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        return batch;
+    }
+
+    private void send(List<PendingSearch<T>> batch) {
+        byte[] body;
+        try {
+            body = toNdJson(batch);
+        } catch (IOException e) {
+            batch.forEach(search -> search.future().completeExceptionally(e));
+            return;
+        }
+        msearchCount.incrementAndGet();
+
+        Requests.JsonBodyBuilder request = Requests.builder()
+                .endpoint("/_msearch")
+                .method("POST")
+                // aggregation 응답을 Aggregate 로 읽으려면 타입 접두어(typed_keys)가 필요
+                .query(Map.of("typed_keys", "true"))
+                .body(Body.from(body, "application/x-ndjson"));
+
+        genericClient.executeAsync(request.build()).whenComplete((response, failure) -> {
+            if (failure != null) {
+                batch.forEach(search -> search.future().completeExceptionally(failure));
+                return;
+            }
+            try (Response r = response) {
+                Body responseBody = r.getBody().orElseThrow(() -> new IOException("msearch response has no body"));
+                complete(batch, responseBody.body());
+            } catch (IOException | RuntimeException e) {
+                batch.forEach(search -> search.future().completeExceptionally(e));
+            }
+        });
+    }
+
+    /**
+     * _msearch 응답의 responses 배열을 스트림으로 읽으면서 순서대로 각 호출자의 future 를 완료 <br>
+     * 응답 전체를 한 번에 읽지 않고 항목 하나씩만 tree 로 읽은 후 그 tree 에서 바로 역직렬화하므로
+     * 큰 batch 에서도 한 항목 크기의 메모리만 추가로 씀 <br>
+     * 항목을 tree 로 먼저 읽어 두므로 한 항목의 역직렬화가 실패해도 다음 항목부터 계속 읽을 수 있음
+     */
+    private void complete(List<PendingSearch<T>> batch, InputStream body) throws IOException {
+        int i = 0;
+        try (JsonParser parser = OBJECT_MAPPER.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("msearch response is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                if (!"responses".equals(parser.currentName())) {
+                    parser.nextToken();
+                    parser.skipChildren();
+                    continue;
+                }
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IOException("msearch responses is not a JSON array");
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    TreeNode tree = parser.readValueAsTree();
+                    if (i < batch.size()) {
+                        completeItem(batch.get(i).future(), tree);
+                    }
+                    i++;
+                }
+            }
+        } finally {
+            for (; i < batch.size(); i++) {
+                batch.get(i).future().completeExceptionally(new IOException("msearch response has no item for request " + i));
+            }
+        }
+    }
+
+    private void completeItem(CompletableFuture<SearchResponse<T>> future, TreeNode tree) {
+        // 항목마다 따로 읽어서 한 항목의 오류가 batch 의 다른 요청에 번지지 않게 함
+        try (JsonParser itemParser = OBJECT_MAPPER.treeAsTokens(tree)) {
+            MultiSearchResponseItem<T> item = itemDeserializer.deserialize(new JacksonJsonpParser(itemParser), mapper);
+            if (item.isFailure()) {
+                future.completeExceptionally(new OpenSearchException(item.failure()));
+            } else {
+                future.complete(item.result());
+            }
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 요청마다 header 줄과 body 줄을 만듦 - header 에는 URL 파라미터로 보내던 값을 넣음
+     */
+    private static <T> byte[] toNdJson(List<PendingSearch<T>> batch) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (PendingSearch<T> search : batch) {
+            SearchRequest request = search.request();
+            ObjectNode header = OBJECT_MAPPER.createObjectNode();
+            if (!request.index().isEmpty()) {
+                header.put("index", String.join(",", request.index()));
+            }
+            if (request.routing() != null) {
+                header.put("routing", request.routing());
+            }
+            if (request.preference() != null) {
+                header.put("preference", request.preference());
+            }
+            if (request.searchType() != null) {
+                header.put("search_type", request.searchType().jsonValue());
+            }
+            if (request.requestCache() != null) {
+                header.put("request_cache", request.requestCache());
+            }
+            if (request.allowNoIndices() != null) {
+                header.put("allow_no_indices", request.allowNoIndices());
+            }
+            if (request.ignoreUnavailable() != null) {
+                header.put("ignore_unavailable", request.ignoreUnavailable());
+            }
+            sb.append(OBJECT_MAPPER.writeValueAsString(header)).append('\n');
+            sb.append(OpenSearchUtil.convertToJson(request)).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * search() 로 들어온 요청 수
+     */
+    public long getSearchCount() {
+        return searchCount.get();
+    }
+
+    /**
+     * 실제로 보낸 _msearch 요청 수
+     */
+    public long getMsearchCount() {
+        return msearchCount.get();
+    }
+
+    /**
+     * 모아둔 요청을 전송하고 종료 (이미 보낸 요청의 응답은 기다리지 않음)
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flush();
+        scheduler.shutdown();
+    }
+
+    private record PendingSearch<T>(SearchRequest request, CompletableFuture<SearchResponse<T>> future) {
+    }
+
+    public static class Builder<T> {
+        private final OpenSearchGenericClient genericClient;
+        private final Class<T> documentClass;
+        private long windowMillis = 5;
+        private int maxBatchSize = 50;
+
+        private Builder(OpenSearchGenericClient genericClient, Class<T> documentClass) {
+            this.genericClient = genericClient;
+            this.documentClass = documentClass;
+        }
+
+        /**
+         * 첫 요청이 들어온 후 다른 요청을 기다리는 시간 (기본 5ms)
+         */
+        public Builder<T> windowMillis(long windowMillis) {
+            this.windowMillis = windowMillis;
+            return this;
+        }
+
+        /**
+         * _msearch 요청 하나에 담을 최대 검색 수 (기본 50) - 도달하면 window 를 기다리지 않고 전송
+         */
+        public Builder<T> maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        public MsearchCoalescer<T> build() {
+            if (maxBatchSize <= 0) {
+                throw new IllegalArgumentException("maxBatchSize must be positive");
+            }
+            return new MsearchCoalescer<>(this);
+        }
+    }
+}
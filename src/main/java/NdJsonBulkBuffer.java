@@ -0,0 +1,250 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.opensearch.client.opensearch._types.Refresh;
+import org.opensearch.client.opensearch.core.BulkResponse;
+import org.opensearch.client.opensearch.generic.Bodies;
+import org.opensearch.client.opensearch.generic.Body;
+import org.opensearch.client.opensearch.generic.OpenSearchGenericClient;
+import org.opensearch.client.opensearch.generic.Requests;
+import org.opensearch.client.opensearch.generic.Response;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * ObjectNode 트리를 만들지 않고 bulk 요청 본문(NDJSON)을 직접 작성하는 재사용 버퍼 <br><br>
+ * BulkOperation + ObjectNode 방식은 도큐먼트마다 트리를 만들고, client 가 그 트리를 다시 직렬화합니다. <br>
+ * 이 버퍼는 action 줄과 도큐먼트를 Jackson 스트리밍 generator 로 바이트 버퍼에 바로 쓰거나,
+ * 이미 직렬화된 도큐먼트 바이트를 그대로 복사합니다. 작성한 본문은 OpenSearchGenericClient 로 그대로 전송됩니다. <br>
+ * send() 후에는 버퍼를 비우고 내부 배열은 다음 요청에 재사용합니다. 스레드에 안전하지 않으므로 스레드마다 하나씩 사용해야 합니다.
+ *
+ * <pre>
+ * NdJsonBulkBuffer buffer = new NdJsonBulkBuffer(1024 * 1024);
+ * JsonGenerator doc = buffer.startIndex("sample-index", "id1");
+ * doc.writeStringField("counter", "15U");
+ * doc.writeNumberField("value", 10);
+ * buffer.endDocument();
+ * BulkResponse response = buffer.send(genericClient, null);
+ * </pre>
+ */
+public class NdJsonBulkBuffer {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final ReusableByteArrayOutputStream out;
+    private JsonGenerator generator;
+    private int operationCount = 0;
+    private boolean inDocument = false;
+    private boolean updateDocument = false;
+
+    public NdJsonBulkBuffer(int initialCapacity) {
+        this.out = new ReusableByteArrayOutputStream(initialCapacity);
+        this.generator = createGenerator(out);
+    }
+
+    private static JsonGenerator createGenerator(ByteArrayOutputStream out) {
+        JsonGenerator generator;
+        try {
+            generator = JSON_FACTORY.createGenerator(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        // 최상위 값 사이에 공백을 넣지 않음 (줄바꿈은 직접 씀)
+        generator.setRootValueSeparator(null);
+        return generator;
+    }
+
+    /**
+     * index 도큐먼트 시작 - action 줄을 쓰고, 필드를 쓸 수 있도록 도큐먼트 객체를 열어둔 generator 반환 <br>
+     * 필드를 모두 쓴 후에 endDocument() 를 호출해야 함
+     * @param index 인덱스 이름
+     * @param id 도큐먼트 아이디 (null 이면 서버에서 생성)
+     * @return 도큐먼트 필드를 쓸 JsonGenerator
+     */
+    public JsonGenerator startIndex(String index, String id) throws IOException {
+        writeAction("index", index, id);
+        generator.writeStartObject();
+        inDocument = true;
+        updateDocument = false;
+        return generator;
+    }
+
+    /**
+     * doc_as_upsert 부분 갱신 도큐먼트 시작 - 필드를 모두 쓴 후에 endDocument() 를 호출해야 함
+     * @param index 인덱스 이름
+     * @param id 도큐먼트 아이디
+     * @return 갱신할 필드를 쓸 JsonGenerator
+     */
+    public JsonGenerator startUpsert(String index, String id) throws IOException {
+        writeAction("update", index, id);
+        generator.writeStartObject();
+        generator.writeFieldName("doc");
+        generator.writeStartObject();
+        inDocument = true;
+        updateDocument = true;
+        return generator;
+    }
+
+    /**
+     * startIndex(), startUpsert() 로 시작한 도큐먼트 종료
+     */
+    public void endDocument() throws IOException {
+        if (!inDocument) {
+            throw new IllegalStateException("no document is started");
+        }
+        generator.writeEndObject();
+        if (updateDocument) {
+            generator.writeBooleanField("doc_as_upsert", true);
+            generator.writeEndObject();
+        }
+        generator.writeRaw('\n');
+        inDocument = false;
+        operationCount++;
+    }
+
+    /**
+     * 이미 직렬화된 도큐먼트를 index operation 으로 추가 - 도큐먼트 바이트는 줄바꿈이 없는 한 줄 JSON 이어야 함
+     * @param index 인덱스 이름
+     * @param id 도큐먼트 아이디 (null 이면 서버에서 생성)
+     * @param source 직렬화된 도큐먼트 (UTF-8 JSON)
+     */
+    public void index(String index, String id, byte[] source) throws IOException {
+        index(index, id, source, 0, source.length);
+    }
+
+    public void index(String index, String id, byte[] source, int offset, int length) throws IOException {
+        writeAction("index", index, id);
+        generator.flush();
+        out.write(source, offset, length);
+        out.write('\n');
+        operationCount++;
+    }
+
+    /**
+     * 필드 Map 을 index operation 으로 추가 - 트리를 만들지 않고 generator 로 바로 씀
+     * @param index 인덱스 이름
+     * @param id 도큐먼트 아이디 (null 이면 서버에서 생성)
+     * @param fields 도큐먼트 필드
+     */
+    public void index(String index, String id, Map<String, ?> fields) throws IOException {
+        JsonGenerator doc = startIndex(index, id);
+        for (Map.Entry<String, ?> field : fields.entrySet()) {
+            doc.writeFieldName(field.getKey());
+            writeValue(field.getValue());
+        }
+        endDocument();
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Integer) {
+            generator.writeNumber((Integer) value);
+        } else if (value instanceof Long) {
+            generator.writeNumber((Long) value);
+        } else if (value instanceof Double) {
+            generator.writeNumber((Double) value);
+        } else if (value instanceof Float) {
+            generator.writeNumber((Float) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    private void writeAction(String action, String index, String id) throws IOException {
+        if (inDocument) {
+            throw new IllegalStateException("previous document is not ended");
+        }
+        generator.writeStartObject();
+        generator.writeFieldName(action);
+        generator.writeStartObject();
+        generator.writeStringField("_index", index);
+        if (id != null) {
+            generator.writeStringField("_id", id);
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    /**
+     * 작성된 operation 수
+     */
+    public int operationCount() {
+        return operationCount;
+    }
+
+    /**
+     * 작성된 NDJSON 크기 (bytes)
+     */
+    public int sizeInBytes() throws IOException {
+        generator.flush();
+        return out.size();
+    }
+
+    /**
+     * 작성된 내용을 버리고 버퍼를 재사용할 수 있도록 초기화 (내부 배열은 유지) <br>
+     * 쓰던 도큐먼트가 있으면 generator 가 그 객체 안에 있으므로 generator 를 새로 만듦
+     */
+    public void reset() throws IOException {
+        if (inDocument) {
+            // 버퍼에 남은 내용은 버리고 최상위 상태의 generator 로 교체
+            generator = createGenerator(out);
+        } else {
+            generator.flush();
+        }
+        out.reset();
+        operationCount = 0;
+        inDocument = false;
+        updateDocument = false;
+    }
+
+    /**
+     * 작성된 NDJSON 을 _bulk API 로 전송하고 버퍼를 초기화
+     * @param genericClient 요청을 보낼 client
+     * @param refresh refresh 옵션 (null 이면 지정하지 않음)
+     * @return BulkResponse (개별 operation 실패 여부는 errors() 와 items() 로 확인)
+     */
+    public BulkResponse send(OpenSearchGenericClient genericClient, Refresh refresh) throws IOException {
+        if (inDocument) {
+            throw new IllegalStateException("document is not ended");
+        }
+        generator.flush();
+
+        Requests.JsonBodyBuilder request = Requests.builder()
+                .endpoint("/_bulk")
+                .method("POST")
+                .body(Body.from(out.toInputStream(), "application/x-ndjson"));
+        if (refresh != null) {
+            request.query(Map.of("refresh", refresh.jsonValue()));
+        }
+
+        try (Response response = genericClient.execute(request.build())) {
+            Body body = response.getBody().orElseThrow(() -> new IOException("bulk response has no body"));
+            return Bodies.json(body, BulkResponse._DESERIALIZER, genericClient._transport().jsonpMapper());
+        } finally {
+            reset();
+        }
+    }
+
+    /**
+     * 내부 배열을 복사하지 않고 InputStream 으로 읽을 수 있는 ByteArrayOutputStream
+     */
+    private static class ReusableByteArrayOutputStream extends ByteArrayOutputStream {
+
+        ReusableByteArrayOutputStream(int initialCapacity) {
+            super(initialCapacity);
+        }
+
+        InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+}
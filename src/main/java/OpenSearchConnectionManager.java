@@ -1,6 +1,5 @@
 import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
-import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
 import org.apache.hc.core5.http.HttpHost;
 import org.opensearch.client.json.jackson.JacksonJsonpMapper;
 import org.opensearch.client.opensearch.OpenSearchAsyncClient;
@@ -8,25 +7,52 @@ import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch.generic.OpenSearchGenericClient;
 import org.opensearch.client.opensearch.generic.OpenSearchGenericClient.ClientOptions;
 import org.opensearch.client.transport.OpenSearchTransport;
+import org.opensearch.client.transport.httpclient5.ApacheHttpClient5Options;
 import org.opensearch.client.transport.httpclient5.ApacheHttpClient5TransportBuilder;
 
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class OpenSearchConnectionManager {
 
     private static String hostIp = "localhost";
     private static int servicePort = 9200;
+    private static List<HttpHost> hostList;
+    private static OpenSearchNodePool.Strategy nodeStrategy = OpenSearchNodePool.Strategy.ROUND_ROBIN;
+    private static long healthCheckIntervalMillis = 5000;
+    private static int healthCheckTimeoutMillis = 1000;
+    private static OpenSearchPoolConfig readPoolConfig = OpenSearchPoolConfig.defaultRead();
+    private static OpenSearchPoolConfig writePoolConfig = OpenSearchPoolConfig.defaultWrite();
     private static OpenSearchConnectionManager instance;
 
+    private final OpenSearchNodePool nodePool;
+
+    // 쓰기(bulk, index, 관리 API)용 transport 와 client
     private final OpenSearchTransport transport;
     private final OpenSearchClient client;
     OpenSearchGenericClient genericClient;
 
     OpenSearchAsyncClient asyncClient;
 
+    // 읽기(search, scroll, aggregation)용 transport 와 client
+    private final OpenSearchTransport readTransport;
+    private final OpenSearchClient readClient;
+    private final OpenSearchAsyncClient readAsyncClient;
+    private final OpenSearchGenericClient readGenericClient;
+    // 읽기용 풀을 쓰면서 응답 타임아웃만 긴 export 용 generic client
+    private final OpenSearchGenericClient exportGenericClient;
+
+    // 특정 노드로만 요청을 보내는 client (shard-aware bulk routing 용, key : scheme://host:port)
+    private final Map<String, OpenSearchAsyncClient> nodeAsyncClients = new ConcurrentHashMap<>();
+    private final Map<String, OpenSearchTransport> nodeTransports = new ConcurrentHashMap<>();
+
     private OpenSearchConnectionManager() {
 
-        HttpHost host = new HttpHost("http", hostIp, servicePort);
+        // 노드 목록이 지정되지 않았으면 hostIp:servicePort 단일 노드로 구성
+        List<HttpHost> hosts = hostList != null ? hostList : List.of(new HttpHost("http", hostIp, servicePort));
+        this.nodePool = new OpenSearchNodePool(hosts, nodeStrategy);
 
         /*
         *****************************************
@@ -70,29 +96,14 @@ public class OpenSearchConnectionManager {
          *****************************************
          */
 
-        // Apache HTTP 5 를 위한 requestConfig
-        RequestConfig requestConfig = RequestConfig.custom()
-                .setResponseTimeout( 5000, TimeUnit.MILLISECONDS ) // Socket Timeout : Connection 생성 마다 속성이 다시 Override되므로 socketConfig에 둘 필요 없다
-                .setConnectionRequestTimeout( 5000, TimeUnit.MILLISECONDS ) // Connection Request Timeout : the timeout in milliseconds used when requesting a connection from the connection manager.
-                .setExpectContinueEnabled( false ) // Activates 'Expect: 100-Continue' handshake : Expect 헤더 포함 (사용안함)
-                .setRedirectsEnabled( false ) // Redirect 금지
-                .build();
+        // 읽기용과 쓰기용 transport 를 각자의 커넥션 풀로 생성 - bulk 작업이 검색 요청의 커넥션을 빼앗지 않도록 분리
+        this.transport = createTransport(hosts, writePoolConfig);
+        this.readTransport = createTransport(hosts, readPoolConfig);
 
-        // Apache HTTP 5 를 위한 connectionManager
-        PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
-                .setMaxConnTotal(100)
-                .setMaxConnPerRoute(100)
-                .build();
-
-        // Create the transport with requestConfig and connectionManager
-        this.transport = ApacheHttpClient5TransportBuilder
-                .builder(host)
-                .setHttpClientConfigCallback(
-                        httpAsyncClientBuilder -> httpAsyncClientBuilder
-                                .setDefaultRequestConfig(requestConfig)
-                                .setConnectionManager(connectionManager))
-                .setMapper(new JacksonJsonpMapper())
-                .build();
+        // 노드가 여러 개일 때만 health check 로 죽은 노드를 제외/복귀
+        if (hosts.size() > 1) {
+            nodePool.startHealthCheck(healthCheckIntervalMillis, healthCheckTimeoutMillis);
+        }
 
         // Create the API client
         this.client = new OpenSearchClient(transport);
@@ -102,6 +113,41 @@ public class OpenSearchConnectionManager {
 
         // Create the Generic client
         this.genericClient = this.client.generic().withClientOptions(ClientOptions.throwOnHttpErrors());
+
+        // Create the read clients
+        this.readClient = new OpenSearchClient(readTransport);
+        this.readAsyncClient = new OpenSearchAsyncClient(readTransport);
+        this.readGenericClient = this.readClient.generic().withClientOptions(ClientOptions.throwOnHttpErrors());
+        this.exportGenericClient = this.readGenericClient.withTransportOptions(ApacheHttpClient5Options.DEFAULT.toBuilder()
+                .setRequestConfig(readPoolConfig.toExportRequestConfig())
+                .build());
+    }
+
+    /**
+     * 커넥션 풀 설정으로 transport 생성
+     * @param hosts 노드 목록
+     * @param poolConfig 커넥션 풀 크기, 타임아웃 설정
+     * @return OpenSearchTransport
+     */
+    private OpenSearchTransport createTransport(List<HttpHost> hosts, OpenSearchPoolConfig poolConfig) {
+        // Apache HTTP 5 를 위한 requestConfig
+        RequestConfig requestConfig = poolConfig.toRequestConfig();
+
+        // Apache HTTP 5 를 위한 connectionManager
+        PoolingAsyncClientConnectionManager connectionManager = poolConfig.toConnectionManager();
+
+        // Create the transport with requestConfig and connectionManager
+        // 여러 노드를 등록하고 nodePool 을 NodeSelector 로 사용해서 요청을 분산
+        return ApacheHttpClient5TransportBuilder
+                .builder(hosts.toArray(new HttpHost[0]))
+                .setNodeSelector(nodePool)
+                .setHttpClientConfigCallback(
+                        httpAsyncClientBuilder -> httpAsyncClientBuilder
+                                .setDefaultRequestConfig(requestConfig)
+                                .setConnectionManager(connectionManager)
+                                .addExecInterceptorFirst("outstanding-request-counter", nodePool.outstandingRequestCounter()))
+                .setMapper(new JacksonJsonpMapper())
+                .build();
     }
 
     /**
@@ -122,7 +168,51 @@ public class OpenSearchConnectionManager {
     }
 
     /**
-     * OpenSearchClient 반환
+     * 여러 노드로 구성된 OpenSearchClientManager의 인스턴스 반환 (싱글톤) <br>
+     * 요청은 strategy 에 따라 노드들로 분산되고, health check 에 실패한 노드는 복구될 때까지 제외됩니다.
+     * @param hosts 노드 목록 (예: http://10.0.0.1:9200, http://10.0.0.2:9200)
+     * @param strategy 노드 선택 방식 (ROUND_ROBIN, LEAST_OUTSTANDING)
+     * @return OpenSearchClientManager
+     */
+    public static synchronized OpenSearchConnectionManager getInstance(List<HttpHost> hosts, OpenSearchNodePool.Strategy strategy) {
+        if (instance == null) {
+            if (hosts != null && !hosts.isEmpty()) {
+                hostList = new ArrayList<>(hosts);
+            }
+            if (strategy != null) {
+                nodeStrategy = strategy;
+            }
+            instance = new OpenSearchConnectionManager();
+        }
+        return instance;
+    }
+
+    /**
+     * 여러 노드로 구성할 때의 health check 주기와 타임아웃 설정 (getInstance 호출 전에 설정해야 적용됨)
+     * @param intervalMillis health check 주기 (milliseconds)
+     * @param timeoutMillis health check 요청 타임아웃 (milliseconds)
+     */
+    public static synchronized void setHealthCheck(long intervalMillis, int timeoutMillis) {
+        healthCheckIntervalMillis = intervalMillis;
+        healthCheckTimeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * 읽기용과 쓰기용 커넥션 풀 설정 (getInstance 호출 전에 설정해야 적용됨)
+     * @param readConfig 읽기용 커넥션 풀 설정 (null 이면 기본값 유지)
+     * @param writeConfig 쓰기용 커넥션 풀 설정 (null 이면 기본값 유지)
+     */
+    public static synchronized void setPoolConfig(OpenSearchPoolConfig readConfig, OpenSearchPoolConfig writeConfig) {
+        if (readConfig != null) {
+            readPoolConfig = readConfig;
+        }
+        if (writeConfig != null) {
+            writePoolConfig = writeConfig;
+        }
+    }
+
+    /**
+     * OpenSearchClient 반환 (쓰기용 커넥션 풀 사용)
      * @return OpenSearchClient
      */
     public OpenSearchClient getClient() {
@@ -130,25 +220,99 @@ public class OpenSearchConnectionManager {
     }
 
     /**
-     * JSON 문자열을 직접 처리할 수 있는 OpenSearchGenericClient 반환
+     * 쓰기(bulk, index, 관리 API)용 OpenSearchClient 반환 - getClient() 와 같음
+     * @return OpenSearchClient
+     */
+    public OpenSearchClient getWriteClient() {
+        return client;
+    }
+
+    /**
+     * 읽기(search, scroll, aggregation)용 OpenSearchClient 반환 - 쓰기용과 별도의 커넥션 풀 사용
+     * @return OpenSearchClient
+     */
+    public OpenSearchClient getReadClient() {
+        return readClient;
+    }
+
+    /**
+     * 읽기용 OpenSearchAsyncClient 반환
+     * @return OpenSearchAsyncClient
+     */
+    public OpenSearchAsyncClient getReadAsyncClient() {
+        return readAsyncClient;
+    }
+
+    /**
+     * JSON 문자열을 직접 처리할 수 있는 OpenSearchGenericClient 반환 (쓰기용 커넥션 풀 사용)
      * @return
      */
     public OpenSearchGenericClient getGenericClient() {
         return genericClient;
     }
 
+    /**
+     * 읽기(msearch, 스트리밍 검색, composite 페이지 등)용 OpenSearchGenericClient 반환 - 쓰기용과 별도의 커넥션 풀 사용
+     * @return OpenSearchGenericClient
+     */
+    public OpenSearchGenericClient getReadGenericClient() {
+        return readGenericClient;
+    }
+
+    /**
+     * export(PIT, slice, columnar export)용 OpenSearchGenericClient 반환 <br>
+     * 읽기용 커넥션 풀을 쓰고, 응답 타임아웃은 읽기용 설정의 exportResponseTimeoutMillis 를 사용
+     * @return OpenSearchGenericClient
+     */
+    public OpenSearchGenericClient getExportGenericClient() {
+        return exportGenericClient;
+    }
+
+    /**
+     * OpenSearchAsyncClient 반환 (쓰기용 커넥션 풀 사용)
+     * @return OpenSearchAsyncClient
+     */
     public OpenSearchAsyncClient getAsyncClient() {
         return asyncClient;
     }
 
+    /**
+     * 지정한 노드 하나로만 요청을 보내는 OpenSearchAsyncClient 반환 (쓰기용 커넥션 풀 설정 사용) <br>
+     * 노드마다 처음 호출할 때 transport 를 만들고, 이후에는 같은 client 를 반환함
+     * @param host 노드 주소
+     * @return OpenSearchAsyncClient
+     */
+    public OpenSearchAsyncClient getNodeAsyncClient(HttpHost host) {
+        return nodeAsyncClients.computeIfAbsent(host.toURI(), key -> {
+            OpenSearchTransport nodeTransport = createTransport(List.of(host), writePoolConfig);
+            nodeTransports.put(key, nodeTransport);
+            return new OpenSearchAsyncClient(nodeTransport);
+        });
+    }
+
+    /**
+     * 노드 목록과 노드별 상태(health, 처리 중인 요청 수)를 가진 OpenSearchNodePool 반환
+     * @return OpenSearchNodePool
+     */
+    public OpenSearchNodePool getNodePool() {
+        return nodePool;
+    }
+
     /**
      * Transport 개체는 OpenSearch 클러스터와 연결되어 있으며, 네트워크 연결과 같은 기본 리소스를 해제하려면 명시적으로 닫혀야 합니다.
      */
     public void close() {
         try {
+            nodePool.close();
             if (transport != null) {
                 transport.close();
             }
+            if (readTransport != null) {
+                readTransport.close();
+            }
+            for (OpenSearchTransport nodeTransport : nodeTransports.values()) {
+                nodeTransport.close();
+            }
             System.out.println("OpenSearchTransport is closed");
         } catch (Exception e) {
             System.out.println(e.getMessage());
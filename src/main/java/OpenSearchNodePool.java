@@ -0,0 +1,240 @@
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.opensearch.client.transport.httpclient5.internal.Node;
+import org.opensearch.client.transport.httpclient5.internal.NodeSelector;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 여러 OpenSearch 노드에 요청을 분산하기 위한 노드 풀 <br><br>
+ * ApacheHttpClient5Transport 는 요청마다 살아있는 노드 목록을 NodeSelector 로 걸러낸 뒤 회전(rotate)시켜서 첫번째 노드로 요청합니다. <br>
+ * 이 클래스는 NodeSelector 로 등록되어 아래의 노드만 남깁니다. <br>
+ * - ROUND_ROBIN : health check 를 통과한 모든 노드 (transport 의 회전으로 순서대로 분산됨) <br>
+ * - LEAST_OUTSTANDING : health check 를 통과한 노드 중 처리 중인 요청 수가 가장 적은 노드 <br><br>
+ * 백그라운드 health check 는 각 노드에 GET / 요청을 보내서 응답하지 않는 노드를 제외하고, 다시 응답하면 복귀시킵니다. <br>
+ * 모든 노드가 제외된 경우에는 요청이 막히지 않도록 필터링하지 않고 transport 의 재시도 로직에 맡깁니다.
+ */
+public class OpenSearchNodePool implements NodeSelector, AutoCloseable {
+
+    /**
+     * 노드 선택 방식
+     */
+    public enum Strategy {
+        ROUND_ROBIN,
+        LEAST_OUTSTANDING
+    }
+
+    private final List<HttpHost> hosts;
+    private final Strategy strategy;
+
+    // 노드별 처리 중인 요청 수 (key : scheme://host:port)
+    private final Map<String, AtomicInteger> outstandingRequests = new ConcurrentHashMap<>();
+    // health check 에 실패해서 제외된 노드 (key : scheme://host:port)
+    private final Set<String> deadHosts = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService healthChecker;
+
+    public OpenSearchNodePool(List<HttpHost> hosts, Strategy strategy) {
+        if (hosts == null || hosts.isEmpty()) {
+            throw new IllegalArgumentException("hosts must not be empty");
+        }
+        this.hosts = List.copyOf(hosts);
+        this.strategy = strategy == null ? Strategy.ROUND_ROBIN : strategy;
+        for (HttpHost host : this.hosts) {
+            outstandingRequests.put(hostKey(host), new AtomicInteger());
+        }
+    }
+
+    public List<HttpHost> getHosts() {
+        return hosts;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * transport 가 요청을 보낼 노드를 고를 때 호출됨 - 요청 대상에서 뺄 노드를 iterator 에서 제거
+     * @param nodes 살아있는 노드 목록
+     */
+    @Override
+    public void select(Iterable<Node> nodes) {
+        List<Node> healthyNodes = new ArrayList<>();
+        for (Node node : nodes) {
+            if (!deadHosts.contains(hostKey(node.getHost()))) {
+                healthyNodes.add(node);
+            }
+        }
+        // 모든 노드가 제외된 상태면 필터링하지 않음
+        if (healthyNodes.isEmpty()) {
+            return;
+        }
+
+        int minOutstanding = Integer.MAX_VALUE;
+        if (strategy == Strategy.LEAST_OUTSTANDING) {
+            for (Node node : healthyNodes) {
+                minOutstanding = Math.min(minOutstanding, getOutstandingRequests(node.getHost()));
+            }
+        }
+
+        for (Iterator<Node> it = nodes.iterator(); it.hasNext(); ) {
+            Node node = it.next();
+            if (!healthyNodes.contains(node)) {
+                it.remove();
+            } else if (strategy == Strategy.LEAST_OUTSTANDING
+                    && getOutstandingRequests(node.getHost()) > minOutstanding) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 노드별 처리 중인 요청 수를 집계하는 HttpClient exec interceptor 반환 <br>
+     * HttpAsyncClientBuilder.addExecInterceptorFirst() 로 등록해야 LEAST_OUTSTANDING 방식이 동작합니다.
+     * @return AsyncExecChainHandler
+     */
+    public AsyncExecChainHandler outstandingRequestCounter() {
+        return (request, entityProducer, scope, chain, callback) -> {
+            AtomicInteger counter = outstandingRequests.get(hostKey(scope.route.getTargetHost()));
+            if (counter == null) {
+                chain.proceed(request, entityProducer, scope, callback);
+                return;
+            }
+
+            counter.incrementAndGet();
+            AtomicBoolean released = new AtomicBoolean(false);
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    counter.decrementAndGet();
+                }
+            };
+
+            try {
+                chain.proceed(request, entityProducer, scope, new AsyncExecCallback() {
+                    @Override
+                    public AsyncDataConsumer handleResponse(HttpResponse response, EntityDetails entityDetails) throws HttpException, IOException {
+                        return callback.handleResponse(response, entityDetails);
+                    }
+
+                    @Override
+                    public void handleInformationResponse(HttpResponse response) throws HttpException, IOException {
+                        callback.handleInformationResponse(response);
+                    }
+
+                    @Override
+                    public void completed() {
+                        release.run();
+                        callback.completed();
+                    }
+
+                    @Override
+                    public void failed(Exception cause) {
+                        release.run();
+                        callback.failed(cause);
+                    }
+                });
+            } catch (HttpException | IOException | RuntimeException e) {
+                release.run();
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * 백그라운드 health check 시작
+     * @param intervalMillis health check 주기 (milliseconds)
+     * @param timeoutMillis health check 요청의 연결/응답 타임아웃 (milliseconds)
+     */
+    public synchronized void startHealthCheck(long intervalMillis, int timeoutMillis) {
+        if (healthChecker != null) {
+            return;
+        }
+        healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "opensearch-node-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(() -> checkHealth(timeoutMillis), 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 모든 노드에 health check 요청을 보내서 제외/복귀 처리
+     * @param timeoutMillis health check 요청의 연결/응답 타임아웃 (milliseconds)
+     */
+    public void checkHealth(int timeoutMillis) {
+        for (HttpHost host : hosts) {
+            String key = hostKey(host);
+            boolean alive = probe(host, timeoutMillis);
+            if (alive && deadHosts.remove(key)) {
+                System.out.println("OpenSearch node is back: " + key);
+            } else if (!alive && deadHosts.add(key)) {
+                System.out.println("OpenSearch node is ejected: " + key);
+            }
+        }
+    }
+
+    /**
+     * 노드에 GET / 요청을 보내서 응답 여부 확인 <br>
+     * 5xx 가 아닌 응답(보안 플러그인의 401 포함)이면 살아있는 것으로 판단합니다.
+     */
+    private boolean probe(HttpHost host, int timeoutMillis) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(host.toURI() + "/").openConnection();
+            connection.setRequestMethod("GET");
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            return connection.getResponseCode() < 500;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    public boolean isAlive(HttpHost host) {
+        return !deadHosts.contains(hostKey(host));
+    }
+
+    public int getOutstandingRequests(HttpHost host) {
+        AtomicInteger counter = outstandingRequests.get(hostKey(host));
+        return counter == null ? 0 : counter.get();
+    }
+
+    private static String hostKey(HttpHost host) {
+        return host.toURI();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+            healthChecker = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "OpenSearchNodePool{hosts=" + hosts + ", strategy=" + strategy + ", dead=" + deadHosts + "}";
+    }
+}
@@ -0,0 +1,135 @@
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Apache HTTP 5 커넥션 풀과 요청 옵션 설정 <br><br>
+ * OpenSearchConnectionManager 는 읽기(search)용과 쓰기(bulk, index)용 transport 를 따로 만들고, 각각 이 설정으로 커넥션 풀을 구성합니다. <br>
+ * 풀이 분리되어 있으므로 대량 bulk 작업이 커넥션을 모두 점유해도 검색 요청은 자신의 풀에서 커넥션을 얻을 수 있습니다. <br>
+ * exportResponseTimeoutMillis 는 같은 풀을 쓰면서 응답이 오래 걸리는 요청(PIT, slice export 의 큰 페이지 등)에만 적용하는 응답 타임아웃입니다.
+ */
+public class OpenSearchPoolConfig {
+
+    private int maxConnTotal = 100;
+    private int maxConnPerRoute = 100;
+    private long connectTimeoutMillis = 5000;
+    private long responseTimeoutMillis = 5000;
+    private long connectionRequestTimeoutMillis = 5000;
+    private long exportResponseTimeoutMillis = 300000;
+
+    /**
+     * 읽기용 기본 설정 - 짧은 응답 타임아웃으로 대화형 검색이 오래 기다리지 않도록 함
+     * @return OpenSearchPoolConfig
+     */
+    public static OpenSearchPoolConfig defaultRead() {
+        return new OpenSearchPoolConfig()
+                .maxConnTotal(100)
+                .maxConnPerRoute(100)
+                .responseTimeoutMillis(5000)
+                .connectionRequestTimeoutMillis(5000)
+                .exportResponseTimeoutMillis(300000);
+    }
+
+    /**
+     * 쓰기용 기본 설정 - 큰 bulk 요청을 처리할 수 있도록 응답 타임아웃을 길게 잡고, 커넥션 수는 적게 제한함
+     * @return OpenSearchPoolConfig
+     */
+    public static OpenSearchPoolConfig defaultWrite() {
+        return new OpenSearchPoolConfig()
+                .maxConnTotal(30)
+                .maxConnPerRoute(30)
+                .responseTimeoutMillis(60000)
+                .connectionRequestTimeoutMillis(30000);
+    }
+
+    public OpenSearchPoolConfig maxConnTotal(int maxConnTotal) {
+        this.maxConnTotal = maxConnTotal;
+        return this;
+    }
+
+    public OpenSearchPoolConfig maxConnPerRoute(int maxConnPerRoute) {
+        this.maxConnPerRoute = maxConnPerRoute;
+        return this;
+    }
+
+    public OpenSearchPoolConfig connectTimeoutMillis(long connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        return this;
+    }
+
+    public OpenSearchPoolConfig responseTimeoutMillis(long responseTimeoutMillis) {
+        this.responseTimeoutMillis = responseTimeoutMillis;
+        return this;
+    }
+
+    public OpenSearchPoolConfig connectionRequestTimeoutMillis(long connectionRequestTimeoutMillis) {
+        this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * export 요청의 응답 타임아웃 (기본 300000ms) - OpenSearchConnectionManager.getExportGenericClient() 에 적용
+     */
+    public OpenSearchPoolConfig exportResponseTimeoutMillis(long exportResponseTimeoutMillis) {
+        this.exportResponseTimeoutMillis = exportResponseTimeoutMillis;
+        return this;
+    }
+
+    public int getMaxConnTotal() {
+        return maxConnTotal;
+    }
+
+    public int getMaxConnPerRoute() {
+        return maxConnPerRoute;
+    }
+
+    /**
+     * Apache HTTP 5 를 위한 requestConfig 생성
+     * @return RequestConfig
+     */
+    public RequestConfig toRequestConfig() {
+        return RequestConfig.custom()
+                .setResponseTimeout( responseTimeoutMillis, TimeUnit.MILLISECONDS ) // Socket Timeout : Connection 생성 마다 속성이 다시 Override되므로 socketConfig에 둘 필요 없다
+                .setConnectionRequestTimeout( connectionRequestTimeoutMillis, TimeUnit.MILLISECONDS ) // Connection Request Timeout : the timeout in milliseconds used when requesting a connection from the connection manager.
+                .setExpectContinueEnabled( false ) // Activates 'Expect: 100-Continue' handshake : Expect 헤더 포함 (사용안함)
+                .setRedirectsEnabled( false ) // Redirect 금지
+                .build();
+    }
+
+    /**
+     * export 요청을 위한 requestConfig 생성 - 응답 타임아웃만 exportResponseTimeoutMillis 로 바꿈
+     * @return RequestConfig
+     */
+    public RequestConfig toExportRequestConfig() {
+        return RequestConfig.copy(toRequestConfig())
+                .setResponseTimeout( exportResponseTimeoutMillis, TimeUnit.MILLISECONDS )
+                .build();
+    }
+
+    /**
+     * Apache HTTP 5 를 위한 connectionManager 생성
+     * @return PoolingAsyncClientConnectionManager
+     */
+    public PoolingAsyncClientConnectionManager toConnectionManager() {
+        return PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnTotal)
+                .setMaxConnPerRoute(maxConnPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout( connectTimeoutMillis, TimeUnit.MILLISECONDS ) // Connect Timeout : 서버에 연결하기 위한 타임아웃
+                        .build())
+                .build();
+    }
+
+    @Override
+    public String toString() {
+        return "OpenSearchPoolConfig{maxConnTotal=" + maxConnTotal
+                + ", maxConnPerRoute=" + maxConnPerRoute
+                + ", connectTimeoutMillis=" + connectTimeoutMillis
+                + ", responseTimeoutMillis=" + responseTimeoutMillis
+                + ", connectionRequestTimeoutMillis=" + connectionRequestTimeoutMillis
+                + ", exportResponseTimeoutMillis=" + exportResponseTimeoutMillis + "}";
+    }
+}
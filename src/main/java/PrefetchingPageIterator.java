@@ -0,0 +1,181 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 소비자가 페이지 k 를 처리하는 동안 페이지 k+1 을 미리 요청해두는 페이지 iterator <br><br>
+ * ScrollSample.search() 처럼 페이지를 다 출력한 후에 다음 페이지를 요청하면 네트워크 대기와 처리 시간이 겹치지 않습니다.
+ * PrefetchingPageIterator 는 SearchPublisher 의 scroll, searchAfter, composite 페이지 방식을 그대로 쓰면서,
+ * 소비자가 가져가지 않은 페이지가 prefetchDepth 개가 될 때까지 async client 로 다음 페이지를 계속 요청합니다.
+ * prefetchDepth 가 1 이면 처리 중인 페이지와 받고 있는 페이지 두 개의 버퍼(double buffering)입니다. <br>
+ * scroll 과 search_after 는 앞 페이지의 응답이 있어야 다음 페이지를 요청할 수 있으므로 요청은 항상 하나씩 차례로 보냅니다. <br><br>
+ * 빈 페이지를 받으면 끝나고, close() 를 호출하면 미리 받은 페이지를 버리고 요청 중인 페이지를 취소한 후 scroll context 를 삭제합니다.
+ * 요청이 실패하면 iterator 를 닫고 hasNext() 에서 예외를 던집니다 (IOException 은 UncheckedIOException 으로).
+ *
+ * <pre>
+ * try (PrefetchingPageIterator&lt;Hit&lt;ObjectNode&gt;&gt; pages = PrefetchingPageIterator.of(SearchPublisher.scroll(asyncClient, request, keepAlive, ObjectNode.class), 2)) {
+ *     while (pages.hasNext()) {
+ *         List&lt;Hit&lt;ObjectNode&gt;&gt; page = pages.next(); // 이 페이지를 처리하는 동안 다음 페이지를 받음
+ *     }
+ * }
+ * </pre>
+ */
+public class PrefetchingPageIterator<E> implements Iterator<List<E>>, AutoCloseable {
+
+    private final SearchPublisher.Pager<E> pager;
+    private final int prefetchDepth;
+
+    // 요청 순서대로의 페이지 - 마지막 원소만 요청 중일 수 있음
+    private final ArrayDeque<CompletableFuture<List<E>>> ahead = new ArrayDeque<>();
+    private boolean fetching = false;
+    private boolean exhausted = false;
+    private boolean closed = false;
+    private boolean finished = false;
+    private List<E> next;
+
+    private long pageCount = 0;
+    private long waitNanos = 0;
+
+    private PrefetchingPageIterator(SearchPublisher.Pager<E> pager, int prefetchDepth) {
+        this.pager = pager;
+        this.prefetchDepth = prefetchDepth;
+    }
+
+    /**
+     * 새 검색을 시작하고 첫 페이지를 요청
+     * @param publisher 페이지 방식 (SearchPublisher.scroll(), searchAfter(), composite(), search())
+     * @param prefetchDepth 소비자가 가져가기 전에 미리 받아둘 최대 페이지 수 (1 이상)
+     */
+    public static <E> PrefetchingPageIterator<E> of(SearchPublisher<E> publisher, int prefetchDepth) {
+        if (prefetchDepth <= 0) {
+            throw new IllegalArgumentException("prefetchDepth must be positive");
+        }
+        PrefetchingPageIterator<E> iterator = new PrefetchingPageIterator<>(publisher.newPager(), prefetchDepth);
+        iterator.fetchMore();
+        return iterator;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        CompletableFuture<List<E>> future;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("iterator is closed");
+            }
+            future = ahead.poll();
+        }
+        List<E> page = future == null ? List.of() : await(future);
+        if (page.isEmpty()) {
+            // 마지막 페이지까지 모두 가져감
+            finished = true;
+            close();
+            return false;
+        }
+        pageCount++;
+        next = page;
+        fetchMore();
+        return true;
+    }
+
+    @Override
+    public List<E> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<E> page = next;
+        next = null;
+        return page;
+    }
+
+    /**
+     * 지금까지 가져간 페이지 수
+     */
+    public long getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * hasNext() 에서 페이지를 기다린 시간 합계 (ms) - 작을수록 요청과 처리가 잘 겹친 것
+     */
+    public long getWaitMillis() {
+        return waitNanos / 1_000_000;
+    }
+
+    /**
+     * 미리 받은 페이지를 버리고 요청 중인 페이지를 취소한 후 scroll context 등을 삭제
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            ahead.forEach(future -> future.cancel(false));
+            ahead.clear();
+        }
+        next = null;
+        pager.release();
+    }
+
+    /**
+     * 요청 중인 페이지가 없고 미리 받은 페이지가 prefetchDepth 보다 적으면 다음 페이지를 요청
+     */
+    private void fetchMore() {
+        CompletableFuture<List<E>> future;
+        synchronized (this) {
+            if (closed || exhausted || fetching || ahead.size() >= prefetchDepth) {
+                return;
+            }
+            fetching = true;
+            future = pager.next();
+            ahead.add(future);
+        }
+        future.whenComplete((page, e) -> {
+            synchronized (this) {
+                fetching = false;
+                // 실패하거나 빈 페이지면 더 요청하지 않음
+                if (e != null || page.isEmpty()) {
+                    exhausted = true;
+                }
+            }
+            fetchMore();
+        });
+    }
+
+    private List<E> await(CompletableFuture<List<E>> future) {
+        long start = System.nanoTime();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new CancellationException("interrupted while waiting for a page");
+        } catch (ExecutionException | CompletionException e) {
+            close();
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            waitNanos += System.nanoTime() - start;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.opensearch.client.opensearch.OpenSearchAsyncClient;
 import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.SortOrder;
 import org.opensearch.client.opensearch._types.Time;
 import org.opensearch.client.opensearch._types.query_dsl.BoolQuery;
 import org.opensearch.client.opensearch._types.query_dsl.FieldAndFormat;
@@ -11,10 +13,17 @@ import org.opensearch.client.opensearch.core.SearchRequest;
 import org.opensearch.client.opensearch.core.SearchResponse;
 import org.opensearch.client.opensearch.core.search.Hit;
 import org.opensearch.client.opensearch.generic.OpenSearchClientException;
+import org.opensearch.client.opensearch.generic.OpenSearchGenericClient;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 public class ScrollSample {
 
@@ -91,6 +100,259 @@ public class ScrollSample {
 
     }
 
+    /**
+     * SearchPublisher 를 이용한 scroll - 구독자가 요청한 만큼만 다음 페이지를 가져오고, 구독을 취소하면 scroll 을 삭제
+     * @param asyncClient 검색에 사용할 async client
+     * @param indexName
+     */
+    public void scrollWithPublisher(OpenSearchAsyncClient asyncClient, String indexName) {
+
+        System.out.println("= ScrollSample.scrollWithPublisher =");
+
+        SearchRequest request = SearchRequest.of(s -> s
+                .index(indexName)
+                .query(q -> q.term(t -> t.field("counter").value(v -> v.stringValue("15U"))))
+                .size(5)
+        );
+
+        int batch = 5; // 한 번에 요청할 hit 수
+        int limit = 12; // 이만큼 받으면 구독 취소
+        CountDownLatch finished = new CountDownLatch(1);
+
+        SearchPublisher.scroll(asyncClient, request, Time.of(t -> t.time("1m")), ObjectNode.class).subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+            private int received = 0;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(batch);
+            }
+
+            @Override
+            public void onNext(Hit<ObjectNode> hit) {
+                received++;
+                System.out.println("Document " + hit.id() + ": " + hit.source());
+                if (received >= limit) {
+                    subscription.cancel();
+                    System.out.println("Cancelled after " + received + " documents");
+                    finished.countDown();
+                } else if (received % batch == 0) {
+                    // 받은 만큼 처리한 후에 다음 요청 - 이때 필요하면 다음 페이지를 가져옴
+                    subscription.request(batch);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                System.out.println(throwable.getMessage());
+                finished.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                System.out.println("Total Documents: " + received);
+                finished.countDown();
+            }
+        });
+
+        try {
+            finished.await(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 다음 페이지를 미리 받아두는 scroll - 페이지를 출력하는 동안 다음 페이지를 요청
+     * @param asyncClient 검색에 사용할 async client
+     * @param indexName
+     */
+    public void scrollWithPrefetch(OpenSearchAsyncClient asyncClient, String indexName) {
+
+        System.out.println("= ScrollSample.scrollWithPrefetch =");
+
+        SearchRequest request = SearchRequest.of(s -> s
+                .index(indexName)
+                .query(q -> q.term(t -> t.field("counter").value(v -> v.stringValue("15U"))))
+                .size(5)
+        );
+
+        SearchPublisher<Hit<ObjectNode>> scroll = SearchPublisher.scroll(asyncClient, request, Time.of(t -> t.time("1m")), ObjectNode.class);
+        // 끝까지 읽거나 close() 하면 scroll 삭제
+        try (PrefetchingPageIterator<Hit<ObjectNode>> pages = PrefetchingPageIterator.of(scroll, 1)) {
+            long documentsCount = 0;
+            while (pages.hasNext()) {
+                List<Hit<ObjectNode>> page = pages.next();
+                printDocument(page);
+                documentsCount += page.size();
+            }
+            System.out.println("Total Documents: " + documentsCount + " (waited " + pages.getWaitMillis() + "ms for pages)");
+        } catch (OpenSearchClientException | UncheckedIOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * scroll 대신 PIT 와 search_after 로 전체 검색 결과를 읽음 - 마지막 페이지를 읽거나 close() 하면 PIT 삭제
+     * @param genericClient 검색에 사용할 generic client
+     * @param indexName
+     */
+    public void searchWithPit(OpenSearchGenericClient genericClient, String indexName) {
+
+        System.out.println("= ScrollSample.searchWithPit =");
+
+        SearchRequest request = SearchRequest.of(s -> s
+                .index(indexName)
+                .query(q -> q.term(t -> t.field("counter").value(v -> v.stringValue("15U"))))
+                .sort(so -> so.field(f -> f.field("ctime").order(SortOrder.Asc))) // 정렬 뒤에 tiebreaker(_id)가 붙음
+        );
+
+        try (DocumentIterator<ObjectNode> documents = DocumentIterator.builder(genericClient, request, ObjectNode.class)
+                .keepAlive("1m")
+                .pageSize(5)
+                .targetPageBytes(64 * 1024) // 응답이 64KB 정도가 되도록 다음 페이지 size 조절
+                .build()) {
+            while (documents.hasNext()) {
+                Hit<ObjectNode> hit = documents.next();
+                System.out.println("Document " + hit.id() + ": " + hit.source());
+            }
+            System.out.println("Total Documents: " + documents.getHitCount() + " (" + documents.getPageCount() + " pages)");
+        } catch (OpenSearchClientException | IOException | UncheckedIOException e) {
+            System.out.println(e.getMessage());
+        }
+
+        // Stream 으로 읽을 때는 try-with-resources 로 Stream 을 닫아야 중간에 그만 읽어도 PIT 가 삭제됨
+        try (Stream<Hit<ObjectNode>> hits = DocumentIterator.builder(genericClient, request, ObjectNode.class).pageSize(5).build().stream()) {
+            hits.limit(3).forEach(hit -> System.out.println("Streamed document " + hit.id()));
+        } catch (OpenSearchClientException | IOException | UncheckedIOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * 검색 결과를 shard 수만큼의 slice 로 나누어 병렬로 읽음 - 페이지는 이 스레드에서 하나의 sink 로 모임
+     * @param genericClient 검색에 사용할 generic client
+     * @param indexName
+     */
+    public void exportSliced(OpenSearchGenericClient genericClient, String indexName) {
+
+        System.out.println("= ScrollSample.exportSliced =");
+
+        SearchRequest request = SearchRequest.of(s -> s
+                .index(indexName)
+                .query(q -> q.term(t -> t.field("counter").value(v -> v.stringValue("15U"))))
+        );
+
+        SlicedExport export = SlicedExport.builder(genericClient)
+                .keepAlive("1m")
+                .pageSize(100)
+                .prefetchPages(2) // slice 마다 2 페이지까지 미리 읽음
+                .build();
+
+        try {
+            SlicedExport.Result result = export.export(request, ObjectNode.class, (slice, hits) ->
+                    hits.forEach(hit -> System.out.println("Slice " + slice + " document " + hit.id())));
+            System.out.println("Total Documents: " + result.hitCount() + " (" + result.slices() + " slices, " + result.tookMillis() + "ms)");
+        } catch (OpenSearchClientException | IOException e) {
+            System.out.println(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 검색 결과의 docvalue_fields 를 binary 컬럼 파일로 export 한 후, memory-mapped reader 로 다시 읽어서 합계 출력
+     * @param genericClient 검색에 사용할 generic client
+     * @param indexName
+     * @param path export 할 파일
+     */
+    public void exportColumnar(OpenSearchGenericClient genericClient, String indexName, Path path) {
+
+        System.out.println("= ScrollSample.exportColumnar =");
+
+        DocValueColumns columns = DocValueColumns.builder().keyword("counter").date("ctime").integer("objHash").decimal("value").build();
+        SearchRequest request = SearchRequest.of(s -> s
+                .index(indexName)
+                .source(src -> src.fetch(false)) // _source 없이 docvalue_fields 만 받음
+                .docvalueFields(columns.docvalueFields())
+        );
+
+        SlicedExport export = SlicedExport.builder(genericClient).keepAlive("1m").pageSize(1000).build();
+        try (ColumnarFileWriter writer = ColumnarFileWriter.create(path, columns)) {
+            SlicedExport.Result result = export.export(request, Void.class, writer.sink(columns));
+            System.out.println("Exported " + result.hitCount() + " documents, " + writer.position() + " bytes");
+        } catch (OpenSearchClientException | IOException e) {
+            System.out.println(e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        try (ColumnarFileReader reader = ColumnarFileReader.open(path)) {
+            DocValueColumns values = DocValueColumns.builder().decimal("value").build(); // 필요한 컬럼만 읽음
+            double sum = 0;
+            for (int block = 0; block < reader.blockCount(); block++) {
+                reader.readBlock(block, values);
+                double[] value = values.doubles("value");
+                for (int row = 0; row < values.size(); row++) {
+                    sum += value[row];
+                }
+            }
+            System.out.println("Rows: " + reader.rowCount() + ", sum of value: " + sum);
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * checkpoint 를 남기면서 컬럼 파일로 export - 중간에 실패한 후 다시 실행하면 마지막 checkpoint 다음부터 이어서 씀
+     * @param genericClient 검색에 사용할 generic client
+     * @param indexName
+     * @param path export 할 파일
+     * @param checkpointPath checkpoint 파일
+     */
+    public void exportResumable(OpenSearchGenericClient genericClient, String indexName, Path path, Path checkpointPath) {
+
+        System.out.println("= ScrollSample.exportResumable =");
+
+        DocValueColumns columns = DocValueColumns.builder().keyword("counter").date("ctime").integer("objHash").decimal("value").build();
+        SearchRequest request = SearchRequest.of(s -> s
+                .index(indexName)
+                .source(src -> src.fetch(false))
+                .docvalueFields(columns.docvalueFields())
+        );
+
+        try {
+            ExportCheckpoint checkpoint = ExportCheckpoint.open(checkpointPath);
+            if (checkpoint.isCompleted()) {
+                System.out.println("Export already completed: " + checkpoint.rowCount() + " documents");
+                return;
+            }
+            if (checkpoint.isResumed()) {
+                System.out.println("Resuming export after " + checkpoint.rowCount() + " documents");
+            }
+            // 다시 시작하면 마지막 checkpoint 이후에 쓴 block 을 잘라내고 이어서 씀
+            try (ColumnarFileWriter writer = checkpoint.outputOffset() > 0
+                    ? ColumnarFileWriter.append(path, columns, checkpoint.outputOffset())
+                    : ColumnarFileWriter.create(path, columns)) {
+                SlicedExport export = SlicedExport.builder(genericClient)
+                        .keepAlive("1m")
+                        .pageSize(1000)
+                        .checkpoint(checkpoint)
+                        .checkpointIntervalMillis(5_000)
+                        .build();
+                export.export(request, Void.class, writer.sink(columns));
+                System.out.println("Exported " + checkpoint.rowCount() + " documents, " + writer.position() + " bytes");
+            }
+        } catch (OpenSearchClientException | IOException e) {
+            System.out.println(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public void printDocument(List<Hit<ObjectNode>> hits) {
         for (Hit<ObjectNode> hit:hits) {
 
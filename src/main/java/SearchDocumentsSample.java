@@ -1,6 +1,8 @@
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.opensearch.client.json.JsonData;
 import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.SortOrder;
 import org.opensearch.client.opensearch._types.query_dsl.BoolQuery;
 import org.opensearch.client.opensearch._types.query_dsl.FieldAndFormat;
 import org.opensearch.client.opensearch._types.query_dsl.Query;
@@ -15,6 +17,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class SearchDocumentsSample {
 
@@ -284,4 +288,201 @@ public class SearchDocumentsSample {
 
     }
 
+    /**
+     * SearchResultCache 를 이용한 검색 - 같은 쿼리를 반복하면 두 번째부터는 캐시된 결과를 사용
+     * @param cache 검색 결과 캐시
+     * @param indexName
+     */
+    public void searchWithCache(SearchResultCache cache, String indexName) {
+
+        System.out.println("= SearchDocumentsSample.searchWithCache =");
+
+        Query query = BoolQuery.of(bool -> bool
+                .filter(filter -> filter
+                        .term(term -> term
+                                .field("counter")
+                                .value(value -> value
+                                        .stringValue("15U")
+                                )
+                        )
+                )).toQuery();
+
+        SearchRequest request = SearchRequest.of(s -> s
+                .index(indexName)
+                .query(query)
+                .size(10)
+        );
+
+        try {
+            for (int i = 0; i < 3; i++) {
+                SearchResponse<ObjectNode> response = cache.search(client, request, ObjectNode.class, 10_000);
+                System.out.println("Search #" + i + ": " + response.hits().hits().size() + " hits, took " + response.took() + "ms");
+            }
+            // 인덱스에 데이터를 쓴 후에는 해당 인덱스의 결과를 지워야 함
+            cache.invalidate(indexName);
+            cache.search(client, request, ObjectNode.class, 10_000);
+            System.out.println("Search cache: " + cache.stats());
+        } catch (OpenSearchClientException | IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * MsearchCoalescer 를 이용한 검색 - 동시에 요청한 검색들이 _msearch 요청 하나로 전송됨
+     * @param coalescer msearch 실행기
+     * @param indexName
+     */
+    public void searchWithMsearch(MsearchCoalescer<ObjectNode> coalescer, String indexName) {
+
+        System.out.println("= SearchDocumentsSample.searchWithMsearch =");
+
+        List<String> counters = Arrays.asList("15U", "16U", "17U", "18U");
+        List<CompletableFuture<SearchResponse<ObjectNode>>> futures = new ArrayList<>();
+        for (String counter : counters) {
+            SearchRequest request = SearchRequest.of(s -> s
+                    .index(indexName)
+                    .query(q -> q.term(t -> t.field("counter").value(v -> v.stringValue(counter))))
+                    .size(10)
+            );
+            futures.add(coalescer.search(request));
+        }
+
+        // 검색마다 결과를 따로 확인 - 하나가 실패해도 나머지 결과는 사용할 수 있음
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                SearchResponse<ObjectNode> response = futures.get(i).join();
+                System.out.println("counter " + counters.get(i) + ": " + response.hits().hits().size() + " hits");
+            } catch (CompletionException e) {
+                System.out.println("counter " + counters.get(i) + ": " + e.getCause().getMessage());
+            }
+        }
+        System.out.println(coalescer.getSearchCount() + " searches sent in " + coalescer.getMsearchCount() + " msearch requests");
+    }
+
+    /**
+     * StreamingSearch 를 이용한 검색 - 응답 전체를 SearchResponse 로 만들지 않고 hit 을 하나씩 읽어서 처리
+     * @param streamingSearch 스트리밍 검색
+     * @param indexName
+     */
+    public void searchWithStreaming(StreamingSearch streamingSearch, String indexName) {
+
+        System.out.println("= SearchDocumentsSample.searchWithStreaming =");
+
+        SearchRequest request = SearchRequest.of(s -> s
+                .index(indexName)
+                .query(q -> q.matchAll(m -> m))
+                .size(1000)
+                .source(SourceConfig.of(sc -> sc.fetch(false)))
+                .docvalueFields(Arrays.asList(
+                        FieldAndFormat.of(f -> f.field("counter")),
+                        FieldAndFormat.of(f -> f.field("ctime")),
+                        FieldAndFormat.of(f -> f.field("objHash")),
+                        FieldAndFormat.of(f -> f.field("value"))
+                ))
+        );
+
+        try {
+            // callback - hit 을 읽을 때마다 호출됨
+            double[] sum = new double[1];
+            StreamingSearch.Summary summary = streamingSearch.search(request, ObjectNode.class, hit -> {
+                if (hit.fields() != null && hit.fields().has("value")) {
+                    sum[0] += hit.fields().get("value").get(0).asDouble();
+                }
+            });
+            System.out.println("Read " + summary.hitCount() + " of " + summary.totalHits() + " hits, sum of value: " + sum[0]);
+
+            // iterator - 필요한 만큼만 읽고 close
+            try (StreamingSearch.HitStream<ObjectNode> hits = streamingSearch.open(request, ObjectNode.class)) {
+                for (int i = 0; i < 3 && hits.hasNext(); i++) {
+                    StreamingSearch.StreamedHit<ObjectNode> hit = hits.next();
+                    System.out.println("Document " + hit.id() + " fields: " + hit.fields());
+                }
+            }
+        } catch (OpenSearchClientException | IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * docvalue_fields 를 컬럼(primitive 배열)으로 받는 검색 - hit 마다 객체를 만들지 않고 배열을 바로 순회
+     * @param streamingSearch 스트리밍 검색
+     * @param indexName
+     */
+    public void searchWithColumns(StreamingSearch streamingSearch, String indexName) {
+
+        System.out.println("= SearchDocumentsSample.searchWithColumns =");
+
+        DocValueColumns columns = DocValueColumns.builder()
+                .keyword("counter")
+                .date("ctime")
+                .integer("objHash")
+                .decimal("value")
+                .build();
+
+        SearchRequest request = SearchRequest.of(s -> s
+                .index(indexName)
+                .query(q -> q.matchAll(m -> m))
+                .size(1000)
+                .source(SourceConfig.of(sc -> sc.fetch(false)))
+                .docvalueFields(columns.docvalueFields())
+        );
+
+        try {
+            streamingSearch.searchColumns(request, columns);
+
+            // counter 별 value 합계 - 사전 번호를 배열 인덱스로 사용
+            int[] counters = columns.ordinals("counter");
+            double[] values = columns.doubles("value");
+            long[] ctimes = columns.longs("ctime");
+            double[] sums = new double[columns.dictionary("counter").length];
+            long maxCtime = Long.MIN_VALUE;
+            for (int i = 0; i < columns.size(); i++) {
+                if (counters[i] >= 0) {
+                    sums[counters[i]] += values[i];
+                }
+                maxCtime = Math.max(maxCtime, ctimes[i]);
+            }
+            String[] dictionary = columns.dictionary("counter");
+            for (int c = 0; c < dictionary.length; c++) {
+                System.out.println("counter " + dictionary[c] + ": sum of value " + sums[c]);
+            }
+            System.out.println(columns.size() + " hits, latest ctime " + maxCtime);
+        } catch (OpenSearchClientException | IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * TimePartitionedSearch 를 이용한 검색 - 일별 인덱스(enduser-info-YYYYMMDD)를 동시에 검색하고 endTime 내림차순으로 합침
+     * @param search 일별 인덱스 검색
+     */
+    public void searchDailyIndices(TimePartitionedSearch search) {
+
+        System.out.println("= SearchDocumentsSample.searchDailyIndices =");
+
+        long to = System.currentTimeMillis();
+        long from = to - 3 * 24 * 60 * 60 * 1000L; // 최근 3일
+
+        SearchRequest request = SearchRequest.of(s -> s
+                .query(q -> q.range(r -> r.field("endTime").gte(JsonData.of(from)).lte(JsonData.of(to))))
+                .size(100)
+                .sort(sort -> sort.field(f -> f.field("endTime").order(SortOrder.Desc)))
+                .source(SourceConfig.of(sc -> sc.fetch(false)))
+                .docvalueFields(Arrays.asList(
+                        FieldAndFormat.of(f -> f.field("endTime")),
+                        FieldAndFormat.of(f -> f.field("elapsedTime")),
+                        FieldAndFormat.of(f -> f.field("serviceHash"))
+                ))
+        );
+
+        try {
+            TimePartitionedSearch.Result<ObjectNode> result = search.search(request, from, to, ObjectNode.class).join();
+            System.out.println(result.hits().size() + " hits from " + result.searchedIndices()
+                    + ", pruned " + result.prunedIndices() + ", skipped " + result.skippedIndices()
+                    + ", failed " + result.failedIndices().keySet());
+        } catch (CompletionException e) {
+            System.out.println(e.getCause().getMessage());
+        }
+    }
+
 }
@@ -0,0 +1,359 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.opensearch.client.json.JsonpDeserializer;
+import org.opensearch.client.json.JsonpMapper;
+import org.opensearch.client.opensearch.OpenSearchAsyncClient;
+import org.opensearch.client.opensearch._types.Time;
+import org.opensearch.client.opensearch._types.aggregations.CompositeBucket;
+import org.opensearch.client.opensearch.core.SearchRequest;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.core.search.Hit;
+import org.opensearch.client.opensearch.generic.Bodies;
+import org.opensearch.client.opensearch.generic.Body;
+import org.opensearch.client.opensearch.generic.OpenSearchGenericClient;
+import org.opensearch.client.opensearch.generic.Requests;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 검색 결과를 구독자가 요청한 만큼만 페이지 단위로 가져오는 Flow.Publisher <br><br>
+ * 구독자가 request(n) 으로 요청한 수가 남아 있고 받아둔 페이지를 모두 넘겼을 때만 다음 페이지를 OpenSearchAsyncClient 로 요청하므로,
+ * 구독자가 느려도 메모리에는 최대 한 페이지만 보관합니다. <br>
+ * - search : 검색 한 번의 결과 <br>
+ * - searchAfter : 정렬 값(search_after)으로 다음 페이지를 요청 (요청에 sort 필수, 정렬 값을 타입 그대로 보내도록 generic client 의 비동기 요청 사용) <br>
+ * - scroll : scroll 로 다음 페이지를 요청하고, 끝나거나 구독을 취소하면 clearScroll 로 서버의 scroll context 를 삭제 <br>
+ * - composite : composite aggregation 의 after_key 로 다음 페이지를 요청 (hit 대신 CompositeBucket 을 발행, CompositePager 로 generic client 의 비동기 요청 사용) <br>
+ * subscribe() 할 때마다 처음부터 새로 검색합니다. 구독자의 onNext 등은 요청한 스레드나 async client 의 응답 스레드에서 순서대로 호출됩니다.
+ *
+ * <pre>
+ * SearchPublisher.scroll(asyncClient, request, Time.of(t -&gt; t.time("1m")), ObjectNode.class).subscribe(subscriber);
+ * </pre>
+ */
+public class SearchPublisher<E> implements Flow.Publisher<E> {
+
+    /**
+     * 페이지를 차례로 가져오는 방법 - 빈 목록을 반환하면 끝 (next() 는 이전 next() 의 future 가 완료된 후에만 호출)
+     */
+    interface Pager<E> {
+        CompletableFuture<List<E>> next();
+
+        void release();
+    }
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Supplier<Pager<E>> pagerFactory;
+
+    private SearchPublisher(Supplier<Pager<E>> pagerFactory) {
+        this.pagerFactory = pagerFactory;
+    }
+
+    /**
+     * 새 검색의 Pager - PrefetchingPageIterator 에서 사용
+     */
+    Pager<E> newPager() {
+        return pagerFactory.get();
+    }
+
+    /**
+     * 검색 한 번의 hit 을 발행
+     * @param asyncClient 검색에 사용할 async client
+     * @param request 검색 요청
+     * @param documentClass 도큐먼트 클래스
+     */
+    public static <T> SearchPublisher<Hit<T>> search(OpenSearchAsyncClient asyncClient, SearchRequest request, Class<T> documentClass) {
+        return new SearchPublisher<>(() -> new Pager<>() {
+            private boolean done = false;
+
+            @Override
+            public CompletableFuture<List<Hit<T>>> next() {
+                if (done) {
+                    return CompletableFuture.completedFuture(List.of());
+                }
+                done = true;
+                return call(() -> asyncClient.search(request, documentClass)).thenApply(response -> response.hits().hits());
+            }
+
+            @Override
+            public void release() {
+            }
+        });
+    }
+
+    /**
+     * search_after 로 모든 페이지의 hit 을 발행 - 마지막 hit 의 정렬 값으로 다음 페이지를 요청 <br>
+     * Hit.sort() 는 정렬 값을 문자열로 바꾸므로, 요청은 generic client 로 보내고 정렬 값은 응답 JSON 에서 타입 그대로(숫자, unsigned_long, null) 읽음
+     * @param genericClient 검색에 사용할 generic client (비동기로 요청)
+     * @param request sort 를 지정하고 search_after 는 지정하지 않은 검색 요청 (size 가 페이지 크기)
+     * @param documentClass 도큐먼트 클래스
+     */
+    public static <T> SearchPublisher<Hit<T>> searchAfter(OpenSearchGenericClient genericClient, SearchRequest request, Class<T> documentClass) {
+        if (request.sort().isEmpty()) {
+            throw new IllegalArgumentException("search_after requires sort");
+        }
+        if (!request.searchAfter().isEmpty()) {
+            throw new IllegalArgumentException("request must not have search_after");
+        }
+        ObjectNode body;
+        try {
+            body = (ObjectNode) OBJECT_MAPPER.readTree(OpenSearchUtil.convertToJson(request));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("failed to serialize request", e);
+        }
+        String endpoint = request.index().isEmpty() ? "/_search" : "/" + String.join(",", request.index()) + "/_search";
+        Map<String, String> parameters = SearchRequest._ENDPOINT.queryParameters(request);
+        JsonpMapper mapper = genericClient._transport().jsonpMapper();
+        JsonpDeserializer<SearchResponse<T>> deserializer = SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(documentClass));
+        int pageSize = request.size() != null ? request.size() : 10;
+        return new SearchPublisher<>(() -> new Pager<>() {
+            private List<Object> after = null;
+            private boolean done = false;
+
+            @Override
+            public CompletableFuture<List<Hit<T>>> next() {
+                if (done) {
+                    return CompletableFuture.completedFuture(List.of());
+                }
+                ObjectNode pageBody = body;
+                if (after != null) {
+                    pageBody = body.deepCopy();
+                    pageBody.set("search_after", OBJECT_MAPPER.valueToTree(after));
+                }
+                ObjectNode requestBody = pageBody;
+                return call(() -> genericClient.executeAsync(Requests.builder()
+                        .endpoint(endpoint)
+                        .method("POST")
+                        .query(parameters)
+                        .body(Body.from(OBJECT_MAPPER.writeValueAsBytes(requestBody), "application/json"))
+                        .build())).thenApply(r -> {
+                    try (r) {
+                        byte[] bytes = r.getBody().orElseThrow(() -> new IOException("search response has no body")).bodyAsBytes();
+                        List<Hit<T>> hits = Bodies.json(Body.from(bytes, "application/json"), deserializer, mapper).hits().hits();
+                        // 페이지 크기보다 적게 왔으면 마지막 페이지
+                        done = hits.size() < pageSize;
+                        if (!hits.isEmpty()) {
+                            after = DocumentIterator.lastSortValues(bytes);
+                        }
+                        return hits;
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+            }
+
+            @Override
+            public void release() {
+            }
+        });
+    }
+
+    /**
+     * scroll 로 모든 페이지의 hit 을 발행 - 끝나거나 구독을 취소하면 scroll context 를 삭제
+     * @param asyncClient 검색에 사용할 async client
+     * @param request 검색 요청 (size 가 페이지 크기)
+     * @param keepAlive 페이지 사이에 scroll context 를 유지할 시간
+     * @param documentClass 도큐먼트 클래스
+     */
+    public static <T> SearchPublisher<Hit<T>> scroll(OpenSearchAsyncClient asyncClient, SearchRequest request, Time keepAlive, Class<T> documentClass) {
+        SearchRequest scrollRequest = request.toBuilder().scroll(keepAlive).build();
+        return new SearchPublisher<>(() -> new Pager<>() {
+            private volatile String scrollId;
+            private volatile boolean released = false;
+
+            @Override
+            public CompletableFuture<List<Hit<T>>> next() {
+                if (scrollId == null) {
+                    return call(() -> asyncClient.search(scrollRequest, documentClass)).thenApply(response -> {
+                        scrollId = response.scrollId();
+                        // 첫 페이지를 기다리는 중에 구독이 끝났으면 지금 삭제
+                        if (released) {
+                            clear(scrollId);
+                        }
+                        return response.hits().hits();
+                    });
+                }
+                return call(() -> asyncClient.scroll(s -> s.scrollId(scrollId).scroll(keepAlive), documentClass)).thenApply(response -> {
+                    if (response.scrollId() != null) {
+                        scrollId = response.scrollId();
+                    }
+                    return response.hits().hits();
+                });
+            }
+
+            @Override
+            public void release() {
+                released = true;
+                clear(scrollId);
+            }
+
+            private void clear(String id) {
+                if (id == null) {
+                    return;
+                }
+                call(() -> asyncClient.clearScroll(c -> c.scrollId(id))).whenComplete((response, e) -> {
+                    if (e != null) {
+                        System.out.println("Failed to clear scroll: " + e.getMessage());
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * composite aggregation 의 모든 bucket 을 발행 - CompositePager 로 after_key 를 JSON 타입 그대로 넣어서 다음 페이지를 요청
+     * @param genericClient 검색에 사용할 generic client (비동기로 요청)
+     * @param request composite aggregation 이 있는 검색 요청 (size 를 지정하지 않으면 hit 없이 size 0 으로 보냄)
+     * @param aggregationName composite aggregation 이름
+     */
+    public static SearchPublisher<CompositeBucket> composite(OpenSearchGenericClient genericClient, SearchRequest request, String aggregationName) {
+        CompositePager.Builder builder = CompositePager.builder(genericClient, request, aggregationName);
+        // 요청이 잘못되었으면 subscribe 전에 IllegalArgumentException
+        builder.build();
+        return new SearchPublisher<>(() -> new Pager<>() {
+            private final CompositePager pager = builder.build();
+
+            @Override
+            public CompletableFuture<List<CompositeBucket>> next() {
+                return pager.nextPageAsync();
+            }
+
+            @Override
+            public void release() {
+            }
+        });
+    }
+
+    private interface AsyncCall<R> {
+        CompletableFuture<R> call() throws Exception;
+    }
+
+    // async client 의 메소드가 요청을 보내기 전에 던진 예외도 실패한 future 로 변환
+    private static <R> CompletableFuture<R> call(AsyncCall<R> asyncCall) {
+        try {
+            return asyncCall.call();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super E> subscriber) {
+        PageSubscription<E> subscription = new PageSubscription<>(subscriber, pagerFactory.get());
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * 요청 수(demand)가 남아 있을 때만 다음 페이지를 가져오는 subscription <br>
+     * drain() 은 wip 카운터로 한 번에 한 스레드만 실행하므로 구독자의 메소드는 순서대로 호출됨
+     */
+    private static class PageSubscription<E> implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super E> subscriber;
+        private final Pager<E> pager;
+
+        private final Queue<E> buffer = new ConcurrentLinkedQueue<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private volatile boolean fetching = false;
+        private volatile boolean exhausted = false;
+        private volatile boolean cancelled = false;
+        private volatile Throwable error;
+        private boolean terminated = false;
+
+        PageSubscription(Flow.Subscriber<? super E> subscriber, Pager<E> pager) {
+            this.subscriber = subscriber;
+            this.pager = pager;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("request must be positive: " + n);
+                buffer.clear();
+            } else {
+                requested.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (!terminated) {
+                    drainOnce();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drainOnce() {
+            if (cancelled) {
+                terminate();
+                return;
+            }
+            while (requested.get() > 0 && !buffer.isEmpty()) {
+                subscriber.onNext(buffer.poll());
+                if (requested.get() != Long.MAX_VALUE) {
+                    requested.decrementAndGet();
+                }
+                if (cancelled) {
+                    terminate();
+                    return;
+                }
+            }
+            if (!buffer.isEmpty()) {
+                return;
+            }
+            if (error != null) {
+                terminate();
+                subscriber.onError(error);
+            } else if (exhausted) {
+                terminate();
+                subscriber.onComplete();
+            } else if (requested.get() > 0 && !fetching) {
+                fetching = true;
+                pager.next().whenComplete((page, e) -> {
+                    if (e != null) {
+                        error = e;
+                    } else if (page.isEmpty()) {
+                        exhausted = true;
+                    } else {
+                        buffer.addAll(page);
+                    }
+                    fetching = false;
+                    drain();
+                });
+            }
+        }
+
+        private void terminate() {
+            terminated = true;
+            buffer.clear();
+            if (released.compareAndSet(false, true)) {
+                pager.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,315 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch.core.BulkRequest;
+import org.opensearch.client.opensearch.core.BulkResponse;
+import org.opensearch.client.opensearch.core.SearchRequest;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 같은 검색 요청의 결과를 일정 시간 동안 재사용하는 클라이언트 측 검색 결과 캐시 <br><br>
+ * 캐시 키는 인덱스 목록, 요청의 모든 URL 파라미터(q, routing, preference, search_type, expand_wildcards 등), 도큐먼트 클래스, 요청 본문으로 만듭니다. <br>
+ * 요청 본문은 OpenSearchUtil.convertToJson() 으로 직렬화한 후 객체의 필드를 이름 순으로 정렬(canonical JSON)해서,
+ * 필드를 다른 순서로 작성한 같은 쿼리도 같은 키가 되도록 하고, 전체를 SHA-256 hash 로 줄여서 보관합니다. <br>
+ * 결과는 쿼리마다 지정한 TTL 이 지나면 만료되고, 항목 수가 maxEntries 를 넘으면 가장 오래 사용하지 않은 결과부터 제거합니다. (LRU) <br>
+ * 인덱스에 데이터를 쓴 후에는 invalidate(indexName) 로 그 인덱스를 검색한 결과를 지워야 합니다.
+ * BulkIngester 의 리스너로 invalidationListener() 를 지정하면 bulk 요청이 끝날 때마다 대상 인덱스의 결과를 지웁니다. <br><br>
+ * 타임아웃이 나거나 일부 shard 가 실패한 응답, scroll/PIT 요청은 캐시하지 않습니다.
+ * 캐시된 SearchResponse 는 여러 호출자가 공유하므로 hit 의 source 를 수정하면 안 됩니다.
+ *
+ * <pre>
+ * SearchResultCache cache = SearchResultCache.builder().maxEntries(1000).defaultTtlMillis(5000).build();
+ * SearchResponse&lt;ObjectNode&gt; response = cache.search(client, request, ObjectNode.class);
+ * </pre>
+ */
+public class SearchResultCache {
+
+    /**
+     * 캐시 통계
+     */
+    public record Stats(long hits, long misses, long evictions, long expirations, long invalidations, int size) {
+
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d, hitRate=%.2f%%, evictions=%d, expirations=%d, invalidations=%d, size=%d",
+                    hits, misses, hitRate() * 100, evictions, expirations, invalidations, size);
+        }
+    }
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final int maxEntries;
+    private final long defaultTtlMillis;
+
+    // accessOrder = true 이므로 get() 할 때마다 가장 최근 항목이 되고, 가장 오래 사용하지 않은 항목이 맨 앞에 옴
+    private final LinkedHashMap<String, Entry> entries;
+    // invalidate 할 때마다 증가 - 검색 중에 invalidate 되었으면 그 결과는 캐시하지 않음
+    private long generation = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private SearchResultCache(Builder builder) {
+        this.maxEntries = builder.maxEntries;
+        this.defaultTtlMillis = builder.defaultTtlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 기본 TTL 로 캐시된 결과를 반환하거나, 없으면 검색 후 캐시
+     * @param client 검색에 사용할 client
+     * @param request 검색 요청
+     * @param documentClass 도큐먼트 클래스
+     * @return SearchResponse
+     */
+    public <T> SearchResponse<T> search(OpenSearchClient client, SearchRequest request, Class<T> documentClass) throws IOException {
+        return search(client, request, documentClass, defaultTtlMillis);
+    }
+
+    /**
+     * 캐시된 결과를 반환하거나, 없으면 검색 후 ttlMillis 동안 캐시
+     * @param client 검색에 사용할 client
+     * @param request 검색 요청
+     * @param documentClass 도큐먼트 클래스
+     * @param ttlMillis 이 쿼리 결과의 유효 시간 (0 이하면 캐시하지 않음)
+     * @return SearchResponse
+     */
+    @SuppressWarnings("unchecked")
+    public <T> SearchResponse<T> search(OpenSearchClient client, SearchRequest request, Class<T> documentClass, long ttlMillis) throws IOException {
+        if (ttlMillis <= 0 || request.scroll() != null || request.pit() != null) {
+            return client.search(request, documentClass);
+        }
+
+        String key = key(request, documentClass);
+        long now = System.currentTimeMillis();
+        long searchGeneration;
+        synchronized (entries) {
+            searchGeneration = generation;
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAtMillis() > now) {
+                    hits.incrementAndGet();
+                    return (SearchResponse<T>) entry.response();
+                }
+                entries.remove(key);
+                expirations.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+
+        SearchResponse<T> response = client.search(request, documentClass);
+        if (!response.timedOut() && response.shards().failed().intValue() == 0) {
+            synchronized (entries) {
+                if (generation == searchGeneration) {
+                    entries.put(key, new Entry(request.index(), response, System.currentTimeMillis() + ttlMillis));
+                }
+            }
+        }
+        return response;
+    }
+
+    /**
+     * 인덱스를 검색한 결과를 모두 제거 - 인덱스에 데이터를 쓴 후에 호출 <br>
+     * 와일드카드(sample-*)나 _all 로 검색한 결과도 인덱스 이름이 일치하면 제거됨
+     * @param indexName 데이터를 쓴 인덱스
+     */
+    public void invalidate(String indexName) {
+        synchronized (entries) {
+            generation++;
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+                if (it.next().matches(indexName)) {
+                    it.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * 모든 결과 제거
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation++;
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+        }
+    }
+
+    /**
+     * bulk 요청이 끝날 때마다 대상 인덱스의 결과를 제거하는 BulkIngester 리스너
+     * @return BulkIngester.Listener
+     */
+    public BulkIngester.Listener invalidationListener() {
+        return new BulkIngester.Listener() {
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+                Set<String> indices = new HashSet<>();
+                for (BulkResponseItem item : response.items()) {
+                    indices.add(item.index());
+                }
+                indices.forEach(SearchResultCache.this::invalidate);
+            }
+        };
+    }
+
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(hits.get(), misses.get(), evictions.get(), expirations.get(), invalidations.get(), entries.size());
+        }
+    }
+
+    /**
+     * 인덱스 목록 + 이름 순으로 정렬한 URL 파라미터 + 도큐먼트 클래스 + canonical 요청 본문의 SHA-256
+     */
+    private static String key(SearchRequest request, Class<?> documentClass) {
+        List<String> indices = new ArrayList<>(request.index());
+        indices.sort(null);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.join(",", indices)).append('\n');
+        // 클라이언트가 URL 에 붙이는 파라미터를 그대로 사용하므로 본문 밖의 모든 옵션이 키에 들어감
+        new TreeMap<>(SearchRequest._ENDPOINT.queryParameters(request))
+                .forEach((name, value) -> sb.append(name).append('=').append(value).append('&'));
+        sb.append('\n');
+        sb.append(documentClass.getName()).append('\n');
+        sb.append(canonicalJson(OpenSearchUtil.convertToJson(request)));
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 객체 필드를 이름 순으로 정렬한 JSON (배열 순서는 의미가 있으므로 유지)
+    private static String canonicalJson(String json) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(sortFields(OBJECT_MAPPER.readTree(json)));
+        } catch (IOException e) {
+            return json;
+        }
+    }
+
+    private static JsonNode sortFields(JsonNode node) {
+        if (node.isObject()) {
+            TreeMap<String, JsonNode> sorted = new TreeMap<>();
+            node.fields().forEachRemaining(field -> sorted.put(field.getKey(), sortFields(field.getValue())));
+            ObjectNode result = OBJECT_MAPPER.createObjectNode();
+            sorted.forEach(result::set);
+            return result;
+        }
+        if (node.isArray()) {
+            ArrayNode result = OBJECT_MAPPER.createArrayNode();
+            node.forEach(element -> result.add(sortFields(element)));
+            return result;
+        }
+        return node;
+    }
+
+    private record Entry(List<String> indices, SearchResponse<?> response, long expiresAtMillis) {
+
+        boolean matches(String indexName) {
+            if (indices.isEmpty()) {
+                return true;
+            }
+            for (String pattern : indices) {
+                for (String part : pattern.split(",")) {
+                    if (part.equals("_all") || part.equals("*") || globMatches(part, indexName)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private static boolean globMatches(String pattern, String value) {
+            if (!pattern.contains("*")) {
+                return pattern.equals(value);
+            }
+            StringBuilder regex = new StringBuilder();
+            for (String piece : pattern.split("\\*", -1)) {
+                if (regex.length() > 0) {
+                    regex.append(".*");
+                }
+                regex.append(Pattern.quote(piece));
+            }
+            return value.matches(regex.toString());
+        }
+    }
+
+    public static class Builder {
+        private int maxEntries = 1000;
+        private long defaultTtlMillis = 5000;
+
+        private Builder() {
+        }
+
+        /**
+         * 캐시할 최대 결과 수 (기본 1000) - 넘으면 가장 오래 사용하지 않은 결과부터 제거
+         */
+        public Builder maxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * TTL 을 지정하지 않은 검색 결과의 유효 시간 (기본 5000ms)
+         */
+        public Builder defaultTtlMillis(long defaultTtlMillis) {
+            this.defaultTtlMillis = defaultTtlMillis;
+            return this;
+        }
+
+        public SearchResultCache build() {
+            if (maxEntries <= 0) {
+                throw new IllegalArgumentException("maxEntries must be positive");
+            }
+            return new SearchResultCache(this);
+        }
+    }
+}
@@ -0,0 +1,411 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hc.core5.http.HttpHost;
+import org.opensearch.client.opensearch.OpenSearchAsyncClient;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.bulk.BulkOperationBase;
+import org.opensearch.client.opensearch.generic.Body;
+import org.opensearch.client.opensearch.generic.OpenSearchGenericClient;
+import org.opensearch.client.opensearch.generic.Requests;
+import org.opensearch.client.opensearch.generic.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 도큐먼트가 저장될 primary shard 를 클라이언트에서 계산해서 bulk 요청을 그 shard 를 가진 노드로 바로 보내는 라우터 <br><br>
+ * 일반 bulk 요청은 임의의 노드(coordinating node)가 받아서 도큐먼트마다 shard 를 계산한 후 primary 를 가진 노드로 다시 전달합니다. <br>
+ * 이 라우터는 클러스터의 routing table 을 읽어두고, 서버와 같은 방식(routing 값 또는 _id 의 murmur3 hash)으로 shard 를 계산해서
+ * operation 들을 primary 노드별로 나눕니다. 나눠진 요청은 노드마다 만든 전용 client 로 전송됩니다. <br><br>
+ * 아래의 경우에는 계산하지 않고 기존처럼 커넥션 풀의 아무 노드로 보냅니다. (fallback) <br>
+ * - _id 가 없는 operation (서버에서 아이디 생성), routing table 에 없는 인덱스 (alias, data stream 등) <br>
+ * - primary 가 STARTED 상태가 아니거나 이동(relocating) 중인 shard <br>
+ * - 주기적으로 다시 읽은 routing table 이 이전과 다를 때 (노드 추가/제거, primary 이동) - 연속 두 번 같은 결과가 나올 때까지 <br>
+ * - 노드로 직접 보낸 요청이 실패했을 때 - 다음 refresh 에서 routing table 이 확인될 때까지
+ *
+ * <pre>
+ * ShardAwareRouter router = ShardAwareRouter.builder(connectionManager)
+ *         .indices("sample-index")
+ *         .build();
+ * BulkIngester ingester = BulkIngester.builder(asyncClient).shardRouting(router).build();
+ * </pre>
+ */
+public class ShardAwareRouter implements AutoCloseable {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final OpenSearchConnectionManager connectionManager;
+    private final OpenSearchGenericClient genericClient;
+    private final List<String> indices;
+    private final String scheme;
+    private final ScheduledExecutorService scheduler;
+
+    // null 이면 fallback (모든 operation 을 기존 방식으로 전송)
+    private volatile RoutingTable table;
+    private String lastLoadedSignature;
+
+    private final AtomicLong routedOperationCount = new AtomicLong();
+    private final AtomicLong fallbackOperationCount = new AtomicLong();
+
+    private ShardAwareRouter(Builder builder, RoutingTable initialTable) {
+        this.connectionManager = builder.connectionManager;
+        this.genericClient = builder.connectionManager.getGenericClient();
+        this.indices = builder.indices;
+        this.scheme = builder.scheme;
+        this.table = initialTable;
+        this.lastLoadedSignature = initialTable.signature;
+
+        if (builder.refreshIntervalMillis > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "shard-router-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::refresh, builder.refreshIntervalMillis, builder.refreshIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    public static Builder builder(OpenSearchConnectionManager connectionManager) {
+        return new Builder(connectionManager);
+    }
+
+    /**
+     * operation 들을 primary 를 가진 노드별로 나눔 - 각 목록 안의 순서는 원래 순서를 유지함
+     * @param operations bulk operation 목록
+     * @return 노드별 operation 목록 (key 가 null 인 목록은 기존 방식으로 보내야 함)
+     */
+    public Map<HttpHost, List<BulkOperation>> group(List<BulkOperation> operations) {
+        Map<HttpHost, List<BulkOperation>> groups = new LinkedHashMap<>();
+        RoutingTable current = table;
+        if (current == null) {
+            groups.put(null, operations);
+            fallbackOperationCount.addAndGet(operations.size());
+            return groups;
+        }
+
+        for (BulkOperation operation : operations) {
+            HttpHost host = current.primaryHost((BulkOperationBase) operation._get());
+            groups.computeIfAbsent(host, h -> new ArrayList<>()).add(operation);
+            if (host != null) {
+                routedOperationCount.incrementAndGet();
+            } else {
+                fallbackOperationCount.incrementAndGet();
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * 노드로 직접 요청을 보낼 client 반환
+     * @param host 노드 주소 (null 이면 기존 쓰기용 client)
+     * @return OpenSearchAsyncClient
+     */
+    public OpenSearchAsyncClient client(HttpHost host) {
+        return host == null ? connectionManager.getAsyncClient() : connectionManager.getNodeAsyncClient(host);
+    }
+
+    /**
+     * 노드로 직접 보낸 요청이 실패한 경우 - routing table 을 다시 확인할 때까지 fallback
+     * @param host 실패한 노드
+     */
+    public synchronized void onNodeFailure(HttpHost host) {
+        if (table != null) {
+            System.out.println("Shard-aware routing is disabled until the routing table is refreshed (request to " + host + " failed)");
+        }
+        table = null;
+        lastLoadedSignature = null;
+    }
+
+    /**
+     * routing table 을 다시 읽음 - 이전에 읽은 것과 같으면 적용하고, 다르면 다음 refresh 까지 fallback
+     */
+    public synchronized void refresh() {
+        try {
+            RoutingTable loaded = load(genericClient, indices, scheme);
+            if (loaded.signature.equals(lastLoadedSignature)) {
+                if (table == null) {
+                    System.out.println("Shard-aware routing is enabled again");
+                }
+                table = loaded;
+            } else {
+                if (table != null) {
+                    System.out.println("Cluster topology changed, shard-aware routing falls back until it is stable");
+                }
+                table = null;
+            }
+            lastLoadedSignature = loaded.signature;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Failed to refresh routing table: " + e.getMessage());
+            table = null;
+            lastLoadedSignature = null;
+        }
+    }
+
+    /**
+     * 현재 shard-aware routing 이 적용 중인지 여부
+     */
+    public boolean isActive() {
+        return table != null;
+    }
+
+    /**
+     * primary 노드로 직접 보낸 operation 수
+     */
+    public long getRoutedOperationCount() {
+        return routedOperationCount.get();
+    }
+
+    /**
+     * 기존 방식으로 보낸 operation 수
+     */
+    public long getFallbackOperationCount() {
+        return fallbackOperationCount.get();
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * cluster state 의 metadata, routing_table 과 노드의 http 주소를 읽어서 RoutingTable 생성
+     */
+    private static RoutingTable load(OpenSearchGenericClient genericClient, List<String> indices, String scheme) throws IOException {
+        JsonNode state = get(genericClient, "/_cluster/state/metadata,routing_table/" + String.join(",", indices));
+        JsonNode nodes = get(genericClient, "/_nodes/http");
+
+        Map<String, HttpHost> nodeHosts = new HashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = nodes.path("nodes").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> node = it.next();
+            String address = node.getValue().path("http").path("publish_address").textValue();
+            if (address != null) {
+                nodeHosts.put(node.getKey(), parseAddress(scheme, address));
+            }
+        }
+
+        Map<String, IndexRouting> indexRoutings = new HashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = state.path("metadata").path("indices").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            JsonNode indexSettings = entry.getValue().path("settings").path("index");
+            int numberOfShards = indexSettings.path("number_of_shards").asInt();
+            int routingNumShards = entry.getValue().path("routing_num_shards").asInt(numberOfShards);
+            int partitionSize = indexSettings.path("routing_partition_size").asInt(1);
+
+            HttpHost[] primaries = new HttpHost[numberOfShards];
+            JsonNode shards = state.path("routing_table").path("indices").path(entry.getKey()).path("shards");
+            for (Iterator<Map.Entry<String, JsonNode>> shardIt = shards.fields(); shardIt.hasNext(); ) {
+                Map.Entry<String, JsonNode> shard = shardIt.next();
+                int shardId = Integer.parseInt(shard.getKey());
+                for (JsonNode copy : shard.getValue()) {
+                    // 이동 중이거나 아직 시작되지 않은 primary 는 계산 대상에서 제외
+                    if (copy.path("primary").asBoolean()
+                            && "STARTED".equals(copy.path("state").asText())
+                            && !copy.hasNonNull("relocating_node")
+                            && shardId < numberOfShards) {
+                        primaries[shardId] = nodeHosts.get(copy.path("node").asText());
+                    }
+                }
+            }
+            if (numberOfShards > 0) {
+                indexRoutings.put(entry.getKey(), new IndexRouting(numberOfShards, routingNumShards, partitionSize, primaries));
+            }
+        }
+        return new RoutingTable(indexRoutings);
+    }
+
+    private static JsonNode get(OpenSearchGenericClient genericClient, String endpoint) throws IOException {
+        try (Response response = genericClient.execute(Requests.builder().endpoint(endpoint).method("GET").build())) {
+            Body body = response.getBody().orElseThrow(() -> new IOException(endpoint + " response has no body"));
+            try (InputStream in = body.body()) {
+                return OBJECT_MAPPER.readTree(in);
+            }
+        }
+    }
+
+    // publish_address 는 "10.0.0.1:9200" 또는 "host/10.0.0.1:9200", IPv6 는 "[::1]:9200" 형태
+    private static HttpHost parseAddress(String scheme, String address) {
+        int slash = address.indexOf('/');
+        if (slash >= 0) {
+            address = address.substring(slash + 1);
+        }
+        int colon = address.lastIndexOf(':');
+        String host = address.substring(0, colon);
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        }
+        return new HttpHost(scheme, host, Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    /**
+     * 서버의 OperationRouting 과 같은 방식으로 shard 번호 계산 <br>
+     * shard = floorMod(murmur3(routing) + partitionOffset, routingNumShards) / (routingNumShards / numberOfShards)
+     * @param id 도큐먼트 아이디
+     * @param routing routing 값 (null 이면 id 사용)
+     * @param numberOfShards 인덱스의 primary shard 수
+     * @param routingNumShards 인덱스의 routing_num_shards (split 을 위해 numberOfShards 의 배수로 설정됨)
+     * @param partitionSize routing_partition_size (1 이면 partition 없음)
+     * @return shard 번호
+     */
+    public static int shardId(String id, String routing, int numberOfShards, int routingNumShards, int partitionSize) {
+        String effectiveRouting = routing != null ? routing : id;
+        int partitionOffset = partitionSize > 1 ? Math.floorMod(murmur3(id), partitionSize) : 0;
+        int hash = murmur3(effectiveRouting) + partitionOffset;
+        return Math.floorMod(hash, routingNumShards) / (routingNumShards / numberOfShards);
+    }
+
+    /**
+     * 서버의 Murmur3HashFunction.hash(String) 과 같은 값 - 문자마다 하위/상위 바이트 순서로 2 바이트씩 hash (seed 0)
+     * @param value routing 값
+     * @return murmur3 x86 32bit hash
+     */
+    public static int murmur3(String value) {
+        byte[] bytes = new byte[value.length() * 2];
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            bytes[i * 2] = (byte) c;
+            bytes[i * 2 + 1] = (byte) (c >>> 8);
+        }
+        return murmur3(bytes, 0, bytes.length, 0);
+    }
+
+    @SuppressWarnings("fallthrough")
+    private static int murmur3(byte[] data, int offset, int length, int seed) {
+        final int c1 = 0xcc9e2d51;
+        final int c2 = 0x1b873593;
+
+        int h1 = seed;
+        int roundedEnd = offset + (length & 0xfffffffc);
+
+        for (int i = offset; i < roundedEnd; i += 4) {
+            int k1 = (data[i] & 0xff) | ((data[i + 1] & 0xff) << 8) | ((data[i + 2] & 0xff) << 16) | (data[i + 3] << 24);
+            k1 *= c1;
+            k1 = Integer.rotateLeft(k1, 15);
+            k1 *= c2;
+
+            h1 ^= k1;
+            h1 = Integer.rotateLeft(h1, 13);
+            h1 = h1 * 5 + 0xe6546b64;
+        }
+
+        int k1 = 0;
+        switch (length & 0x03) {
+            case 3:
+                k1 = (data[roundedEnd + 2] & 0xff) << 16;
+                // fall through
+            case 2:
+                k1 |= (data[roundedEnd + 1] & 0xff) << 8;
+                // fall through
+            case 1:
+                k1 |= (data[roundedEnd] & 0xff);
+                k1 *= c1;
+                k1 = Integer.rotateLeft(k1, 15);
+                k1 *= c2;
+                h1 ^= k1;
+        }
+
+        h1 ^= length;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        h1 ^= h1 >>> 16;
+        return h1;
+    }
+
+    // 인덱스별 shard 계산에 필요한 값과 shard 번호별 primary 노드 (null 이면 계산 대상 아님)
+    private record IndexRouting(int numberOfShards, int routingNumShards, int partitionSize, HttpHost[] primaries) {
+    }
+
+    private static class RoutingTable {
+        private final Map<String, IndexRouting> indices;
+        // 노드/primary 배치가 바뀌었는지 비교하기 위한 문자열
+        private final String signature;
+
+        RoutingTable(Map<String, IndexRouting> indices) {
+            this.indices = indices;
+            StringBuilder sb = new StringBuilder();
+            indices.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(entry -> {
+                        sb.append(entry.getKey()).append('=');
+                        for (HttpHost primary : entry.getValue().primaries()) {
+                            sb.append(primary).append(',');
+                        }
+                        sb.append(';');
+                    });
+            this.signature = sb.toString();
+        }
+
+        HttpHost primaryHost(BulkOperationBase operation) {
+            if (operation.index() == null || operation.id() == null) {
+                return null;
+            }
+            IndexRouting routing = indices.get(operation.index());
+            if (routing == null) {
+                return null;
+            }
+            // partition 인덱스는 routing 값이 필수
+            if (routing.partitionSize() > 1 && operation.routing() == null) {
+                return null;
+            }
+            int shard = shardId(operation.id(), operation.routing(), routing.numberOfShards(), routing.routingNumShards(), routing.partitionSize());
+            return routing.primaries()[shard];
+        }
+    }
+
+    public static class Builder {
+        private final OpenSearchConnectionManager connectionManager;
+        private List<String> indices = List.of("_all");
+        private String scheme = "http";
+        private long refreshIntervalMillis = 30_000;
+
+        private Builder(OpenSearchConnectionManager connectionManager) {
+            this.connectionManager = connectionManager;
+        }
+
+        /**
+         * routing table 을 읽을 인덱스 (기본 전체, 와일드카드 사용 가능)
+         */
+        public Builder indices(String... indices) {
+            this.indices = List.of(indices);
+            return this;
+        }
+
+        /**
+         * 노드의 publish_address 로 접속할 때 사용할 scheme (기본 http)
+         */
+        public Builder scheme(String scheme) {
+            this.scheme = scheme;
+            return this;
+        }
+
+        /**
+         * routing table 을 다시 읽는 주기 (기본 30초, 0 이면 다시 읽지 않음)
+         */
+        public Builder refreshIntervalMillis(long refreshIntervalMillis) {
+            this.refreshIntervalMillis = refreshIntervalMillis;
+            return this;
+        }
+
+        /**
+         * routing table 을 읽어서 라우터 생성
+         */
+        public ShardAwareRouter build() throws IOException {
+            return new ShardAwareRouter(this, load(connectionManager.getGenericClient(), indices, scheme));
+        }
+    }
+}
@@ -156,6 +156,38 @@ public class SingleDocumentSample {
         }
     }
 
+    /**
+     * 클라이언트에서 생성한 시간 순서 아이디로 단일 도큐먼트를 입력합니다. <br>
+     * 아이디가 매번 새로 만들어지므로 create 로 입력하고, 같은 요청을 재전송해도 도큐먼트가 중복되지 않습니다.
+     * @param indexName 인덱스 이름
+     * @return 생성한 도큐먼트 아이디
+     */
+    public String singleDocumentWithGeneratedId(String indexName) {
+
+        System.out.println("= SingleDocumentSample.singleDocumentWithGeneratedId =");
+
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode objectNode = mapper.createObjectNode();
+
+        objectNode.put("counter", "15U");
+        objectNode.put("ctime", System.currentTimeMillis());
+        objectNode.put("objHash", 1113030459);
+        objectNode.put("value", 0);
+
+        String documentId = DocumentIdGenerator.getDefault().nextId();
+        try {
+            CreateResponse response = client.create(c -> c
+                    .index(indexName)
+                    .id(documentId)
+                    .document(objectNode));
+
+            System.out.println("Created document " + response.id() + " with version " + response.version());
+        } catch (OpenSearchClientException | IOException e) {
+            System.out.println(e.getMessage());
+        }
+        return documentId;
+    }
+
     /**
      * 도큐먼트 아이디를 이용해서 단일 도큐먼트를 읽어 옵니다.
      * @param indexName 인덱스 이름
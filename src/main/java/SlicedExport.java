@@ -0,0 +1,359 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.opensearch.client.opensearch.core.SearchRequest;
+import org.opensearch.client.opensearch.core.search.Hit;
+import org.opensearch.client.opensearch.generic.Body;
+import org.opensearch.client.opensearch.generic.OpenSearchGenericClient;
+import org.opensearch.client.opensearch.generic.Requests;
+import org.opensearch.client.opensearch.generic.Response;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 검색 결과 전체를 N 개의 slice 로 나누어 worker 스레드마다 하나씩 읽고, 읽은 페이지를 하나의 sink 로 모으는 export <br><br>
+ * 하나의 PIT 를 만들고 slice 마다 DocumentIterator(slice(i, N), 같은 PIT)를 worker 에서 돌립니다.
+ * worker 는 받은 페이지를 크기가 제한된 queue 에 넣고 바로 다음 페이지를 요청하므로, slice 마다 prefetchPages 개까지 미리 읽어둡니다.
+ * export() 를 호출한 스레드가 queue 에서 페이지를 꺼내 sink 에 넘기므로 sink 는 한 스레드에서만 호출되고, 동기화가 필요 없습니다. <br>
+ * 페이지의 순서는 slice 안에서만 유지되고, slice 사이에는 섞입니다. <br><br>
+ * slice 수를 지정하지 않으면 대상 인덱스의 primary shard 수(_cat/indices 의 pri 합계)를 사용합니다.
+ * slice 수가 shard 수 이하이면 서버가 shard 단위로 나누므로 slice 마다 다시 걸러내는 비용이 없습니다. <br>
+ * sink 나 worker 에서 오류가 나면 나머지 worker 를 중단하고 PIT 를 삭제한 후 오류를 던집니다. <br><br>
+ * checkpoint 를 지정하면 sink 에 넘긴 페이지마다 slice 의 마지막 정렬 값을 기록하고, checkpointIntervalMillis 마다와 끝날 때(실패 포함)
+ * sink.position() 과 함께 파일에 저장합니다. 저장하기 전에 sink.force() 로 그 위치까지의 출력을 디스크에 기록합니다. 저장된 checkpoint 로 다시 export() 하면 끝난 slice 는 건너뛰고
+ * 나머지 slice 는 저장된 search_after 다음부터 읽습니다. 이때 slice 수는 checkpoint 에 저장된 값을 사용합니다.
+ *
+ * <pre>
+ * SlicedExport export = SlicedExport.builder(genericClient).keepAlive("5m").pageSize(1000).build();
+ * SlicedExport.Result result = export.export(request, ObjectNode.class, (slice, hits) -&gt; writer.write(hits));
+ * </pre>
+ */
+public class SlicedExport {
+
+    /**
+     * 페이지를 받는 sink - export() 를 호출한 스레드에서만 호출됨
+     */
+    @FunctionalInterface
+    public interface Sink<T> {
+        /**
+         * @param slice 페이지를 읽은 slice 번호
+         * @param hits 페이지의 hit
+         */
+        void write(int slice, List<Hit<T>> hits) throws IOException;
+
+        /**
+         * 지금까지 다 쓴 출력 위치 - checkpoint 에 저장되고, 다시 시작할 때 이 위치부터 이어서 씀 (기본 -1, 위치 없음)
+         */
+        default long position() {
+            return -1;
+        }
+
+        /**
+         * position() 까지 쓴 내용을 디스크에 기록 - checkpoint 를 저장하기 전에 호출됨 (기본 아무것도 하지 않음)
+         */
+        default void force() throws IOException {
+        }
+    }
+
+    /**
+     * export 결과
+     * @param slices 나눈 slice 수
+     * @param hitCount sink 에 넘긴 hit 수
+     * @param pageCount 받은 페이지 수
+     * @param responseBytes 받은 응답 본문의 byte 수
+     * @param tookMillis 걸린 시간 (ms)
+     */
+    public record Result(int slices, long hitCount, long pageCount, long responseBytes, long tookMillis) {
+    }
+
+    /**
+     * worker 가 queue 에 넣는 항목 - hits 가 비어 있으면 slice 의 끝, failure 가 있으면 slice 의 오류 <br>
+     * searchAfter 는 hits 의 마지막 hit 의 정렬 값 (응답 JSON 의 타입 그대로)
+     */
+    private record SlicePage<T>(int slice, List<Hit<T>> hits, List<Object> searchAfter, Exception failure) {
+    }
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final OpenSearchGenericClient genericClient;
+    private final int slices;
+    private final String keepAlive;
+    private final String tiebreaker;
+    private final int pageSize;
+    private final long targetPageBytes;
+    private final int prefetchPages;
+    private final ExportCheckpoint checkpoint;
+    private final long checkpointIntervalMillis;
+
+    private SlicedExport(Builder builder) {
+        this.genericClient = builder.genericClient;
+        this.slices = builder.slices;
+        this.keepAlive = builder.keepAlive;
+        this.tiebreaker = builder.tiebreaker;
+        this.pageSize = builder.pageSize;
+        this.targetPageBytes = builder.targetPageBytes;
+        this.prefetchPages = builder.prefetchPages;
+        this.checkpoint = builder.checkpoint;
+        this.checkpointIntervalMillis = builder.checkpointIntervalMillis;
+    }
+
+    public static Builder builder(OpenSearchGenericClient genericClient) {
+        return new Builder(genericClient);
+    }
+
+    /**
+     * 검색 결과 전체를 slice 로 나누어 병렬로 읽고 sink 에 넘김 - 모든 slice 를 다 읽으면 반환
+     * @param request 검색 요청 (DocumentIterator 와 같은 제약 - index 필수, scroll/search_after/from 불가)
+     * @param documentClass _source 를 변환할 클래스
+     * @param sink 페이지를 받을 sink
+     * @return export 결과
+     */
+    public <T> Result export(SearchRequest request, Class<T> documentClass, Sink<T> sink) throws IOException, InterruptedException {
+        if (request.index().isEmpty()) {
+            throw new IllegalArgumentException("request must have target indices");
+        }
+        long start = System.currentTimeMillis();
+        int sliceCount;
+        if (checkpoint != null && checkpoint.slices() > 0) {
+            sliceCount = checkpoint.slices();
+        } else {
+            sliceCount = slices > 0 ? slices : primaryShardCount(request.index());
+        }
+        if (checkpoint != null) {
+            if (checkpoint.isCompleted()) {
+                return new Result(sliceCount, 0, 0, 0, 0);
+            }
+            checkpoint.startSlices(sliceCount);
+        }
+        String pitId = DocumentIterator.createPit(genericClient, request, keepAlive);
+
+        BlockingQueue<SlicePage<T>> queue = new ArrayBlockingQueue<>(sliceCount * prefetchPages);
+        AtomicLong pageCount = new AtomicLong();
+        AtomicLong responseBytes = new AtomicLong();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(sliceCount, r -> {
+            Thread thread = new Thread(r, "sliced-export-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long hitCount = 0;
+        long checkpointRows = checkpoint != null ? checkpoint.rowCount() : 0;
+        long lastSave = System.currentTimeMillis();
+        try {
+            int remaining = 0;
+            for (int slice = 0; slice < sliceCount; slice++) {
+                ExportCheckpoint.SliceState state = checkpoint != null ? checkpoint.sliceState(slice) : null;
+                if (state != null && state.done()) {
+                    continue;
+                }
+                DocumentIterator.Builder<T> builder = iteratorBuilder(request, documentClass, slice, sliceCount)
+                        .startAfter(state != null ? state.searchAfter() : null);
+                int sliceId = slice;
+                workers.execute(() -> readSlice(sliceId, builder.sharedPit(pitId), queue, pageCount, responseBytes));
+                remaining++;
+            }
+
+            while (remaining > 0) {
+                SlicePage<T> page = queue.take();
+                if (page.failure() != null) {
+                    throw failure(page.slice(), page.failure());
+                }
+                if (page.hits().isEmpty()) {
+                    remaining--;
+                    if (checkpoint != null) {
+                        ExportCheckpoint.SliceState state = checkpoint.sliceState(page.slice());
+                        checkpoint.updateSlice(page.slice(), state != null ? state.searchAfter() : null, true);
+                    }
+                    continue;
+                }
+                sink.write(page.slice(), page.hits());
+                hitCount += page.hits().size();
+                if (checkpoint != null) {
+                    checkpoint.updateSlice(page.slice(), page.searchAfter(), false);
+                    checkpoint.updateOutput(sink.position(), checkpointRows + hitCount);
+                    if (System.currentTimeMillis() - lastSave >= checkpointIntervalMillis) {
+                        // 전원이 꺼져도 checkpoint 의 위치가 디스크에 있는 출력보다 앞서지 않도록 먼저 기록
+                        sink.force();
+                        checkpoint.save();
+                        lastSave = System.currentTimeMillis();
+                    }
+                }
+            }
+            if (checkpoint != null) {
+                checkpoint.complete();
+            }
+        } finally {
+            // 오류로 끝난 경우 queue 에 넣으려고 기다리는 worker 를 깨워서 중단
+            workers.shutdownNow();
+            DocumentIterator.deletePit(genericClient, pitId);
+            if (checkpoint != null) {
+                saveCheckpoint(sink);
+            }
+        }
+        return new Result(sliceCount, hitCount, pageCount.get(), responseBytes.get(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 마지막으로 sink 에 넘긴 페이지까지의 상태 저장 - 실패해도 export 의 오류를 가리지 않도록 출력만 함
+     */
+    private void saveCheckpoint(Sink<?> sink) {
+        try {
+            sink.force();
+            checkpoint.save();
+        } catch (IOException e) {
+            System.out.println("Failed to save export checkpoint: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 대상 인덱스의 primary shard 수 합계
+     */
+    private int primaryShardCount(List<String> indices) throws IOException {
+        try (Response response = genericClient.execute(Requests.builder()
+                .endpoint("/_cat/indices/" + String.join(",", indices))
+                .method("GET")
+                .query(Map.of("format", "json", "h", "index,pri"))
+                .build())) {
+            Body body = response.getBody().orElseThrow(() -> new IOException("cat indices response has no body"));
+            int shards = 0;
+            for (JsonNode index : OBJECT_MAPPER.readTree(body.body())) {
+                shards += index.path("pri").asInt(0);
+            }
+            return Math.max(1, shards);
+        }
+    }
+
+    private <T> DocumentIterator.Builder<T> iteratorBuilder(SearchRequest request, Class<T> documentClass, int slice, int sliceCount) {
+        return DocumentIterator.builder(genericClient, request, documentClass)
+                .keepAlive(keepAlive)
+                .tiebreaker(tiebreaker)
+                .pageSize(pageSize)
+                .targetPageBytes(targetPageBytes)
+                .slice(slice, sliceCount);
+    }
+
+    private static <T> void readSlice(int slice, DocumentIterator.Builder<T> builder, BlockingQueue<SlicePage<T>> queue,
+                                      AtomicLong pageCount, AtomicLong responseBytes) {
+        try {
+            try (DocumentIterator<T> iterator = builder.build()) {
+                List<Hit<T>> hits;
+                while (!(hits = iterator.nextPage()).isEmpty()) {
+                    queue.put(new SlicePage<>(slice, hits, iterator.searchAfter(), null));
+                }
+                pageCount.addAndGet(iterator.getPageCount());
+                responseBytes.addAndGet(iterator.getResponseBytes());
+            } catch (IOException | RuntimeException e) {
+                queue.put(new SlicePage<>(slice, List.of(), null, e));
+                return;
+            }
+            queue.put(new SlicePage<>(slice, List.of(), null, null));
+        } catch (InterruptedException e) {
+            // export 가 중단됨
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static IOException failure(int slice, Exception e) {
+        Throwable cause = e instanceof UncheckedIOException ? e.getCause() : e;
+        return new IOException("slice " + slice + " failed: " + cause.getMessage(), cause);
+    }
+
+    public static class Builder {
+        private final OpenSearchGenericClient genericClient;
+        private int slices = 0;
+        private String keepAlive = "5m";
+        private String tiebreaker = "_id";
+        private int pageSize = 1000;
+        private long targetPageBytes = 4 * 1024 * 1024;
+        private int prefetchPages = 2;
+        private ExportCheckpoint checkpoint = null;
+        private long checkpointIntervalMillis = 10_000;
+
+        private Builder(OpenSearchGenericClient genericClient) {
+            this.genericClient = genericClient;
+        }
+
+        /**
+         * slice 수 = worker 스레드 수 (기본 0 - 대상 인덱스의 primary shard 수)
+         */
+        public Builder slices(int slices) {
+            this.slices = slices;
+            return this;
+        }
+
+        /**
+         * PIT 유지 시간 - 페이지를 요청할 때마다 연장됨 (기본 5m)
+         */
+        public Builder keepAlive(String keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        /**
+         * 정렬 마지막에 붙일 유일한 값의 필드 (기본 _id)
+         */
+        public Builder tiebreaker(String tiebreaker) {
+            this.tiebreaker = tiebreaker;
+            return this;
+        }
+
+        /**
+         * slice 마다 첫 페이지의 size (기본 1000)
+         */
+        public Builder pageSize(int pageSize) {
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * 페이지 응답 본문의 목표 크기 (기본 4MB, 0 이하면 size 를 바꾸지 않음)
+         */
+        public Builder targetPageBytes(long targetPageBytes) {
+            this.targetPageBytes = targetPageBytes;
+            return this;
+        }
+
+        /**
+         * slice 마다 sink 에 넘기기 전에 미리 읽어둘 페이지 수 (기본 2)
+         */
+        public Builder prefetchPages(int prefetchPages) {
+            this.prefetchPages = prefetchPages;
+            return this;
+        }
+
+        /**
+         * 진행 상태를 저장할 checkpoint - 저장된 상태가 있으면 그 다음부터 export (기본 없음)
+         */
+        public Builder checkpoint(ExportCheckpoint checkpoint) {
+            this.checkpoint = checkpoint;
+            return this;
+        }
+
+        /**
+         * checkpoint 를 파일에 저장하는 간격 (기본 10000ms, 끝날 때는 항상 저장)
+         */
+        public Builder checkpointIntervalMillis(long checkpointIntervalMillis) {
+            this.checkpointIntervalMillis = checkpointIntervalMillis;
+            return this;
+        }
+
+        public SlicedExport build() {
+            if (slices < 0) {
+                throw new IllegalArgumentException("slices must not be negative");
+            }
+            if (prefetchPages <= 0) {
+                throw new IllegalArgumentException("prefetchPages must be positive");
+            }
+            return new SlicedExport(this);
+        }
+    }
+}
@@ -0,0 +1,395 @@
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.opensearch.client.opensearch.core.SearchRequest;
+import org.opensearch.client.opensearch.generic.Body;
+import org.opensearch.client.opensearch.generic.OpenSearchGenericClient;
+import org.opensearch.client.opensearch.generic.Requests;
+import org.opensearch.client.opensearch.generic.Response;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * 검색 응답을 SearchResponse 로 한 번에 만들지 않고, 응답 본문에서 hit 을 하나씩 읽어서 넘겨주는 검색 <br><br>
+ * client.search() 는 응답 전체를 파싱해서 모든 hit 의 객체를 만든 후에 반환하므로
+ * 1000 건 이상의 페이지에 docvalue_fields 가 많으면 한 번에 많은 heap 을 사용합니다. <br>
+ * StreamingSearch 는 generic client 로 받은 응답 본문을 Jackson streaming parser(JsonParser)로 읽으면서
+ * hits.hits 배열의 원소를 하나 읽을 때마다 StreamedHit 으로 만들어 callback(또는 iterator)에 넘기므로,
+ * 동시에 메모리에 있는 hit 객체는 하나뿐입니다. <br>
+ * took, total 등 hits 앞에 있는 값과 aggregations, _scroll_id 등은 Summary 로 반환합니다.
+ * aggregations 는 typed_keys 없이 서버가 보낸 JSON 그대로(ObjectNode) 보관합니다. <br>
+ * searchColumns() 는 hit 객체도 만들지 않고 docvalue_fields 값을 DocValueColumns 의 primitive 배열에 바로 씁니다. <br><br>
+ * 검색 요청의 index, routing, preference, scroll 등은 URL 파라미터로, 나머지는 OpenSearchUtil.convertToJson() 으로 만든 본문으로 보냅니다.
+ *
+ * <pre>
+ * StreamingSearch streamingSearch = new StreamingSearch(genericClient);
+ * StreamingSearch.Summary summary = streamingSearch.search(request, ObjectNode.class, hit -&gt; ...);
+ *
+ * try (StreamingSearch.HitStream&lt;ObjectNode&gt; hits = streamingSearch.open(request, ObjectNode.class)) {
+ *     while (hits.hasNext()) { ... }
+ * }
+ * </pre>
+ */
+public class StreamingSearch {
+
+    /**
+     * 검색 결과의 hit 하나
+     * @param index 인덱스 이름
+     * @param id 도큐먼트 아이디
+     * @param score 점수 (정렬 검색이면 null)
+     * @param source _source (요청하지 않았으면 null)
+     * @param fields docvalue_fields 등 fields 로 받은 값 (없으면 null)
+     * @param sort 정렬 값 (search_after 에 사용, 정렬하지 않았으면 null)
+     */
+    public record StreamedHit<T>(String index, String id, Double score, T source, ObjectNode fields, ArrayNode sort) {
+    }
+
+    /**
+     * hits.hits 배열을 제외한 검색 응답
+     * @param took 검색 시간 (ms)
+     * @param timedOut 타임아웃 여부
+     * @param totalHits 전체 hit 수 (track_total_hits 가 false 면 -1)
+     * @param totalHitsExact totalHits 가 정확한 값인지 (false 면 그 이상)
+     * @param hitCount 이 응답에서 읽은 hit 수
+     * @param scrollId scroll 검색이면 다음 페이지 요청에 사용할 scroll id
+     * @param pitId PIT 검색이면 다음 페이지 요청에 사용할 PIT id
+     * @param aggregations aggregations 응답 (없으면 null)
+     */
+    public record Summary(long took, boolean timedOut, long totalHits, boolean totalHitsExact, long hitCount,
+                          String scrollId, String pitId, ObjectNode aggregations) {
+    }
+
+    private final OpenSearchGenericClient genericClient;
+    private final ObjectMapper objectMapper;
+
+    public StreamingSearch(OpenSearchGenericClient genericClient) {
+        this(genericClient, new ObjectMapper());
+    }
+
+    /**
+     * @param genericClient 검색에 사용할 generic client
+     * @param objectMapper _source 를 도큐먼트 클래스로 변환할 mapper
+     */
+    public StreamingSearch(OpenSearchGenericClient genericClient, ObjectMapper objectMapper) {
+        this.genericClient = genericClient;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 검색 후 hit 을 읽을 때마다 handler 호출
+     * @param request 검색 요청
+     * @param documentClass _source 를 변환할 클래스
+     * @param handler hit 마다 호출할 callback (응답을 읽는 스레드에서 호출됨)
+     * @return hits.hits 를 제외한 검색 응답
+     */
+    public <T> Summary search(SearchRequest request, Class<T> documentClass, Consumer<StreamedHit<T>> handler) throws IOException {
+        try (HitStream<T> hits = open(request, documentClass)) {
+            StreamedHit<T> hit;
+            while ((hit = hits.decoder.nextHit()) != null) {
+                handler.accept(hit);
+            }
+            return hits.summary();
+        }
+    }
+
+    /**
+     * 검색 후 hit 의 docvalue_fields 를 columns 에 이어서 추가 (hit 마다 객체를 만들지 않음) <br>
+     * 요청의 docvalue_fields 는 columns.docvalueFields() 로 지정해야 date 컬럼이 epoch_millis 로 반환됨
+     * @param request 검색 요청
+     * @param columns 값을 추가할 컬럼 버퍼
+     * @return hits.hits 를 제외한 검색 응답
+     */
+    public Summary searchColumns(SearchRequest request, DocValueColumns columns) throws IOException {
+        try (HitStream<Void> hits = open(request, Void.class)) {
+            while (hits.decoder.nextHitStart()) {
+                hits.decoder.readHitInto(columns);
+            }
+            return hits.summary();
+        }
+    }
+
+    /**
+     * 검색 후 hit 을 하나씩 읽는 iterator 반환 - 다 읽지 않았으면 close() 로 응답을 닫아야 함
+     * @param request 검색 요청
+     * @param documentClass _source 를 변환할 클래스
+     * @return HitStream
+     */
+    public <T> HitStream<T> open(SearchRequest request, Class<T> documentClass) throws IOException {
+        Response response = genericClient.execute(Requests.builder()
+                .endpoint(endpoint(request))
+                .method("POST")
+                .query(parameters(request))
+                .body(Body.from(OpenSearchUtil.convertToJson(request).getBytes(StandardCharsets.UTF_8), "application/json"))
+                .build());
+        try {
+            Body body = response.getBody().orElseThrow(() -> new IOException("search response has no body"));
+            JsonParser parser = objectMapper.getFactory().createParser(body.body());
+            return new HitStream<>(response, new Decoder<>(parser, documentClass));
+        } catch (IOException | RuntimeException e) {
+            response.close();
+            throw e;
+        }
+    }
+
+    private static String endpoint(SearchRequest request) {
+        return request.index().isEmpty() ? "/_search" : "/" + String.join(",", request.index()) + "/_search";
+    }
+
+    private static Map<String, String> parameters(SearchRequest request) {
+        Map<String, String> parameters = new HashMap<>();
+        if (request.routing() != null) {
+            parameters.put("routing", request.routing());
+        }
+        if (request.preference() != null) {
+            parameters.put("preference", request.preference());
+        }
+        if (request.scroll() != null) {
+            parameters.put("scroll", request.scroll()._toJsonString());
+        }
+        if (request.searchType() != null) {
+            parameters.put("search_type", request.searchType().jsonValue());
+        }
+        if (request.requestCache() != null) {
+            parameters.put("request_cache", String.valueOf(request.requestCache()));
+        }
+        if (request.allowNoIndices() != null) {
+            parameters.put("allow_no_indices", String.valueOf(request.allowNoIndices()));
+        }
+        if (request.ignoreUnavailable() != null) {
+            parameters.put("ignore_unavailable", String.valueOf(request.ignoreUnavailable()));
+        }
+        return parameters;
+    }
+
+    /**
+     * hit 을 하나씩 읽는 iterator - 모든 hit 을 읽은 후 summary() 로 나머지 응답을 얻을 수 있음
+     */
+    public static class HitStream<T> implements Iterator<StreamedHit<T>>, Closeable {
+
+        private final Response response;
+        private final Decoder<T> decoder;
+        private StreamedHit<T> next;
+        private boolean closed = false;
+
+        private HitStream(Response response, Decoder<T> decoder) {
+            this.response = response;
+            this.decoder = decoder;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !closed) {
+                try {
+                    next = decoder.nextHit();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public StreamedHit<T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            StreamedHit<T> hit = next;
+            next = null;
+            return hit;
+        }
+
+        /**
+         * 남은 응답을 끝까지 읽고 hits.hits 를 제외한 검색 응답 반환 (남은 hit 은 건너뜀)
+         */
+        public Summary summary() throws IOException {
+            next = null;
+            decoder.finish();
+            return decoder.summary();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                decoder.parser.close();
+            } finally {
+                response.close();
+            }
+        }
+    }
+
+    /**
+     * 응답 본문을 앞에서부터 읽으면서 hits.hits 의 원소를 하나씩 반환
+     */
+    private static class Decoder<T> {
+
+        private enum State { TOP_LEVEL, HITS_ARRAY, DONE }
+
+        private final JsonParser parser;
+        private final Class<T> documentClass;
+        private State state = State.TOP_LEVEL;
+
+        private long took = -1;
+        private boolean timedOut = false;
+        private long totalHits = -1;
+        private boolean totalHitsExact = true;
+        private long hitCount = 0;
+        private String scrollId;
+        private String pitId;
+        private ObjectNode aggregations;
+
+        Decoder(JsonParser parser, Class<T> documentClass) throws IOException {
+            this.parser = parser;
+            this.documentClass = documentClass;
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("search response is not a JSON object");
+            }
+        }
+
+        /**
+         * 다음 hit 반환 - 더 이상 없으면 null
+         */
+        StreamedHit<T> nextHit() throws IOException {
+            return nextHitStart() ? readHit() : null;
+        }
+
+        /**
+         * 다음 hit 객체의 시작으로 이동 - 더 이상 없으면 나머지 응답을 읽고 false 반환
+         */
+        boolean nextHitStart() throws IOException {
+            if (state == State.TOP_LEVEL) {
+                readTopLevel();
+            }
+            if (state != State.HITS_ARRAY) {
+                return false;
+            }
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                hitCount++;
+                return true;
+            }
+            // hits.hits 배열의 끝 - hits 객체의 나머지와 최상위 객체의 나머지를 읽음
+            readHitsObject();
+            state = State.TOP_LEVEL;
+            readTopLevel();
+            return false;
+        }
+
+        /**
+         * hit 의 fields 만 columns 에 읽고 나머지 필드는 건너뜀 (hit 객체를 만들지 않음)
+         */
+        void readHitInto(DocValueColumns columns) throws IOException {
+            int row = columns.addRow();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                if (name.equals("fields")) {
+                    columns.readFields(parser, row);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        void finish() throws IOException {
+            while (state != State.DONE) {
+                if (state == State.HITS_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        hitCount++;
+                    }
+                    readHitsObject();
+                    state = State.TOP_LEVEL;
+                }
+                readTopLevel();
+            }
+        }
+
+        Summary summary() {
+            return new Summary(took, timedOut, totalHits, totalHitsExact, hitCount, scrollId, pitId, aggregations);
+        }
+
+        /**
+         * 최상위 필드를 읽다가 hits.hits 배열을 만나면 멈춤 (HITS_ARRAY), 객체가 끝나면 DONE
+         */
+        private void readTopLevel() throws IOException {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken token = parser.nextToken();
+                switch (name) {
+                    case "took" -> took = parser.getLongValue();
+                    case "timed_out" -> timedOut = parser.getBooleanValue();
+                    case "_scroll_id" -> scrollId = parser.getText();
+                    case "pit_id" -> pitId = parser.getText();
+                    case "aggregations" -> aggregations = parser.readValueAsTree();
+                    case "hits" -> {
+                        if (token == JsonToken.START_OBJECT && readHitsObject()) {
+                            state = State.HITS_ARRAY;
+                            return;
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            state = State.DONE;
+        }
+
+        /**
+         * hits 객체의 필드를 읽다가 hits 배열을 만나면 true, 객체가 끝나면 false 반환
+         */
+        private boolean readHitsObject() throws IOException {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if (name.equals("total") && token == JsonToken.START_OBJECT) {
+                    JsonNode total = parser.readValueAsTree();
+                    totalHits = total.path("value").asLong(-1);
+                    totalHitsExact = !"gte".equals(total.path("relation").asText());
+                } else if (name.equals("total") && token.isNumeric()) {
+                    totalHits = parser.getLongValue();
+                } else if (name.equals("hits") && token == JsonToken.START_ARRAY) {
+                    return true;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return false;
+        }
+
+        private StreamedHit<T> readHit() throws IOException {
+            String index = null;
+            String id = null;
+            Double score = null;
+            T source = null;
+            ObjectNode fields = null;
+            ArrayNode sort = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken token = parser.nextToken();
+                switch (name) {
+                    case "_index" -> index = parser.getText();
+                    case "_id" -> id = parser.getText();
+                    case "_score" -> score = token == JsonToken.VALUE_NULL ? null : parser.getDoubleValue();
+                    case "_source" -> source = parser.readValueAs(documentClass);
+                    case "fields" -> fields = parser.readValueAsTree();
+                    case "sort" -> sort = parser.readValueAsTree();
+                    default -> parser.skipChildren();
+                }
+            }
+            return new StreamedHit<>(index, id, score, source, fields, sort);
+        }
+    }
+}
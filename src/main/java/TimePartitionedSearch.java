@@ -0,0 +1,642 @@
+import org.opensearch.client.opensearch.OpenSearchAsyncClient;
+import org.opensearch.client.opensearch._types.SortOptions;
+import org.opensearch.client.opensearch._types.SortOrder;
+import org.opensearch.client.opensearch._types.aggregations.Aggregate;
+import org.opensearch.client.opensearch._types.aggregations.Aggregation;
+import org.opensearch.client.opensearch._types.aggregations.DateHistogramAggregate;
+import org.opensearch.client.opensearch._types.aggregations.DateHistogramBucket;
+import org.opensearch.client.opensearch._types.aggregations.ExtendedStatsAggregate;
+import org.opensearch.client.opensearch._types.aggregations.LongTermsAggregate;
+import org.opensearch.client.opensearch._types.aggregations.LongTermsBucket;
+import org.opensearch.client.opensearch._types.aggregations.MaxAggregate;
+import org.opensearch.client.opensearch._types.aggregations.MinAggregate;
+import org.opensearch.client.opensearch._types.aggregations.MultiBucketBase;
+import org.opensearch.client.opensearch._types.aggregations.StatsAggregate;
+import org.opensearch.client.opensearch._types.aggregations.StringTermsAggregate;
+import org.opensearch.client.opensearch._types.aggregations.StringTermsBucket;
+import org.opensearch.client.opensearch._types.aggregations.SumAggregate;
+import org.opensearch.client.opensearch._types.aggregations.ValueCountAggregate;
+import org.opensearch.client.opensearch.core.SearchRequest;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.core.search.Hit;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * 일 단위로 나뉜 인덱스(enduser-info-YYYYMMDD 등)를 인덱스마다 따로, 동시에 검색한 후 결과를 합치는 검색 <br><br>
+ * 검색 기간에 해당하는 일별 인덱스 이름을 만들고(timeRangeCache 를 지정하면 기간과 겹치지 않는 인덱스는 뺌), OpenSearchAsyncClient 로 최대 maxConcurrentSearches 개씩 동시에 검색합니다.
+ * 존재하지 않는 일자의 인덱스는 빈 결과로 처리합니다. (ignore_unavailable, allow_no_indices) <br>
+ * - hit : 인덱스별로 정렬된 결과를 heap 으로 k-way merge 해서 상위 N 건(from + size)만 반환합니다.
+ *         정렬 값(sort)은 숫자면 숫자로, 아니면 문자열로 비교하고, 정렬을 지정하지 않았으면 _score 내림차순입니다. <br>
+ * - aggregation : sum, min, max, value_count, stats, extended_stats 는 정확하게 합치고,
+ *                 terms(sterms, lterms), date_histogram 은 key 별 doc_count 를 더하고 하위 aggregation 도 재귀적으로 합칩니다.
+ *                 terms 는 합친 후 다시 요청의 size 개로 자르고 잘린 bucket 의 doc_count 는 sum_other_doc_count 에 더합니다.
+ *                 인덱스마다 상위 size 개만 반환되므로 합친 결과는 근사값입니다.
+ *                 그 외(avg, cardinality, percentiles 등)는 합칠 수 없으므로 결과에서 빠지고 uncombinedAggregations 에 이름이 남습니다. <br>
+ * - 조기 종료 : aggregation 이 없을 때, 첫 번째 정렬 필드가 timeField 이면 최신(오름차순이면 가장 오래된) 인덱스부터 검색하다가
+ *              상위 N 번째 hit 의 시간이 다음 인덱스의 기간 밖이면 나머지 인덱스는 검색하지 않습니다.
+ *              다른 필드나 _score 로 정렬하면 어느 인덱스에 상위 hit 이 있을지 알 수 없으므로 모든 인덱스를 검색합니다.
+ *
+ * <pre>
+ * TimePartitionedSearch search = TimePartitionedSearch.builder(asyncClient).indexPrefix("enduser-info-").timeField("endTime").build();
+ * TimePartitionedSearch.Result&lt;ObjectNode&gt; result = search.search(request, from, to, ObjectNode.class).join();
+ * </pre>
+ */
+public class TimePartitionedSearch {
+
+    /**
+     * 합친 검색 결과
+     * @param hits 정렬된 상위 hit (from 만큼 건너뛴 size 건)
+     * @param totalHits 검색한 인덱스의 전체 hit 수 합계
+     * @param aggregations 합친 aggregation 결과
+     * @param searchedIndices 검색한 인덱스
+     * @param prunedIndices IndexTimeRangeCache 로 검색 전에 뺀 인덱스
+     * @param skippedIndices 조기 종료로 검색하지 않은 인덱스
+     * @param failedIndices 검색에 실패한 인덱스와 원인
+     * @param uncombinedAggregations 합칠 수 없는 종류라서 결과에서 뺀 aggregation 이름
+     */
+    public record Result<T>(List<Hit<T>> hits, long totalHits, Map<String, Aggregate> aggregations,
+                            List<String> searchedIndices, List<String> prunedIndices, List<String> skippedIndices,
+                            Map<String, Throwable> failedIndices, List<String> uncombinedAggregations) {
+    }
+
+    private final OpenSearchAsyncClient asyncClient;
+    private final String indexPrefix;
+    private final DateTimeFormatter dateFormatter;
+    private final ZoneId zone;
+    private final String timeField;
+    private final int maxConcurrentSearches;
+    private final IndexTimeRangeCache timeRangeCache;
+
+    private TimePartitionedSearch(Builder builder) {
+        this.asyncClient = builder.asyncClient;
+        this.indexPrefix = builder.indexPrefix;
+        this.dateFormatter = DateTimeFormatter.ofPattern(builder.datePattern);
+        this.zone = builder.zone;
+        this.timeField = builder.timeField;
+        this.maxConcurrentSearches = builder.maxConcurrentSearches;
+        this.timeRangeCache = builder.timeRangeCache;
+    }
+
+    public static Builder builder(OpenSearchAsyncClient asyncClient) {
+        return new Builder(asyncClient);
+    }
+
+    /**
+     * 기간에 해당하는 일별 인덱스 이름 (오래된 날짜부터)
+     * @param fromMillis 시작 시간 (epoch millis)
+     * @param toMillis 종료 시간 (epoch millis)
+     * @return 인덱스 이름 목록
+     */
+    public List<String> indices(long fromMillis, long toMillis) {
+        List<String> indices = new ArrayList<>();
+        LocalDate to = Instant.ofEpochMilli(toMillis).atZone(zone).toLocalDate();
+        for (LocalDate day = Instant.ofEpochMilli(fromMillis).atZone(zone).toLocalDate(); !day.isAfter(to); day = day.plusDays(1)) {
+            indices.add(indexPrefix + dateFormatter.format(day));
+        }
+        return indices;
+    }
+
+    /**
+     * 기간에 해당하는 일별 인덱스를 동시에 검색하고 결과를 합침
+     * @param request index 를 지정하지 않은 검색 요청 (기간 조건은 query 에 포함해야 함)
+     * @param fromMillis 시작 시간 (epoch millis)
+     * @param toMillis 종료 시간 (epoch millis)
+     * @param documentClass 도큐먼트 클래스
+     * @return 합친 검색 결과
+     */
+    public <T> CompletableFuture<Result<T>> search(SearchRequest request, long fromMillis, long toMillis, Class<T> documentClass) {
+        // toBuilder().index() 는 기존 인덱스 뒤에 덧붙이므로 요청에는 인덱스가 없어야 함
+        if (!request.index().isEmpty()) {
+            throw new IllegalArgumentException("index is resolved from the time range and must not be set");
+        }
+        List<String> indices = indices(fromMillis, toMillis);
+        List<String> pruned = new ArrayList<>();
+        if (timeRangeCache != null) {
+            List<String> remaining = timeRangeCache.prune(indices, timeField, fromMillis, toMillis);
+            indices.stream().filter(index -> !remaining.contains(index)).forEach(pruned::add);
+            indices = new ArrayList<>(remaining);
+        }
+        int from = request.from() != null ? request.from() : 0;
+        int size = request.size() != null ? request.size() : 10;
+        SortOptions primarySort = request.sort().isEmpty() ? null : request.sort().get(0);
+        boolean timeSorted = primarySort != null && primarySort.isField() && primarySort.field().field().equals(timeField);
+        // order 를 지정하지 않은 field 정렬은 서버에서 오름차순 (hitComparator 와 같은 기준)
+        boolean ascending = timeSorted && primarySort.field().order() != SortOrder.Desc;
+        if (!ascending) {
+            Collections.reverse(indices);
+        }
+        // 첫 번째 정렬 필드가 timeField 일 때만 남은 인덱스의 hit 순위를 인덱스 기간으로 알 수 있음
+        boolean earlyStop = request.aggregations().isEmpty() && timeSorted;
+
+        Fanout<T> fanout = new Fanout<>(request, indices, from + size, documentClass, earlyStop, ascending);
+        fanout.start();
+        return fanout.future.thenApply(done -> fanout.result(from, size, pruned));
+    }
+
+    /**
+     * 인덱스 하나의 검색 요청 - 상위 N 건만 필요하므로 from 0, size N 으로 요청
+     */
+    private SearchRequest indexRequest(SearchRequest request, String index, int topN) {
+        return request.toBuilder()
+                .index(index)
+                .from(0)
+                .size(topN)
+                .ignoreUnavailable(true)
+                .allowNoIndices(true)
+                .build();
+    }
+
+    /**
+     * 인덱스별 검색을 최대 maxConcurrentSearches 개씩 실행하고 결과를 모음
+     */
+    private class Fanout<T> {
+
+        private final SearchRequest request;
+        private final List<String> indices;
+        private final int topN;
+        private final Class<T> documentClass;
+        private final boolean earlyStop;
+        private final boolean ascending;
+        private final Comparator<Hit<T>> comparator;
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private final Map<String, SearchResponse<T>> responses = new LinkedHashMap<>();
+        private final Map<String, Throwable> failures = new LinkedHashMap<>();
+        private final List<String> skipped = new ArrayList<>();
+        private int nextIndex = 0;
+        private int running = 0;
+        private boolean stopped = false;
+
+        Fanout(SearchRequest request, List<String> indices, int topN, Class<T> documentClass,
+               boolean earlyStop, boolean ascending) {
+            this.request = request;
+            this.indices = indices;
+            this.topN = topN;
+            this.documentClass = documentClass;
+            this.earlyStop = earlyStop;
+            this.ascending = ascending;
+            this.comparator = hitComparator(request.sort());
+        }
+
+        void start() {
+            launch();
+        }
+
+        // 동시 실행 수가 남아 있는 만큼 다음 인덱스 검색을 시작
+        private void launch() {
+            List<String> toStart = new ArrayList<>();
+            synchronized (this) {
+                while (!stopped && running < maxConcurrentSearches && nextIndex < indices.size()) {
+                    toStart.add(indices.get(nextIndex++));
+                    running++;
+                }
+                if (running == 0 && toStart.isEmpty()) {
+                    future.complete(null);
+                    return;
+                }
+            }
+            for (String index : toStart) {
+                CompletableFuture<SearchResponse<T>> searchFuture;
+                try {
+                    searchFuture = asyncClient.search(indexRequest(request, index, topN), documentClass);
+                } catch (Exception e) {
+                    searchFuture = CompletableFuture.failedFuture(e);
+                }
+                searchFuture.whenComplete((response, e) -> {
+                    synchronized (this) {
+                        running--;
+                        if (e != null) {
+                            failures.put(index, e);
+                        } else {
+                            responses.put(index, response);
+                            if (earlyStop && !stopped && canStop()) {
+                                stopped = true;
+                                skipped.addAll(indices.subList(nextIndex, indices.size()));
+                            }
+                        }
+                    }
+                    launch();
+                });
+            }
+        }
+
+        /**
+         * 아직 시작하지 않은 인덱스가 상위 N 건에 들어갈 수 없는지 - timeField 로 정렬한 경우에만 호출
+         */
+        private boolean canStop() {
+            if (nextIndex >= indices.size()) {
+                return false;
+            }
+            List<Hit<T>> top = merge(topN);
+            if (top.size() < topN) {
+                return false;
+            }
+            // 상위 N 번째 hit 의 시간이 다음 인덱스의 기간 밖이면, 그 이후 인덱스의 hit 은 모두 순위가 더 낮음
+            Hit<T> last = top.get(top.size() - 1);
+            if (last.sort().isEmpty()) {
+                return false;
+            }
+            double lastTime;
+            try {
+                lastTime = Double.parseDouble(last.sort().get(0));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            LocalDate nextDay = LocalDate.parse(indices.get(nextIndex).substring(indexPrefix.length()), dateFormatter);
+            long dayStart = nextDay.atStartOfDay(zone).toInstant().toEpochMilli();
+            long dayEnd = nextDay.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            return ascending ? lastTime < dayStart : lastTime >= dayEnd;
+        }
+
+        /**
+         * 인덱스별로 정렬된 hit 목록을 heap 으로 k-way merge 해서 앞에서 limit 건 반환
+         */
+        private List<Hit<T>> merge(int limit) {
+            record Cursor<T>(List<Hit<T>> hits, int position) {
+                Hit<T> current() {
+                    return hits.get(position);
+                }
+            }
+            PriorityQueue<Cursor<T>> heap = new PriorityQueue<>((a, b) -> comparator.compare(a.current(), b.current()));
+            for (SearchResponse<T> response : responses.values()) {
+                if (!response.hits().hits().isEmpty()) {
+                    heap.add(new Cursor<>(response.hits().hits(), 0));
+                }
+            }
+            List<Hit<T>> merged = new ArrayList<>();
+            while (!heap.isEmpty() && merged.size() < limit) {
+                Cursor<T> cursor = heap.poll();
+                merged.add(cursor.current());
+                if (cursor.position() + 1 < cursor.hits().size()) {
+                    heap.add(new Cursor<>(cursor.hits(), cursor.position() + 1));
+                }
+            }
+            return merged;
+        }
+
+        synchronized Result<T> result(int from, int size, List<String> pruned) {
+            List<Hit<T>> top = merge(from + size);
+            List<Hit<T>> page = top.size() <= from ? List.of() : top.subList(from, top.size());
+
+            long totalHits = 0;
+            for (SearchResponse<T> response : responses.values()) {
+                if (response.hits().total() != null) {
+                    totalHits += response.hits().total().value();
+                }
+            }
+
+            List<String> uncombined = new ArrayList<>();
+            List<Map<String, Aggregate>> aggregations = new ArrayList<>();
+            responses.values().forEach(response -> aggregations.add(response.aggregations()));
+            Map<String, Aggregate> combined = combineAll(aggregations, "", termsSizes(request.aggregations(), ""), uncombined);
+
+            return new Result<>(new ArrayList<>(page), totalHits, combined, new ArrayList<>(responses.keySet()),
+                    pruned, new ArrayList<>(skipped), new LinkedHashMap<>(failures), uncombined);
+        }
+    }
+
+    /**
+     * 검색 요청의 sort 순서대로 hit 을 비교 - 정렬이 없으면 _score 내림차순
+     */
+    private static <T> Comparator<Hit<T>> hitComparator(List<SortOptions> sort) {
+        if (sort.isEmpty()) {
+            return (a, b) -> Double.compare(score(b), score(a));
+        }
+        boolean[] descending = new boolean[sort.size()];
+        for (int i = 0; i < sort.size(); i++) {
+            SortOptions options = sort.get(i);
+            if (options.isScore()) {
+                descending[i] = options.score().order() != SortOrder.Asc;
+            } else if (options.isField()) {
+                descending[i] = options.field().order() == SortOrder.Desc;
+            }
+        }
+        return (a, b) -> {
+            for (int i = 0; i < descending.length; i++) {
+                int c = compareSortValue(value(a.sort(), i), value(b.sort(), i));
+                if (c != 0) {
+                    return descending[i] ? -c : c;
+                }
+            }
+            return 0;
+        };
+    }
+
+    private static double score(Hit<?> hit) {
+        return hit.score() == null ? Double.NEGATIVE_INFINITY : hit.score();
+    }
+
+    private static String value(List<String> values, int i) {
+        return i < values.size() ? values.get(i) : null;
+    }
+
+    // 값이 없는 쪽이 뒤로, 둘 다 숫자면 숫자로 비교
+    private static int compareSortValue(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : 1) : -1;
+        }
+        try {
+            return Double.compare(Double.parseDouble(a), Double.parseDouble(b));
+        } catch (NumberFormatException e) {
+            return a.compareTo(b);
+        }
+    }
+
+    /**
+     * 요청의 terms aggregation 경로별 size (지정하지 않으면 서버 기본값 10)
+     */
+    private static Map<String, Integer> termsSizes(Map<String, Aggregation> aggregations, String path) {
+        Map<String, Integer> sizes = new HashMap<>();
+        aggregations.forEach((name, aggregation) -> {
+            if (aggregation.isTerms()) {
+                Integer size = aggregation.terms().size();
+                sizes.put(path + name, size != null ? size : 10);
+            }
+            sizes.putAll(termsSizes(aggregation.aggregations(), path + name + ">"));
+        });
+        return sizes;
+    }
+
+    /**
+     * 같은 이름의 aggregation 결과들을 종류별로 합침 - 합칠 수 없는 종류는 uncombined 에 경로를 남기고 뺌
+     */
+    private static Map<String, Aggregate> combineAll(List<Map<String, Aggregate>> results, String path,
+                                                     Map<String, Integer> termsSizes, List<String> uncombined) {
+        Map<String, List<Aggregate>> byName = new LinkedHashMap<>();
+        for (Map<String, Aggregate> result : results) {
+            result.forEach((name, aggregate) -> byName.computeIfAbsent(name, k -> new ArrayList<>()).add(aggregate));
+        }
+        Map<String, Aggregate> combined = new LinkedHashMap<>();
+        byName.forEach((name, aggregates) -> {
+            Aggregate aggregate = combine(aggregates, path + name, termsSizes, uncombined);
+            if (aggregate != null) {
+                combined.put(name, aggregate);
+            }
+        });
+        return combined;
+    }
+
+    private static Aggregate combine(List<Aggregate> aggregates, String path, Map<String, Integer> termsSizes, List<String> uncombined) {
+        Aggregate first = aggregates.get(0);
+        for (Aggregate aggregate : aggregates) {
+            if (aggregate._kind() != first._kind()) {
+                uncombined.add(path);
+                return null;
+            }
+        }
+        if (first.isSum()) {
+            double sum = 0;
+            for (Aggregate aggregate : aggregates) {
+                sum += nanToZero(aggregate.sum().value());
+            }
+            double value = sum;
+            return SumAggregate.of(a -> a.value(value))._toAggregate();
+        }
+        if (first.isValueCount()) {
+            double count = 0;
+            for (Aggregate aggregate : aggregates) {
+                count += nanToZero(aggregate.valueCount().value());
+            }
+            double value = count;
+            return ValueCountAggregate.of(a -> a.value(value))._toAggregate();
+        }
+        if (first.isMin()) {
+            double value = extreme(aggregates, aggregate -> aggregate.min().value(), true);
+            return MinAggregate.of(a -> a.value(value))._toAggregate();
+        }
+        if (first.isMax()) {
+            double value = extreme(aggregates, aggregate -> aggregate.max().value(), false);
+            return MaxAggregate.of(a -> a.value(value))._toAggregate();
+        }
+        if (first.isStats()) {
+            Moments moments = new Moments();
+            aggregates.forEach(aggregate -> moments.add(aggregate.stats(), 0));
+            return new StatsAggregate.Builder()
+                    .count(moments.count).min(moments.min).max(moments.max).sum(moments.sum).avg(moments.avg())
+                    .build()._toAggregate();
+        }
+        if (first.isExtendedStats()) {
+            Moments moments = new Moments();
+            aggregates.forEach(aggregate -> moments.add(aggregate.extendedStats(), aggregate.extendedStats().sumOfSquares()));
+            return extendedStats(moments);
+        }
+        if (first.isSterms()) {
+            Map<String, List<StringTermsBucket>> buckets = new LinkedHashMap<>();
+            long sumOtherDocCount = 0;
+            for (Aggregate aggregate : aggregates) {
+                sumOtherDocCount += aggregate.sterms().sumOtherDocCount();
+                aggregate.sterms().buckets().array().forEach(bucket -> buckets.computeIfAbsent(bucket.key(), k -> new ArrayList<>()).add(bucket));
+            }
+            List<StringTermsBucket> merged = new ArrayList<>();
+            buckets.forEach((key, list) -> {
+                long docCount = list.stream().mapToLong(StringTermsBucket::docCount).sum();
+                Map<String, Aggregate> sub = combineBuckets(list, path, termsSizes, uncombined);
+                merged.add(StringTermsBucket.of(b -> b.key(key).docCount(docCount).aggregations(sub)));
+            });
+            merged.sort(Comparator.comparingLong(StringTermsBucket::docCount).reversed().thenComparing(StringTermsBucket::key));
+            long otherDocCount = sumOtherDocCount + trim(merged, termsSizes.getOrDefault(path, 10), StringTermsBucket::docCount);
+            return StringTermsAggregate.of(a -> a.buckets(b -> b.array(merged)).sumOtherDocCount(otherDocCount))._toAggregate();
+        }
+        if (first.isLterms()) {
+            Map<String, List<LongTermsBucket>> buckets = new LinkedHashMap<>();
+            long sumOtherDocCount = 0;
+            for (Aggregate aggregate : aggregates) {
+                sumOtherDocCount += aggregate.lterms().sumOtherDocCount();
+                aggregate.lterms().buckets().array().forEach(bucket -> buckets.computeIfAbsent(bucket.key(), k -> new ArrayList<>()).add(bucket));
+            }
+            List<LongTermsBucket> merged = new ArrayList<>();
+            buckets.forEach((key, list) -> {
+                long docCount = list.stream().mapToLong(LongTermsBucket::docCount).sum();
+                Map<String, Aggregate> sub = combineBuckets(list, path, termsSizes, uncombined);
+                merged.add(LongTermsBucket.of(b -> b.key(key).keyAsString(list.get(0).keyAsString()).docCount(docCount).aggregations(sub)));
+            });
+            merged.sort(Comparator.comparingLong(LongTermsBucket::docCount).reversed()
+                    .thenComparing((a, b) -> compareSortValue(a.key(), b.key())));
+            long otherDocCount = sumOtherDocCount + trim(merged, termsSizes.getOrDefault(path, 10), LongTermsBucket::docCount);
+            return LongTermsAggregate.of(a -> a.buckets(b -> b.array(merged)).sumOtherDocCount(otherDocCount))._toAggregate();
+        }
+        if (first.isDateHistogram()) {
+            Map<String, List<DateHistogramBucket>> buckets = new HashMap<>();
+            for (Aggregate aggregate : aggregates) {
+                aggregate.dateHistogram().buckets().array().forEach(bucket -> buckets.computeIfAbsent(bucket.key(), k -> new ArrayList<>()).add(bucket));
+            }
+            List<DateHistogramBucket> merged = new ArrayList<>();
+            buckets.forEach((key, list) -> {
+                long docCount = list.stream().mapToLong(DateHistogramBucket::docCount).sum();
+                Map<String, Aggregate> sub = combineBuckets(list, path, termsSizes, uncombined);
+                merged.add(DateHistogramBucket.of(b -> b.key(key).keyAsString(list.get(0).keyAsString()).docCount(docCount).aggregations(sub)));
+            });
+            merged.sort((a, b) -> compareSortValue(a.key(), b.key()));
+            return DateHistogramAggregate.of(a -> a.buckets(b -> b.array(merged)))._toAggregate();
+        }
+        uncombined.add(path);
+        return null;
+    }
+
+    // 같은 key 의 bucket 들의 하위 aggregation 을 합침
+    private static Map<String, Aggregate> combineBuckets(List<? extends MultiBucketBase> buckets, String path,
+                                                         Map<String, Integer> termsSizes, List<String> uncombined) {
+        List<Map<String, Aggregate>> results = new ArrayList<>();
+        buckets.forEach(bucket -> results.add(bucket.aggregations()));
+        return combineAll(results, path + ">", termsSizes, uncombined);
+    }
+
+    // 정렬된 terms bucket 을 size 개로 자르고 잘린 bucket 의 doc_count 합계를 반환
+    private static <B> long trim(List<B> buckets, int size, ToLongFunction<B> docCount) {
+        long trimmed = 0;
+        for (int i = size; i < buckets.size(); i++) {
+            trimmed += docCount.applyAsLong(buckets.get(i));
+        }
+        if (buckets.size() > size) {
+            buckets.subList(size, buckets.size()).clear();
+        }
+        return trimmed;
+    }
+
+    private static double nanToZero(double value) {
+        return Double.isNaN(value) ? 0 : value;
+    }
+
+    // 값이 없는 결과(NaN, Infinity)는 무시
+    private static double extreme(List<Aggregate> aggregates, Function<Aggregate, Double> value, boolean min) {
+        double result = Double.NaN;
+        for (Aggregate aggregate : aggregates) {
+            double v = value.apply(aggregate);
+            if (Double.isNaN(v) || Double.isInfinite(v)) {
+                continue;
+            }
+            result = Double.isNaN(result) ? v : (min ? Math.min(result, v) : Math.max(result, v));
+        }
+        return result;
+    }
+
+    private static Aggregate extendedStats(Moments moments) {
+        double avg = moments.avg();
+        double variance = moments.count == 0 ? Double.NaN : Math.max(0, moments.sumOfSquares / moments.count - avg * avg);
+        double varianceSampling = moments.count <= 1 ? Double.NaN
+                : Math.max(0, (moments.sumOfSquares - moments.count * avg * avg) / (moments.count - 1));
+        double stdDeviation = Math.sqrt(variance);
+        double stdDeviationSampling = Math.sqrt(varianceSampling);
+        // 서버 기본값과 같이 평균 ± 2 표준편차
+        return new ExtendedStatsAggregate.Builder()
+                .count(moments.count).min(moments.min).max(moments.max).sum(moments.sum).avg(avg)
+                .sumOfSquares(moments.sumOfSquares)
+                .variance(variance).variancePopulation(variance).varianceSampling(varianceSampling)
+                .stdDeviation(stdDeviation)
+                .stdDeviationBounds(b -> b
+                        .upper(avg + 2 * stdDeviation).lower(avg - 2 * stdDeviation)
+                        .upperPopulation(avg + 2 * stdDeviation).lowerPopulation(avg - 2 * stdDeviation)
+                        .upperSampling(avg + 2 * stdDeviationSampling).lowerSampling(avg - 2 * stdDeviationSampling))
+                .build()._toAggregate();
+    }
+
+    /**
+     * stats 를 합치기 위한 count, min, max, sum, 제곱합
+     */
+    private static class Moments {
+        long count = 0;
+        double min = Double.NaN;
+        double max = Double.NaN;
+        double sum = 0;
+        double sumOfSquares = 0;
+
+        void add(StatsAggregate stats, double statsSumOfSquares) {
+            if (stats.count() == 0) {
+                return;
+            }
+            count += stats.count();
+            sum += stats.sum();
+            sumOfSquares += statsSumOfSquares;
+            min = Double.isNaN(min) ? stats.min() : Math.min(min, stats.min());
+            max = Double.isNaN(max) ? stats.max() : Math.max(max, stats.max());
+        }
+
+        double avg() {
+            return count == 0 ? Double.NaN : sum / count;
+        }
+    }
+
+    public static class Builder {
+        private final OpenSearchAsyncClient asyncClient;
+        private String indexPrefix = "enduser-info-";
+        private String datePattern = "yyyyMMdd";
+        private ZoneId zone = ZoneId.systemDefault();
+        private String timeField = "endTime";
+        private int maxConcurrentSearches = 4;
+        private IndexTimeRangeCache timeRangeCache;
+
+        private Builder(OpenSearchAsyncClient asyncClient) {
+            this.asyncClient = asyncClient;
+        }
+
+        /**
+         * 일별 인덱스 이름의 앞부분 (기본 enduser-info-)
+         */
+        public Builder indexPrefix(String indexPrefix) {
+            this.indexPrefix = indexPrefix;
+            return this;
+        }
+
+        /**
+         * 일별 인덱스 이름의 날짜 형식 (기본 yyyyMMdd)
+         */
+        public Builder datePattern(String datePattern) {
+            this.datePattern = datePattern;
+            return this;
+        }
+
+        /**
+         * 인덱스 날짜의 기준 시간대 (기본 시스템 시간대)
+         */
+        public Builder zone(ZoneId zone) {
+            this.zone = zone;
+            return this;
+        }
+
+        /**
+         * 도큐먼트를 일별 인덱스로 나누는 기준 시간 필드 (기본 endTime) - 이 필드로 정렬하면 조기 종료 가능
+         */
+        public Builder timeField(String timeField) {
+            this.timeField = timeField;
+            return this;
+        }
+
+        /**
+         * 동시에 실행할 인덱스 검색 수 (기본 4)
+         */
+        public Builder maxConcurrentSearches(int maxConcurrentSearches) {
+            this.maxConcurrentSearches = maxConcurrentSearches;
+            return this;
+        }
+
+        /**
+         * 검색 전에 기간과 겹치지 않는 인덱스를 뺄 때 사용할 캐시 (기본 사용하지 않음) - timeField 의 범위를 캐시해야 함
+         */
+        public Builder timeRangeCache(IndexTimeRangeCache timeRangeCache) {
+            this.timeRangeCache = timeRangeCache;
+            return this;
+        }
+
+        public TimePartitionedSearch build() {
+            if (maxConcurrentSearches <= 0) {
+                throw new IllegalArgumentException("maxConcurrentSearches must be positive");
+            }
+            return new TimePartitionedSearch(this);
+        }
+    }
+}
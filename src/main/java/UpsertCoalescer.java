@@ -0,0 +1,228 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 같은 도큐먼트에 대한 부분 갱신(doc_as_upsert)을 일정 시간 동안 모아서 하나의 update operation 으로 합치는 버퍼 <br><br>
+ * 같은 index + id 에 대한 갱신이 windowMillis 안에 여러 번 들어오면 필드 단위로 나중 값이 이기도록(last-writer-wins) 병합해두고,
+ * window 가 끝날 때 도큐먼트마다 update operation 하나만 BulkIngester 로 넘깁니다. <br>
+ * 객체 필드는 서버의 부분 갱신과 같은 방식으로 하위 필드까지 병합하고, 배열과 값은 나중 값으로 교체합니다. <br>
+ * 같은 도큐먼트의 갱신 횟수가 줄어드므로 bulk operation 수와 version conflict 가 함께 줄어듭니다. <br><br>
+ * close() 는 남은 갱신을 ingester 로 넘기기만 하고 ingester 는 닫지 않습니다.
+ *
+ * <pre>
+ * try (UpsertCoalescer coalescer = UpsertCoalescer.builder(ingester).windowMillis(1000).build()) {
+ *     coalescer.upsert("sample-index", "id1", doc);
+ * }
+ * </pre>
+ */
+public class UpsertCoalescer implements AutoCloseable {
+
+    private final BulkIngester ingester;
+    private final int maxPendingDocuments;
+    private final Integer retryOnConflict;
+
+    private final Object lock = new Object();
+    private Map<DocumentKey, ObjectNode> pending = new LinkedHashMap<>();
+    // 꺼낸 window 를 꺼낸 순서대로 ingester 로 넘기도록 꺼내기와 넘기기를 묶음 (lock 보다 먼저 잡음)
+    private final Object emitLock = new Object();
+
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean closed = false;
+
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong emittedCount = new AtomicLong();
+
+    private UpsertCoalescer(Builder builder) {
+        this.ingester = builder.ingester;
+        this.maxPendingDocuments = builder.maxPendingDocuments;
+        this.retryOnConflict = builder.retryOnConflict;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "upsert-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, builder.windowMillis, builder.windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static Builder builder(BulkIngester ingester) {
+        return new Builder(ingester);
+    }
+
+    /**
+     * 부분 갱신 추가 - 같은 window 에 같은 도큐먼트의 갱신이 있으면 병합됨 <br>
+     * 전달한 fields 는 복사해서 보관하므로 호출 후에 재사용해도 됨
+     * @param index 인덱스 이름
+     * @param id 도큐먼트 아이디
+     * @param fields 갱신할 필드 (도큐먼트가 없으면 이 필드들로 입력됨)
+     */
+    public void upsert(String index, String id, ObjectNode fields) {
+        if (closed) {
+            throw new IllegalStateException("UpsertCoalescer is closed");
+        }
+        receivedCount.incrementAndGet();
+
+        boolean full;
+        synchronized (lock) {
+            ObjectNode merged = pending.get(new DocumentKey(index, id));
+            if (merged == null) {
+                pending.put(new DocumentKey(index, id), fields.deepCopy());
+            } else {
+                merge(merged, fields);
+            }
+            full = pending.size() >= maxPendingDocuments;
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * 모아둔 갱신을 즉시 ingester 로 넘김 <br>
+     * 먼저 꺼낸 window 가 먼저 ingester 에 들어가야 같은 도큐먼트의 이전 갱신이 나중 갱신을 덮어쓰지 않으므로,
+     * 꺼내기와 넘기기를 emitLock 안에서 함께 실행 (그동안 upsert() 는 lock 만 잡으므로 계속 받을 수 있음)
+     */
+    public void flush() {
+        synchronized (emitLock) {
+            Map<DocumentKey, ObjectNode> batch;
+            synchronized (lock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = takePending();
+            }
+            emit(batch);
+        }
+    }
+
+    private Map<DocumentKey, ObjectNode> takePending() {
+        Map<DocumentKey, ObjectNode> batch = pending;
+        pending = new LinkedHashMap<>();
+        return batch;
+    }
+
+    private void emit(Map<DocumentKey, ObjectNode> batch) {
+        for (Map.Entry<DocumentKey, ObjectNode> entry : batch.entrySet()) {
+            DocumentKey key = entry.getKey();
+            ObjectNode doc = entry.getValue();
+            ingester.add(BulkOperation.of(b -> b.update(u -> u
+                    .index(key.index())
+                    .id(key.id())
+                    .document(doc)
+                    .docAsUpsert(true)
+                    .retryOnConflict(retryOnConflict))));
+        }
+        emittedCount.addAndGet(batch.size());
+    }
+
+    /**
+     * source 의 필드를 target 에 병합 - 양쪽 모두 객체인 필드는 하위 필드까지 병합하고, 나머지는 source 값으로 교체
+     */
+    private static void merge(ObjectNode target, ObjectNode source) {
+        for (Iterator<Map.Entry<String, JsonNode>> it = source.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = it.next();
+            JsonNode current = target.get(field.getKey());
+            if (current instanceof ObjectNode && field.getValue() instanceof ObjectNode) {
+                merge((ObjectNode) current, (ObjectNode) field.getValue());
+            } else {
+                target.set(field.getKey(), field.getValue().deepCopy());
+            }
+        }
+    }
+
+    /**
+     * 받은 갱신 수
+     */
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    /**
+     * 병합 후 ingester 로 넘긴 update operation 수
+     */
+    public long getEmittedCount() {
+        return emittedCount.get();
+    }
+
+    /**
+     * 병합 대기 중인 도큐먼트 수
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * 남은 갱신을 ingester 로 넘기고 종료 (ingester 는 닫지 않음)
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // 실행 중인 flush 가 끝날 때까지 기다린 후 남은 갱신을 넘김
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private record DocumentKey(String index, String id) {
+    }
+
+    public static class Builder {
+        private final BulkIngester ingester;
+        private long windowMillis = 1000;
+        private int maxPendingDocuments = 100_000;
+        private Integer retryOnConflict = null;
+
+        private Builder(BulkIngester ingester) {
+            this.ingester = ingester;
+        }
+
+        /**
+         * 갱신을 모을 시간 (기본 1000ms)
+         */
+        public Builder windowMillis(long windowMillis) {
+            this.windowMillis = windowMillis;
+            return this;
+        }
+
+        /**
+         * window 가 끝나기 전이라도 병합 대기 중인 도큐먼트가 이 수에 도달하면 ingester 로 넘김 (기본 100000)
+         */
+        public Builder maxPendingDocuments(int maxPendingDocuments) {
+            this.maxPendingDocuments = maxPendingDocuments;
+            return this;
+        }
+
+        /**
+         * version conflict 발생 시 서버에서 재시도할 횟수 (기본 지정하지 않음)
+         */
+        public Builder retryOnConflict(Integer retryOnConflict) {
+            this.retryOnConflict = retryOnConflict;
+            return this;
+        }
+
+        public UpsertCoalescer build() {
+            if (windowMillis <= 0) {
+                throw new IllegalArgumentException("windowMillis must be positive");
+            }
+            return new UpsertCoalescer(this);
+        }
+    }
+}